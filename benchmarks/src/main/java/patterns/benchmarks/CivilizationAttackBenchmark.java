@@ -0,0 +1,60 @@
+package patterns.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import patterns.events.EventSink;
+import patterns.events.Events;
+import patterns.events.NoOpEventSink;
+import patterns.strategy.Civilization;
+import patterns.strategy.strategies.AggressiveStrategy;
+
+/**
+ * Custo de Civilization.attack() com o NoOpEventSink instalado.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CivilizationAttackBenchmark {
+  private static final int REFILL = 1_000_000_000;
+
+  private EventSink originalSink;
+  private Civilization civilization;
+
+  @Setup(Level.Trial)
+  public void silenceEvents(){
+    originalSink = Events.install(NoOpEventSink.INSTANCE);
+    civilization = new Civilization("Benchmark", 0);
+    civilization.setStrategy(new AggressiveStrategy());
+  }
+
+  @TearDown(Level.Trial)
+  public void restoreEvents(){
+    Events.install(originalSink);
+  }
+
+  //Recarrega o saldo dentro da medicao quando ele acaba, para medir so o ataque aceito;
+  //com REFILL alto a recarga ocorre uma vez a cada milhoes de chamadas
+  @Benchmark
+  public int attack(){
+    if(civilization.getResources() < Civilization.ATTACK_COST){
+      civilization.deposit(REFILL);
+    }
+    return civilization.attack();
+  }
+}
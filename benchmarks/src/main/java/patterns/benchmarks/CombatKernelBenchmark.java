@@ -0,0 +1,80 @@
+package patterns.benchmarks;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import patterns.factory.UnitType;
+import patterns.factory.army.Army;
+import patterns.factory.army.CombatKernel;
+import patterns.factory.civilizations.BritishFactory;
+import patterns.factory.civilizations.FrenchFactory;
+import patterns.strategy.AttackStrategy;
+import patterns.strategy.strategies.AggressiveStrategy;
+import patterns.strategy.strategies.DefensiveStrategy;
+
+/**
+ * Ataque total de um exercito: uma chamada de estrategia por tropa vs. o
+ * CombatKernel sobre as colunas primitivas, e a pontuacao de um confronto
+ * numa thread e dividida no ForkJoinPool comum.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Thread)
+public class CombatKernelBenchmark {
+  @Param({"1000000", "10000000"})
+  private int size;
+
+  private Army army;
+  private Army opponent;
+  private AttackStrategy strategy;
+  private AttackStrategy opponentStrategy;
+
+  @Setup
+  public void setup(){
+    army = new Army(size);
+    army.add(new BritishFactory().train(UnitType.ARCHER, size / 2));
+    army.add(new BritishFactory().train(UnitType.KNIGHT, size - size / 2));
+    opponent = new Army(size);
+    opponent.add(new FrenchFactory().train(UnitType.SWORDSMAN, size));
+    strategy = new AggressiveStrategy();
+    opponentStrategy = new DefensiveStrategy();
+  }
+
+  //Caminho anterior: uma chamada de Troop e de AttackStrategy por tropa
+  @Benchmark
+  public long totalAttackPerTroop(){
+    long[] total = new long[1];
+    army.forEach(troop -> total[0] += strategy.attackPower(troop.getAttack()));
+    return total[0];
+  }
+
+  @Benchmark
+  public long totalAttackKernel(){
+    return CombatKernel.totalAttack(army, strategy);
+  }
+
+  @Benchmark
+  public long scoreEngagement(){
+    return CombatKernel.score(army, strategy, opponent, opponentStrategy);
+  }
+
+  @Benchmark
+  public long scoreEngagementParallel(){
+    return CombatKernel.score(army, strategy, opponent, opponentStrategy, ForkJoinPool.commonPool());
+  }
+}
@@ -0,0 +1,65 @@
+package patterns.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import patterns.decorator.BasicTroop;
+import patterns.decorator.TroopComponent;
+import patterns.decorator.upgrades.ArmorUpgrade;
+import patterns.decorator.upgrades.EliteTraining;
+import patterns.decorator.upgrades.VeteranStatus;
+import patterns.decorator.upgrades.WeaponUpgrade;
+
+/**
+ * Custo de leitura dos atributos de uma tropa em funcao da profundidade
+ * da cadeia de decoradores, comparado ao snapshot compilado.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DecoratorChainBenchmark {
+  @Param({"1", "4", "16", "64"})
+  private int depth;
+
+  private TroopComponent chain;
+  private TroopComponent compiled;
+
+  @Setup
+  public void setup(){
+    TroopComponent troop = new BasicTroop("Espadachim", 25, 20, 60);
+    for(int i = 0; i < depth; i++){
+      switch(i % 4){
+        case 0 -> troop = new ArmorUpgrade(troop);
+        case 1 -> troop = new WeaponUpgrade(troop);
+        case 2 -> troop = new EliteTraining(troop);
+        default -> troop = new VeteranStatus(troop);
+      }
+    }
+    chain = troop;
+    compiled = troop.compile();
+  }
+
+  @Benchmark
+  public int liveChain(){
+    return chain.getAttack() + chain.getDefense() + chain.getCost();
+  }
+
+  @Benchmark
+  public int compiledSnapshot(){
+    return compiled.getAttack() + compiled.getDefense() + compiled.getCost();
+  }
+}
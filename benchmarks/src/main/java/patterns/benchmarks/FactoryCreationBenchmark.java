@@ -0,0 +1,75 @@
+package patterns.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import patterns.factory.Troop;
+import patterns.factory.TroopFactory;
+import patterns.factory.UnitType;
+import patterns.factory.army.Army;
+import patterns.factory.civilizations.BritishFactory;
+import patterns.factory.civilizations.FrenchFactory;
+
+/**
+ * Vazao de criacao de tropas por fabrica e tipo de unidade.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FactoryCreationBenchmark {
+  @Param({"british", "french"})
+  private String civilization;
+
+  private TroopFactory factory;
+
+  @Setup
+  public void setup(){
+    factory = civilization.equals("british") ? new BritishFactory() : new FrenchFactory();
+  }
+
+  @Benchmark
+  public Troop createArcher(){
+    return factory.createArcher();
+  }
+
+  @Benchmark
+  public Troop createSwordsman(){
+    return factory.createSwordsman();
+  }
+
+  @Benchmark
+  public Troop createKnight(){
+    return factory.createKnight();
+  }
+
+  //Mil arqueiros em um Army: um a um vs. em lote a partir do template compartilhado
+  @Benchmark
+  public Army trainArchersOneByOne(){
+    Army army = new Army(1000);
+    for(int i = 0; i < 1000; i++){
+      army.add(factory.createArcher());
+    }
+    return army;
+  }
+
+  @Benchmark
+  public Army trainArchersInBulk(){
+    Army army = new Army(1000);
+    army.add(factory.train(UnitType.ARCHER, 1000));
+    return army;
+  }
+}
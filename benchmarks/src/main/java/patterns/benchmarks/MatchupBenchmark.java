@@ -0,0 +1,98 @@
+package patterns.benchmarks;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import patterns.factory.Troop;
+import patterns.factory.UnitType;
+import patterns.factory.registry.UnitRegistry;
+import patterns.factory.registry.UnitTable;
+import patterns.strategy.AttackStrategy;
+import patterns.strategy.StrategyRegistry;
+import patterns.strategy.simulation.MatchupEngine;
+import patterns.strategy.simulation.MatchupTable;
+
+/**
+ * Dano de confrontos aleatorios calculado pelas chamadas a Troop e
+ * AttackStrategy vs. lido do MatchupTable.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MatchupBenchmark {
+  private static final int SIZE = 1024;
+
+  private final Troop[] attackers = new Troop[SIZE];
+  private final Troop[] defenders = new Troop[SIZE];
+  private final AttackStrategy[] attackerStrategies = new AttackStrategy[SIZE];
+  private final AttackStrategy[] defenderStrategies = new AttackStrategy[SIZE];
+  private final int[] attackerSides = new int[SIZE];
+  private final int[] defenderSides = new int[SIZE];
+  private MatchupTable table;
+
+  @Setup
+  public void setup() throws IOException {
+    UnitTable units = UnitTable.parse(new StringReader(
+      "Britanico,ARCHER,35,10,40,20\nBritanico,SWORDSMAN,25,20,60,10\nBritanico,KNIGHT,40,30,120,0\n"
+      + "Frances,ARCHER,30,10,40,20\nFrances,SWORDSMAN,30,25,60,10\nFrances,KNIGHT,50,35,120,0\n"), "benchmark");
+    StrategyRegistry strategies = new StrategyRegistry();
+    table = new MatchupEngine(new UnitRegistry(units), strategies).table();
+    List<AttackStrategy> all = strategies.all();
+    SplittableRandom random = new SplittableRandom(42);
+    for(int i = 0; i < SIZE; i++){
+      int civilization = random.nextInt(units.civilizationCount());
+      UnitType type = UnitType.fromId(random.nextInt(UnitType.count()));
+      int strategy = random.nextInt(all.size());
+      attackers[i] = units.template(civilization, type);
+      attackerStrategies[i] = all.get(strategy);
+      attackerSides[i] = table.side(civilization, type, strategy);
+
+      civilization = random.nextInt(units.civilizationCount());
+      type = UnitType.fromId(random.nextInt(UnitType.count()));
+      strategy = random.nextInt(all.size());
+      defenders[i] = units.template(civilization, type);
+      defenderStrategies[i] = all.get(strategy);
+      defenderSides[i] = table.side(civilization, type, strategy);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public long computedDamage(){
+    long total = 0;
+    for(int i = 0; i < SIZE; i++){
+      int attack = attackerStrategies[i].attackPower(attackers[i].getAttack());
+      int defense = defenderStrategies[i].defensePower(defenders[i].getDefense());
+      total += Math.max(1, attack - defense * 3 / 10);
+    }
+    return total;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public long tableDamage(){
+    long total = 0;
+    for(int i = 0; i < SIZE; i++){
+      total += MatchupTable.damageOf(table.resolve(attackerSides[i], defenderSides[i]));
+    }
+    return total;
+  }
+}
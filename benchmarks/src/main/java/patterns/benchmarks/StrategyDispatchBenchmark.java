@@ -0,0 +1,94 @@
+package patterns.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import patterns.strategy.AttackStrategy;
+import patterns.strategy.strategies.AggressiveStrategy;
+import patterns.strategy.strategies.BalancedStrategy;
+import patterns.strategy.strategies.DefensiveStrategy;
+
+/**
+ * Chamadas a AttackStrategy com um unico tipo concreto (monomorfico) e
+ * com quatro tipos misturados (megamorfico).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StrategyDispatchBenchmark {
+  private static final int SIZE = 1024;
+
+  private final AttackStrategy[] monomorphic = new AttackStrategy[SIZE];
+  private final AttackStrategy[] megamorphic = new AttackStrategy[SIZE];
+
+  @Setup
+  public void setup(){
+    AttackStrategy[] kinds = {
+      new AggressiveStrategy(),
+      new BalancedStrategy(),
+      new DefensiveStrategy(),
+      new BerserkerStrategy()
+    };
+    for(int i = 0; i < SIZE; i++){
+      monomorphic[i] = kinds[0];
+      megamorphic[i] = kinds[i % kinds.length];
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public int monomorphicAttackPower(){
+    return sum(monomorphic);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public int megamorphicAttackPower(){
+    return sum(megamorphic);
+  }
+
+  private static int sum(AttackStrategy[] strategies){
+    int total = 0;
+    for(AttackStrategy strategy : strategies){
+      total += strategy.attackPower(100);
+    }
+    return total;
+  }
+
+  //Quarto tipo concreto, para tirar o call site do caso bimorfico
+  private static final class BerserkerStrategy implements AttackStrategy {
+    @Override
+    public String describe(int attackPower){
+      return "Ataque BERSERKER com poder " + attackPower + "!";
+    }
+
+    @Override
+    public double getAttackModifier(){
+      return 2.0;
+    }
+
+    @Override
+    public double getDefenseModifier(){
+      return 0.3;
+    }
+
+    @Override
+    public String getName(){
+      return "Berserker";
+    }
+  }
+}
@@ -1,8 +1,30 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import patterns.batch.*;
 import patterns.decorator.*;
 import patterns.decorator.upgrades.*;
+import patterns.events.AsyncEventSink;
+import patterns.events.Events;
+import patterns.events.NoOpEventSink;
 import patterns.factory.*;
 import patterns.factory.civilizations.*;
+import patterns.factory.registry.UnitRegistry;
 import patterns.strategy.*;
+import patterns.strategy.simulation.ShardServer;
+import patterns.strategy.simulation.ShardedSimulation;
+import patterns.strategy.simulation.TickSimulation;
 import patterns.strategy.strategies.*;
 
 public class Main {
@@ -20,7 +42,205 @@ public class Main {
             case "strategy" -> demonstrateStrategy();
             case "decorator" -> demonstrateDecorator();
             case "all" -> demonstrateAll();
-            default -> System.out.println("Uso: java Main [factory|strategy|decorator|all]");
+            case "batch" -> runBatch(args);
+            case "ingest" -> runIngest(args);
+            case "shard" -> runShard(args);
+            case "cluster" -> runCluster(args);
+            default -> System.out.println("Uso: java Main [factory|strategy|decorator|all]\n"
+                + "       java Main batch [--format csv|json] [--threads N] [--units arquivo] [--out arquivo] [--events arquivo] cenario...\n"
+                + "       java Main ingest [--threads N] [--units arquivo] log...\n"
+                + "       java Main shard endereco\n"
+                + "       java Main cluster [--civs N] [--ticks N] [--seed N] [--remove-after N] [--verify] endereco...");
+        }
+    }
+    
+    /**
+     * Modo batch: executa arquivos de cenário (ou todos os arquivos de um
+     * diretório) sem exibir as demonstrações; os resultados vão para
+     * --out ou para a saída padrão e o resumo para a saída de erro.
+     * Com --events os eventos das civilizações são gravados no arquivo
+     * por um AsyncEventSink, sem bloquear as threads dos cenários.
+     */
+    private static void runBatch(String[] args) {
+        ResultFormat format = ResultFormat.CSV;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path unitsFile = Path.of("data", "units.csv");
+        Path output = null;
+        Path eventsFile = null;
+        List<Path> scenarios = new ArrayList<>();
+        try {
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--format" -> format = ResultFormat.parse(value(args, ++i));
+                    case "--threads" -> threads = Integer.parseInt(value(args, ++i));
+                    case "--units" -> unitsFile = Path.of(value(args, ++i));
+                    case "--out" -> output = Path.of(value(args, ++i));
+                    case "--events" -> eventsFile = Path.of(value(args, ++i));
+                    default -> addScenarios(Path.of(args[i]), scenarios);
+                }
+            }
+            if (scenarios.isEmpty()) {
+                throw new IllegalArgumentException("Nenhum arquivo de cenário informado");
+            }
+            ScenarioRunner runner = new ScenarioRunner(UnitRegistry.load(unitsFile), new StrategyRegistry(), format, threads);
+            BatchSummary summary;
+            try (FileChannel eventsChannel = eventsFile == null ? null
+                    : FileChannel.open(eventsFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                 AsyncEventSink events = eventsChannel == null ? null : new AsyncEventSink(eventsChannel, eventsChannel, 1 << 16);
+                 Writer out = output == null
+                    ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16)
+                    : Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+                if (events != null) {
+                    runner.setEventSink(events);
+                }
+                summary = runner.run(scenarios, out);
+                if (events != null && events.getDroppedCount() > 0) {
+                    System.err.println("Eventos descartados (buffer cheio): " + events.getDroppedCount());
+                }
+            }
+            System.err.println(summary);
+        } catch (IOException | UncheckedIOException | IllegalArgumentException e) {
+            System.err.println("Erro no modo batch: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+    
+    /**
+     * Ingestão em fluxo de logs de comandos (mesmo formato dos cenários),
+     * com memória constante; os logs são aplicados em sequência sobre o
+     * mesmo estado e um resumo por arquivo vai para a saída de erro.
+     */
+    private static void runIngest(String[] args) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path unitsFile = Path.of("data", "units.csv");
+        List<Path> logs = new ArrayList<>();
+        try {
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--threads" -> threads = Integer.parseInt(value(args, ++i));
+                    case "--units" -> unitsFile = Path.of(value(args, ++i));
+                    default -> logs.add(Path.of(args[i]));
+                }
+            }
+            if (logs.isEmpty()) {
+                throw new IllegalArgumentException("Nenhum log informado");
+            }
+            CommandLogIngester ingester = new CommandLogIngester(UnitRegistry.load(unitsFile), new StrategyRegistry(), threads, 4);
+            for (Path log : logs) {
+                IngestionSummary summary = ingester.ingest(log);
+                System.err.println(log + ": " + summary);
+                if (summary.getFirstError() != null) {
+                    System.err.println("  primeiro erro: " + summary.getFirstError());
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Erro na ingestão: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+    
+    /**
+     * Processo de um shard da simulação distribuída; o endereço é
+     * "unix:/caminho" ou "porta" (TCP em loopback). Termina quando o
+     * coordenador o remove do cluster.
+     */
+    private static void runShard(String[] args) {
+        try {
+            Events.install(NoOpEventSink.INSTANCE);
+            try (ShardServer server = new ShardServer(value(args, 1), new StrategyRegistry())) {
+                System.err.println("Shard ouvindo em " + server.getAddress());
+                server.serve();
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Erro no shard: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+    
+    /**
+     * Coordena a simulação em ticks sobre shards já em execução (java Main
+     * shard ...). Com --remove-after, o último shard é removido depois desse
+     * número de ticks e suas civilizações são redistribuídas; com --verify,
+     * o estado final é comparado com o de uma TickSimulation local.
+     */
+    private static void runCluster(String[] args) {
+        int civilizations = 10000;
+        int ticks = 100;
+        long seed = 42;
+        int removeAfter = -1;
+        boolean verify = false;
+        List<String> shards = new ArrayList<>();
+        try {
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--civs" -> civilizations = Integer.parseInt(value(args, ++i));
+                    case "--ticks" -> ticks = Integer.parseInt(value(args, ++i));
+                    case "--seed" -> seed = Long.parseLong(value(args, ++i));
+                    case "--remove-after" -> removeAfter = Integer.parseInt(value(args, ++i));
+                    case "--verify" -> verify = true;
+                    default -> shards.add(args[i]);
+                }
+            }
+            if (shards.isEmpty()) {
+                throw new IllegalArgumentException("Nenhum shard informado");
+            }
+            Events.install(NoOpEventSink.INSTANCE);
+            StrategyRegistry strategies = new StrategyRegistry();
+            try (ShardedSimulation simulation = new ShardedSimulation(seed)) {
+                for (String shard : shards) {
+                    simulation.addShard(shard);
+                }
+                simulation.addCivilizations(world(civilizations, strategies));
+                if (removeAfter >= 0 && removeAfter < ticks && shards.size() > 1) {
+                    System.err.println(simulation.run(removeAfter));
+                    simulation.removeShard(shards.get(shards.size() - 1));
+                    System.err.println("Shard " + shards.get(shards.size() - 1) + " removido; "
+                        + simulation.getLastMoved() + " civilizações redistribuídas");
+                    System.err.println(simulation.run(ticks - removeAfter));
+                } else {
+                    System.err.println(simulation.run(ticks));
+                }
+                long hash = simulation.stateHash();
+                System.err.println("Estado final: " + hash);
+                if (verify) {
+                    TickSimulation local = new TickSimulation(world(civilizations, strategies), 1, seed);
+                    local.run(ticks);
+                    boolean same = local.stateHash() == hash;
+                    System.err.println(same ? "Igual à simulação local" : "DIFERENTE da simulação local: " + local.stateHash());
+                    if (!same) {
+                        System.exit(2);
+                    }
+                }
+            }
+        } catch (IOException | IllegalArgumentException | IllegalStateException e) {
+            System.err.println("Erro no cluster: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+    
+    private static List<Civilization> world(int count, StrategyRegistry strategies) {
+        List<AttackStrategy> all = strategies.all();
+        List<Civilization> world = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            world.add(new Civilization("Civilização " + i, 500, all.get(i % all.size())));
+        }
+        return world;
+    }
+    
+    private static String value(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Falta o valor de " + args[index - 1]);
+        }
+        return args[index];
+    }
+    
+    private static void addScenarios(Path path, List<Path> scenarios) throws IOException {
+        if (!Files.isDirectory(path)) {
+            scenarios.add(path);
+            return;
+        }
+        try (Stream<Path> files = Files.list(path)) {
+            files.filter(Files::isRegularFile).sorted().forEach(scenarios::add);
         }
     }
     
@@ -0,0 +1,43 @@
+package patterns.batch;
+
+//Totais de uma execucao do ScenarioRunner
+public final class BatchSummary {
+  private final int scenarios;
+  private final long commands;
+  private final long errors;
+  private final long elapsedNanos;
+
+  BatchSummary(int scenarios, long commands, long errors, long elapsedNanos){
+    this.scenarios = scenarios;
+    this.commands = commands;
+    this.errors = errors;
+    this.elapsedNanos = elapsedNanos;
+  }
+
+  public int getScenarios(){
+    return scenarios;
+  }
+
+  public long getCommands(){
+    return commands;
+  }
+
+  //Comandos invalidos ou que falharam (ataques sem recursos nao contam como erro)
+  public long getErrors(){
+    return errors;
+  }
+
+  public long getElapsedNanos(){
+    return elapsedNanos;
+  }
+
+  public double getCommandsPerSecond(){
+    return elapsedNanos == 0 ? 0 : commands * 1e9 / elapsedNanos;
+  }
+
+  @Override
+  public String toString(){
+    return String.format("%d cenários, %d comandos (%d erros) em %.2f s: %.0f comandos/s",
+      scenarios, commands, errors, elapsedNanos / 1e9, getCommandsPerSecond());
+  }
+}
@@ -0,0 +1,720 @@
+package patterns.batch;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import patterns.decorator.upgrades.Upgrade;
+import patterns.events.NoOpEventSink;
+import patterns.factory.TroopFactory;
+import patterns.factory.UnitType;
+import patterns.factory.registry.UnitRegistry;
+import patterns.strategy.AttackStrategy;
+import patterns.strategy.Civilization;
+import patterns.strategy.StrategyRegistry;
+import patterns.strategy.strategies.BalancedStrategy;
+
+/**
+ * Ingestao em fluxo de logs de comandos, com memoria que nao depende do
+ * tamanho do log: so do numero de civilizacoes declaradas.
+ *
+ * O log usa os mesmos comandos dos cenarios do ScenarioRunner (a
+ * palavra-chave do comando nao diferencia maiusculas). Uma thread
+ * le o arquivo com um FileChannel em um unico buffer reutilizado e
+ * interpreta cada linha diretamente sobre os bytes: palavras-chave,
+ * numeros, upgrades e estrategias sao comparados sem criar String, e os
+ * nomes de civilizacao sao resolvidos por uma tabela de hash sobre os
+ * bytes (so o comando civ cria o nome).
+ *
+ * Os comandos ja interpretados vao, em lotes de colunas primitivas, para
+ * shards escolhidos pelo id da civilizacao, cada um com a sua thread; a
+ * ordem dos comandos de uma mesma civilizacao e mantida. Cada shard tem um
+ * numero fixo de lotes: quando todos estao na fila, a leitura espera o
+ * shard devolver um (backpressure), entao a memoria nao depende do
+ * tamanho do log; os exercitos guardam so a quantidade por template.
+ *
+ * Uma falha fatal em um shard (um Error, por exemplo falta de memoria)
+ * interrompe a leitura e e relancada por ingest(); o estado das
+ * civilizacoes daquele shard pode ter ficado pela metade.
+ *
+ * O estado das civilizacoes e mantido entre chamadas de ingest(), de modo
+ * que um log dividido em varios arquivos pode ser lido em sequencia.
+ */
+public class CommandLogIngester {
+  static final byte CREATE = 1;
+  static final byte TRAIN = 2;
+  static final byte UPGRADE = 3;
+  static final byte STRATEGY = 4;
+  static final byte RESOURCES = 5;
+  static final byte ATTACK = 6;
+
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final int BATCH_SIZE = 1024;
+  private static final int MAX_FIELDS = 6;
+  private static final long INVALID = Long.MIN_VALUE;
+
+  private static final byte[] CIV = ascii("civ");
+  private static final byte[] TRAIN_WORD = ascii("train");
+  private static final byte[] UPGRADE_WORD = ascii("upgrade");
+  private static final byte[] STRATEGY_WORD = ascii("strategy");
+  private static final byte[] RESOURCES_WORD = ascii("resources");
+  private static final byte[] ATTACK_WORD = ascii("attack");
+  private static final byte[][] UNIT_TYPES = names(UnitType.values());
+  private static final byte[][] UPGRADES = names(Upgrade.values());
+
+  private final UnitRegistry units;
+  private final AttackStrategy[] strategies;
+  private final byte[][] strategyNames;
+  private final Shard[] shards;
+  private final NameTable names = new NameTable();
+
+  /**
+   * @param shards numero de threads que aplicam os comandos
+   * @param batchesPerShard lotes em circulacao por shard; limita a memoria e o quanto a leitura pode se adiantar
+   */
+  public CommandLogIngester(UnitRegistry units, StrategyRegistry strategies, int shards, int batchesPerShard){
+    if(shards <= 0 || batchesPerShard <= 0){
+      throw new IllegalArgumentException("Shards e lotes por shard devem ser positivos");
+    }
+    this.units = units;
+    List<AttackStrategy> known = strategies.all();
+    this.strategies = known.toArray(new AttackStrategy[0]);
+    this.strategyNames = new byte[this.strategies.length][];
+    for(int i = 0; i < this.strategies.length; i++){
+      strategyNames[i] = this.strategies[i].getName().getBytes(StandardCharsets.UTF_8);
+    }
+    this.shards = new Shard[shards];
+    for(int i = 0; i < shards; i++){
+      this.shards[i] = new Shard(batchesPerShard);
+    }
+  }
+
+  /**
+   * Le o log inteiro e aplica os comandos. As civilizacoes criadas pelo
+   * log nao publicam eventos (usam o NoOpEventSink); o global de Events
+   * nao e alterado.
+   * @throws Error ou RuntimeException que derrubou um shard, sem embrulhar
+   */
+  public synchronized IngestionSummary ingest(Path path) throws IOException {
+    long start = System.nanoTime();
+    Thread[] threads = new Thread[shards.length];
+    for(int i = 0; i < shards.length; i++){
+      shards[i].reset();
+      threads[i] = new Thread(shards[i]::drain, "ingest-shard-" + i);
+      threads[i].setDaemon(true);
+      threads[i].start();
+    }
+    Parser parser = new Parser();
+    long bytes = 0;
+    try {
+      try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+        bytes = parser.read(channel);
+      } finally {
+        parser.finish();
+        for(Thread thread : threads){
+          thread.join();
+        }
+      }
+    } catch(InterruptedException e){
+      Thread.currentThread().interrupt();
+      throw new IOException("Ingestão interrompida", e);
+    }
+    for(Shard shard : shards){
+      Throwable fatal = shard.fatal;
+      if(fatal instanceof Error){
+        throw (Error) fatal;
+      }
+      if(fatal instanceof RuntimeException){
+        throw (RuntimeException) fatal;
+      }
+      if(fatal != null){
+        throw new IOException("Falha fatal em um shard da ingestão", fatal);
+      }
+    }
+
+    long commands = parser.commands;
+    long errors = parser.errors;
+    long executed = 0;
+    long rejected = 0;
+    long power = 0;
+    String firstError = parser.firstError;
+    long firstErrorLine = parser.firstErrorLine;
+    for(Shard shard : shards){
+      errors += shard.errors;
+      executed += shard.attacksExecuted;
+      rejected += shard.attacksRejected;
+      power += shard.totalPower;
+      if(shard.firstError != null && (firstError == null || shard.firstErrorLine < firstErrorLine)){
+        firstError = shard.firstError;
+        firstErrorLine = shard.firstErrorLine;
+      }
+    }
+    return new IngestionSummary(bytes, commands, errors, executed, rejected, power,
+      firstError == null ? null : "linha " + firstErrorLine + ": " + firstError, System.nanoTime() - start);
+  }
+
+  //Civilizacao declarada no log, ou null; so deve ser chamado fora de ingest()
+  public synchronized Civilization getCivilization(String name){
+    ScenarioCivilization state = find(name);
+    return state == null ? null : state.civilization;
+  }
+
+  //Tropas treinadas pela civilizacao, ou -1 se ela nao foi declarada; so deve ser chamado fora de ingest()
+  public synchronized long getTroopCount(String name){
+    ScenarioCivilization state = find(name);
+    return state == null ? -1 : state.troopCount();
+  }
+
+  public synchronized int civilizationCount(){
+    return names.size();
+  }
+
+  private ScenarioCivilization find(String name){
+    byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+    int id = names.find(bytes, 0, bytes.length);
+    return id < 0 ? null : shards[id % shards.length].get(id / shards.length);
+  }
+
+  //Interpreta as linhas na thread de leitura e distribui os comandos entre os shards
+  private final class Parser {
+    private final int[] starts = new int[MAX_FIELDS];
+    private final int[] ends = new int[MAX_FIELDS];
+    private final Batch[] current = new Batch[shards.length];
+    long commands;
+    long errors;
+    String firstError;
+    long firstErrorLine;
+    //Algum shard morreu: a leitura para e ingest() relanca a falha
+    boolean aborted;
+
+    long read(FileChannel channel) throws IOException, InterruptedException {
+      ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+      byte[] data = buffer.array();
+      long bytes = 0;
+      long line = 0;
+      int scanned = 0;
+      boolean skipping = false;
+      while(true){
+        int read = channel.read(buffer);
+        if(read > 0){
+          bytes += read;
+        }
+        int limit = buffer.position();
+        int lineStart = 0;
+        for(int i = scanned; i < limit; i++){
+          if(data[i] != '\n'){
+            continue;
+          }
+          line++;
+          if(aborted){
+            return bytes;
+          }
+          if(skipping){
+            skipping = false;
+          } else {
+            parseLine(data, lineStart, i, line);
+          }
+          lineStart = i + 1;
+        }
+        if(read < 0){
+          if(lineStart < limit && !skipping){
+            parseLine(data, lineStart, limit, line + 1);
+          }
+          return bytes;
+        }
+        if(lineStart == 0 && limit == data.length){
+          //linha maior que o buffer: descarta ate a proxima quebra de linha
+          if(!skipping){
+            error(line + 1, "Linha maior que " + BUFFER_SIZE + " bytes");
+          }
+          skipping = true;
+          buffer.clear();
+          scanned = 0;
+          continue;
+        }
+        System.arraycopy(data, lineStart, data, 0, limit - lineStart);
+        buffer.position(limit - lineStart);
+        scanned = limit - lineStart;
+      }
+    }
+
+    private void parseLine(byte[] data, int from, int to, long line) throws InterruptedException {
+      int count = 0;
+      int i = from;
+      while(i < to){
+        byte b = data[i];
+        if(b == '#'){
+          break;
+        }
+        if(b == ' ' || b == '\t' || b == '\r'){
+          i++;
+          continue;
+        }
+        int start = i;
+        while(i < to && data[i] != ' ' && data[i] != '\t' && data[i] != '\r' && data[i] != '#'){
+          i++;
+        }
+        if(count == MAX_FIELDS){
+          count++;
+          break;
+        }
+        starts[count] = start;
+        ends[count] = i;
+        count++;
+      }
+      if(count == 0){
+        return;
+      }
+      commands++;
+      if(count > MAX_FIELDS){
+        error(line, "Argumentos demais");
+        return;
+      }
+      int keywordLength = ends[0] - starts[0];
+      if(matchesKeyword(data, CIV)){
+        declare(data, count, line);
+        return;
+      }
+      byte op;
+      int expected;
+      switch(keywordLength){
+        case 5: op = TRAIN; expected = 4; break;
+        case 7: op = UPGRADE; expected = 3; break;
+        case 8: op = STRATEGY; expected = 3; break;
+        case 9: op = RESOURCES; expected = 3; break;
+        case 6: op = ATTACK; expected = 2; break;
+        default: op = 0; expected = 0;
+      }
+      byte[] keyword = op == TRAIN ? TRAIN_WORD : op == UPGRADE ? UPGRADE_WORD : op == STRATEGY ? STRATEGY_WORD
+        : op == RESOURCES ? RESOURCES_WORD : ATTACK_WORD;
+      if(op == 0 || !matchesKeyword(data, keyword)){
+        error(line, "Comando desconhecido");
+        return;
+      }
+      if(count != expected){
+        error(line, "Número de argumentos inválido");
+        return;
+      }
+      int civilizationId = names.find(data, starts[1], ends[1] - starts[1]);
+      if(civilizationId < 0){
+        error(line, "Civilização não declarada");
+        return;
+      }
+      int argument = 0;
+      int second = 0;
+      switch(op){
+        case TRAIN: {
+          argument = lookup(data, 2, UNIT_TYPES);
+          long amount = number(data, 3);
+          if(argument < 0 || amount == INVALID || amount < 0 || amount > Integer.MAX_VALUE){
+            error(line, "Tipo de unidade ou quantidade inválidos");
+            return;
+          }
+          second = (int) amount;
+          break;
+        }
+        case UPGRADE:
+          argument = lookup(data, 2, UPGRADES);
+          if(argument < 0){
+            error(line, "Upgrade desconhecido");
+            return;
+          }
+          break;
+        case STRATEGY:
+          argument = lookup(data, 2, strategyNames);
+          if(argument < 0){
+            error(line, "Estratégia desconhecida");
+            return;
+          }
+          break;
+        case RESOURCES: {
+          long amount = number(data, 2);
+          if(amount == INVALID || amount < Integer.MIN_VALUE || amount > Integer.MAX_VALUE){
+            error(line, "Quantidade inválida");
+            return;
+          }
+          argument = (int) amount;
+          break;
+        }
+        default:
+          break;
+      }
+      emit(op, civilizationId, argument, second, null, line);
+    }
+
+    //civ <nome> <civilizacao das unidades> <recursos> [estrategia]
+    private void declare(byte[] data, int count, long line) throws InterruptedException {
+      if(count != 4 && count != 5){
+        error(line, "Número de argumentos inválido");
+        return;
+      }
+      if(names.find(data, starts[1], ends[1] - starts[1]) >= 0){
+        error(line, "Civilização já declarada");
+        return;
+      }
+      long resources = number(data, 3);
+      if(resources == INVALID || resources < Integer.MIN_VALUE || resources > Integer.MAX_VALUE){
+        error(line, "Recursos inválidos");
+        return;
+      }
+      int strategy = count == 5 ? lookup(data, 4, strategyNames) : -1;
+      if(count == 5 && strategy < 0){
+        error(line, "Estratégia desconhecida");
+        return;
+      }
+      TroopFactory factory;
+      try {
+        factory = units.factory(new String(data, starts[2], ends[2] - starts[2], StandardCharsets.UTF_8));
+      } catch(IllegalArgumentException e){
+        error(line, e.getMessage());
+        return;
+      }
+      int id = names.add(data, starts[1], ends[1] - starts[1]);
+      String name = names.name(id);
+      Civilization civilization = new Civilization(name, (int) resources,
+        strategy < 0 ? new BalancedStrategy() : strategies[strategy], NoOpEventSink.INSTANCE);
+      emit(CREATE, id, 0, 0, new ScenarioCivilization(civilization, factory), line);
+    }
+
+    private void emit(byte op, int civilizationId, int argument, int second, ScenarioCivilization created, long line)
+        throws InterruptedException {
+      int index = civilizationId % shards.length;
+      Batch batch = current[index];
+      if(batch == null){
+        //espera um lote livre: e aqui que a leitura desacelera quando o shard esta atrasado
+        batch = shards[index].takeFree();
+        if(batch == null){
+          aborted = true;
+          return;
+        }
+        current[index] = batch;
+      }
+      batch.add(op, civilizationId / shards.length, argument, second, created, line);
+      if(batch.size == BATCH_SIZE){
+        shards[index].ready.put(batch);
+        current[index] = null;
+      }
+    }
+
+    //Envia os lotes pendentes e o aviso de fim para cada shard
+    void finish() throws InterruptedException {
+      for(int i = 0; i < shards.length; i++){
+        if(current[i] != null){
+          shards[i].ready.put(current[i]);
+          current[i] = null;
+        }
+        Batch end = shards[i].takeFree();
+        if(end != null){
+          end.end = true;
+          shards[i].ready.put(end);
+        }
+      }
+    }
+
+    //Palavra-chave sem diferenciar maiusculas, como o toLowerCase do ScenarioRunner
+    private boolean matchesKeyword(byte[] data, byte[] expected){
+      int from = starts[0];
+      if(ends[0] - from != expected.length){
+        return false;
+      }
+      for(int i = 0; i < expected.length; i++){
+        int b = data[from + i];
+        if(b >= 'A' && b <= 'Z'){
+          b += 'a' - 'A';
+        }
+        if(b != expected[i]){
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private int lookup(byte[] data, int field, byte[][] candidates){
+      for(int i = 0; i < candidates.length; i++){
+        if(sameBytes(data, starts[field], ends[field], candidates[i])){
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    private long number(byte[] data, int field){
+      int i = starts[field];
+      int end = ends[field];
+      boolean negative = data[i] == '-';
+      if(negative){
+        i++;
+      }
+      if(i == end || end - i > 10){
+        return INVALID;
+      }
+      long value = 0;
+      for(; i < end; i++){
+        int digit = data[i] - '0';
+        if(digit < 0 || digit > 9){
+          return INVALID;
+        }
+        value = value * 10 + digit;
+      }
+      return negative ? -value : value;
+    }
+
+    private void error(long line, String message){
+      errors++;
+      if(firstError == null){
+        firstError = message;
+        firstErrorLine = line;
+      }
+    }
+  }
+
+  //Aplica os comandos das civilizacoes com id % shards == indice do shard
+  private final class Shard {
+    private final int batches;
+    final BlockingQueue<Batch> free;
+    final BlockingQueue<Batch> ready;
+    //Falha que derrubou a thread do shard; a leitura deixa de enviar lotes para ele
+    volatile Throwable fatal;
+    private ScenarioCivilization[] civilizations = new ScenarioCivilization[16];
+    long errors;
+    long attacksExecuted;
+    long attacksRejected;
+    long totalPower;
+    String firstError;
+    long firstErrorLine;
+
+    Shard(int batches){
+      this.batches = batches;
+      free = new ArrayBlockingQueue<>(batches);
+      ready = new ArrayBlockingQueue<>(batches);
+      for(int i = 0; i < batches; i++){
+        free.add(new Batch());
+      }
+    }
+
+    void reset(){
+      if(fatal != null){
+        //os lotes que estavam com a thread morta sao recriados
+        ready.clear();
+        free.clear();
+        for(int i = 0; i < batches; i++){
+          free.add(new Batch());
+        }
+        fatal = null;
+      }
+      errors = 0;
+      attacksExecuted = 0;
+      attacksRejected = 0;
+      totalPower = 0;
+      firstError = null;
+    }
+
+    //Lote livre para a leitura, ou null se o shard morreu
+    Batch takeFree() throws InterruptedException {
+      while(true){
+        Batch batch = free.poll(10, TimeUnit.MILLISECONDS);
+        if(batch != null || fatal != null){
+          return batch;
+        }
+      }
+    }
+
+    ScenarioCivilization get(int localId){
+      return localId < civilizations.length ? civilizations[localId] : null;
+    }
+
+    void drain(){
+      try {
+        while(true){
+          Batch batch = ready.take();
+          boolean end = batch.end;
+          for(int i = 0; i < batch.size; i++){
+            try {
+              apply(batch, i);
+            } catch(RuntimeException e){
+              errors++;
+              if(firstError == null){
+                firstError = e.getMessage();
+                firstErrorLine = batch.lines[i];
+              }
+            }
+          }
+          batch.clear();
+          free.put(batch);
+          if(end){
+            return;
+          }
+        }
+      } catch(InterruptedException e){
+        Thread.currentThread().interrupt();
+      } catch(Throwable e){
+        //Error (ou falha fora de um comando): o shard para e a leitura e avisada por takeFree
+        fatal = e;
+      }
+    }
+
+    private void apply(Batch batch, int i){
+      int localId = batch.civilizations[i];
+      if(batch.ops[i] == CREATE){
+        if(localId >= civilizations.length){
+          civilizations = Arrays.copyOf(civilizations, Math.max(localId + 1, civilizations.length * 2));
+        }
+        civilizations[localId] = batch.created[i];
+        return;
+      }
+      ScenarioCivilization target = civilizations[localId];
+      switch(batch.ops[i]){
+        case TRAIN:
+          target.train(target.factory.train(UnitType.fromId(batch.arguments[i]), batch.seconds[i]));
+          break;
+        case UPGRADE:
+          target.addUpgrade(Upgrade.values()[batch.arguments[i]]);
+          break;
+        case STRATEGY:
+          target.setStrategy(strategies[batch.arguments[i]]);
+          break;
+        case RESOURCES:
+          target.civilization.addResources(batch.arguments[i]);
+          break;
+        case ATTACK: {
+          int power = target.civilization.attack();
+          if(power == Civilization.ATTACK_REJECTED){
+            attacksRejected++;
+          } else {
+            attacksExecuted++;
+            totalPower += power + target.armyAttack();
+          }
+          break;
+        }
+        default:
+          throw new IllegalStateException("Operação inválida: " + batch.ops[i]);
+      }
+    }
+  }
+
+  //Lote de comandos em colunas primitivas, reaproveitado entre leitura e shard
+  private static final class Batch {
+    final byte[] ops = new byte[BATCH_SIZE];
+    final int[] civilizations = new int[BATCH_SIZE];
+    final int[] arguments = new int[BATCH_SIZE];
+    final int[] seconds = new int[BATCH_SIZE];
+    final long[] lines = new long[BATCH_SIZE];
+    final ScenarioCivilization[] created = new ScenarioCivilization[BATCH_SIZE];
+    int size;
+    boolean end;
+
+    void add(byte op, int civilization, int argument, int second, ScenarioCivilization state, long line){
+      ops[size] = op;
+      civilizations[size] = civilization;
+      arguments[size] = argument;
+      seconds[size] = second;
+      created[size] = state;
+      lines[size] = line;
+      size++;
+    }
+
+    void clear(){
+      Arrays.fill(created, 0, size, null);
+      size = 0;
+      end = false;
+    }
+  }
+
+  //Nomes de civilizacao indexados pelos bytes em UTF-8, com enderecamento aberto
+  private static final class NameTable {
+    private int[] slots = new int[64];
+    private byte[][] keys = new byte[16][];
+    private int[] hashes = new int[16];
+    private String[] strings = new String[16];
+    private int size;
+
+    int size(){
+      return size;
+    }
+
+    String name(int id){
+      return strings[id];
+    }
+
+    int find(byte[] data, int offset, int length){
+      int hash = hash(data, offset, length);
+      int mask = slots.length - 1;
+      for(int slot = hash & mask; ; slot = (slot + 1) & mask){
+        int entry = slots[slot];
+        if(entry == 0){
+          return -1;
+        }
+        int id = entry - 1;
+        if(hashes[id] == hash && Arrays.equals(keys[id], 0, keys[id].length, data, offset, offset + length)){
+          return id;
+        }
+      }
+    }
+
+    int add(byte[] data, int offset, int length){
+      if(size == keys.length){
+        keys = Arrays.copyOf(keys, size * 2);
+        hashes = Arrays.copyOf(hashes, size * 2);
+        strings = Arrays.copyOf(strings, size * 2);
+      }
+      if((size + 1) * 2 > slots.length){
+        rehash(slots.length * 2);
+      }
+      int id = size++;
+      keys[id] = Arrays.copyOfRange(data, offset, offset + length);
+      hashes[id] = hash(data, offset, length);
+      strings[id] = new String(keys[id], StandardCharsets.UTF_8);
+      place(id);
+      return id;
+    }
+
+    private void rehash(int capacity){
+      slots = new int[capacity];
+      for(int id = 0; id < size; id++){
+        place(id);
+      }
+    }
+
+    private void place(int id){
+      int mask = slots.length - 1;
+      int slot = hashes[id] & mask;
+      while(slots[slot] != 0){
+        slot = (slot + 1) & mask;
+      }
+      slots[slot] = id + 1;
+    }
+
+    //FNV-1a
+    private static int hash(byte[] data, int offset, int length){
+      int hash = 0x811C9DC5;
+      for(int i = offset; i < offset + length; i++){
+        hash = (hash ^ data[i]) * 0x01000193;
+      }
+      return hash ^ (hash >>> 16);
+    }
+  }
+
+  private static boolean sameBytes(byte[] data, int from, int to, byte[] expected){
+    return Arrays.equals(data, from, to, expected, 0, expected.length);
+  }
+
+  private static byte[] ascii(String text){
+    return text.getBytes(StandardCharsets.US_ASCII);
+  }
+
+  private static byte[][] names(Enum<?>[] values){
+    byte[][] result = new byte[values.length][];
+    for(int i = 0; i < values.length; i++){
+      result[i] = ascii(values[i].name());
+    }
+    return result;
+  }
+}
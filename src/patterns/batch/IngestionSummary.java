@@ -0,0 +1,69 @@
+package patterns.batch;
+
+//Totais de uma chamada de CommandLogIngester.ingest()
+public final class IngestionSummary {
+  private final long bytes;
+  private final long commands;
+  private final long errors;
+  private final long attacksExecuted;
+  private final long attacksRejected;
+  private final long totalPower;
+  private final String firstError;
+  private final long elapsedNanos;
+
+  IngestionSummary(long bytes, long commands, long errors, long attacksExecuted, long attacksRejected,
+                   long totalPower, String firstError, long elapsedNanos){
+    this.bytes = bytes;
+    this.commands = commands;
+    this.errors = errors;
+    this.attacksExecuted = attacksExecuted;
+    this.attacksRejected = attacksRejected;
+    this.totalPower = totalPower;
+    this.firstError = firstError;
+    this.elapsedNanos = elapsedNanos;
+  }
+
+  public long getBytes(){
+    return bytes;
+  }
+
+  public long getCommands(){
+    return commands;
+  }
+
+  public long getErrors(){
+    return errors;
+  }
+
+  public long getAttacksExecuted(){
+    return attacksExecuted;
+  }
+
+  public long getAttacksRejected(){
+    return attacksRejected;
+  }
+
+  //Soma do poder (civilizacao + exercito) de todos os ataques executados
+  public long getTotalPower(){
+    return totalPower;
+  }
+
+  //Primeiro erro encontrado, com o numero da linha, ou null
+  public String getFirstError(){
+    return firstError;
+  }
+
+  public long getElapsedNanos(){
+    return elapsedNanos;
+  }
+
+  public double getMegabytesPerSecond(){
+    return elapsedNanos == 0 ? 0 : bytes / 1e6 / (elapsedNanos / 1e9);
+  }
+
+  @Override
+  public String toString(){
+    return String.format("%d comandos (%d erros, %d ataques, %d rejeitados) em %.2f s: %.1f MB/s",
+      commands, errors, attacksExecuted, attacksRejected, elapsedNanos / 1e9, getMegabytesPerSecond());
+  }
+}
@@ -0,0 +1,95 @@
+package patterns.batch;
+
+/**
+ * Formato das linhas de resultado do modo batch.
+ *
+ * Cada comando executado gera uma linha com: arquivo de cenario, numero da
+ * linha, comando, civilizacao, status (ok, rejeitado ou erro), valor e
+ * recursos restantes da civilizacao.
+ */
+public enum ResultFormat {
+  CSV {
+    @Override
+    public String header(){
+      return "cenario,linha,comando,civilizacao,status,valor,recursos\n";
+    }
+
+    @Override
+    void append(StringBuilder out, String scenario, int line, String command, String civilization,
+                String status, String value, long resources){
+      csv(out, scenario).append(',').append(line).append(',');
+      csv(out, command).append(',');
+      csv(out, civilization).append(',');
+      csv(out, status).append(',');
+      csv(out, value).append(',').append(resources).append('\n');
+    }
+  },
+  JSON {
+    @Override
+    public String header(){
+      return "";
+    }
+
+    @Override
+    void append(StringBuilder out, String scenario, int line, String command, String civilization,
+                String status, String value, long resources){
+      out.append("{\"cenario\":");
+      json(out, scenario).append(",\"linha\":").append(line).append(",\"comando\":");
+      json(out, command).append(",\"civilizacao\":");
+      json(out, civilization).append(",\"status\":");
+      json(out, status).append(",\"valor\":");
+      json(out, value).append(",\"recursos\":").append(resources).append("}\n");
+    }
+  };
+
+  //Primeira linha do arquivo de saida (vazia quando o formato nao tem cabecalho)
+  public abstract String header();
+
+  abstract void append(StringBuilder out, String scenario, int line, String command, String civilization,
+                       String status, String value, long resources);
+
+  //Aceita "csv" ou "json", sem diferenciar maiusculas
+  public static ResultFormat parse(String name){
+    try {
+      return valueOf(name.toUpperCase());
+    } catch(IllegalArgumentException e){
+      throw new IllegalArgumentException("Formato desconhecido: " + name + " (use csv ou json)");
+    }
+  }
+
+  private static StringBuilder csv(StringBuilder out, String text){
+    if(text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0){
+      return out.append(text);
+    }
+    out.append('"');
+    for(int i = 0; i < text.length(); i++){
+      char c = text.charAt(i);
+      if(c == '"'){
+        out.append('"');
+      }
+      out.append(c);
+    }
+    return out.append('"');
+  }
+
+  private static StringBuilder json(StringBuilder out, String text){
+    out.append('"');
+    for(int i = 0; i < text.length(); i++){
+      char c = text.charAt(i);
+      switch(c){
+        case '"': out.append("\\\""); break;
+        case '\\': out.append("\\\\"); break;
+        case '\n': out.append("\\n"); break;
+        case '\r': out.append("\\r"); break;
+        case '\t': out.append("\\t"); break;
+        default:
+          if(c < 0x20){
+            out.append(String.format("\\u%04x", (int) c));
+          } else {
+            out.append(c);
+          }
+      }
+    }
+    return out.append('"');
+  }
+}
@@ -0,0 +1,85 @@
+package patterns.batch;
+
+import java.util.Arrays;
+
+import patterns.decorator.upgrades.Upgrade;
+import patterns.factory.Squad;
+import patterns.factory.TroopFactory;
+import patterns.factory.TroopTemplate;
+import patterns.strategy.AttackStrategy;
+import patterns.strategy.Civilization;
+
+/**
+ * Civilizacao de um cenario ou log de comandos: a Civilization, a fabrica
+ * das suas unidades, o exercito treinado e os upgrades (que valem para o
+ * exercito inteiro). Usada por uma unica thread por vez.
+ *
+ * O exercito e guardado como quantidade por TroopTemplate, e nao uma linha
+ * por tropa: um treino de milhoes de unidades ocupa o mesmo espaco que um
+ * de uma, e o ataque efetivo e o mesmo que o do CombatKernel sobre as
+ * tropas uma a uma.
+ */
+final class ScenarioCivilization {
+  final Civilization civilization;
+  final TroopFactory factory;
+  //Templates distintos ja treinados e a quantidade de cada um (poucos: um por tipo de unidade)
+  private TroopTemplate[] templates = new TroopTemplate[0];
+  private long[] counts = new long[0];
+  private long troopCount;
+  //Soma dos bonus de ataque dos upgrades aplicados
+  private int attackBonus;
+  //Ataque efetivo do exercito, mantido a cada treino; recalculado apos upgrade ou troca de estrategia
+  private long armyAttack;
+  private boolean armyAttackValid = true;
+
+  ScenarioCivilization(Civilization civilization, TroopFactory factory){
+    this.civilization = civilization;
+    this.factory = factory;
+  }
+
+  void train(Squad squad){
+    TroopTemplate template = squad.getTemplate();
+    int index = 0;
+    while(index < templates.length && templates[index] != template){
+      index++;
+    }
+    if(index == templates.length){
+      templates = Arrays.copyOf(templates, index + 1);
+      counts = Arrays.copyOf(counts, index + 1);
+      templates[index] = template;
+    }
+    counts[index] += squad.size();
+    troopCount += squad.size();
+    if(armyAttackValid){
+      AttackStrategy strategy = civilization.getStrategy();
+      armyAttack += (long) squad.size() * strategy.attackPower(template.getAttack() + attackBonus);
+    }
+  }
+
+  long troopCount(){
+    return troopCount;
+  }
+
+  void addUpgrade(Upgrade upgrade){
+    attackBonus += upgrade.getAttackBonus();
+    armyAttackValid = false;
+  }
+
+  void setStrategy(AttackStrategy strategy){
+    civilization.setStrategy(strategy);
+    armyAttackValid = false;
+  }
+
+  long armyAttack(){
+    if(!armyAttackValid){
+      AttackStrategy strategy = civilization.getStrategy();
+      long total = 0;
+      for(int i = 0; i < templates.length; i++){
+        total += counts[i] * strategy.attackPower(templates[i].getAttack() + attackBonus);
+      }
+      armyAttack = total;
+      armyAttackValid = true;
+    }
+    return armyAttack;
+  }
+}
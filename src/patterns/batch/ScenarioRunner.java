@@ -0,0 +1,290 @@
+package patterns.batch;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import patterns.decorator.upgrades.Upgrade;
+import patterns.events.EventSink;
+import patterns.events.NoOpEventSink;
+import patterns.factory.TroopFactory;
+import patterns.factory.UnitType;
+import patterns.factory.registry.UnitRegistry;
+import patterns.strategy.AttackStrategy;
+import patterns.strategy.Civilization;
+import patterns.strategy.StrategyRegistry;
+import patterns.strategy.strategies.BalancedStrategy;
+
+/**
+ * Executa arquivos de cenario sem saida no console, gravando uma linha de
+ * resultado por comando (ver ResultFormat).
+ *
+ * Cada arquivo tem o seu proprio estado e e executado inteiro por uma
+ * thread; arquivos diferentes rodam em paralelo. Os resultados sao
+ * acumulados por arquivo e enviados ao Writer em blocos, entao linhas de
+ * arquivos diferentes podem se intercalar (cada uma traz o nome do cenario).
+ *
+ * Comandos (um por linha, '#' inicia comentario):
+ * <pre>
+ * civ &lt;nome&gt; &lt;civilizacao das unidades&gt; &lt;recursos&gt; [estrategia]
+ * train &lt;nome&gt; &lt;ARCHER|SWORDSMAN|KNIGHT&gt; &lt;quantidade&gt;
+ * upgrade &lt;nome&gt; &lt;ARMOR|WEAPON|ELITE|VETERAN&gt;
+ * strategy &lt;nome&gt; &lt;estrategia&gt;
+ * resources &lt;nome&gt; &lt;quantidade&gt;
+ * attack &lt;nome&gt;
+ * </pre>
+ * A civilizacao das unidades e procurada no UnitRegistry; os upgrades
+ * valem para todo o exercito da civilizacao.
+ */
+public class ScenarioRunner {
+  private static final int FLUSH_THRESHOLD = 1 << 16;
+
+  private final UnitRegistry units;
+  private final StrategyRegistry strategies;
+  private final ResultFormat format;
+  private final int threads;
+  private EventSink events = NoOpEventSink.INSTANCE;
+
+  public ScenarioRunner(UnitRegistry units, StrategyRegistry strategies, ResultFormat format, int threads){
+    if(threads <= 0){
+      throw new IllegalArgumentException("Número de threads deve ser positivo: " + threads);
+    }
+    this.units = units;
+    this.strategies = strategies;
+    this.format = format;
+    this.threads = threads;
+  }
+
+  /**
+   * Define para onde vao os eventos das civilizacoes criadas pelos
+   * cenarios (por padrao ficam desligados). O sink e passado a cada
+   * Civilization, sem trocar o global de Events, entao execucoes
+   * simultaneas com sinks diferentes nao se misturam. Nao e fechado aqui.
+   */
+  public void setEventSink(EventSink events){
+    if(events == null){
+      throw new IllegalArgumentException("EventSink não pode ser nulo");
+    }
+    this.events = events;
+  }
+
+  /**
+   * Executa os cenarios e grava os resultados em out, que nao e fechado.
+   * Os eventos das civilizacoes vao para o sink de setEventSink; o global
+   * de Events nao e alterado.
+   */
+  public BatchSummary run(List<Path> scenarios, Writer out) throws IOException {
+    long start = System.nanoTime();
+    AtomicLong commands = new AtomicLong();
+    AtomicLong errors = new AtomicLong();
+    out.write(format.header());
+    EventSink events = this.events;
+    ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, scenarios.size())));
+    try {
+      List<Future<?>> pending = new ArrayList<>(scenarios.size());
+      for(Path scenario : scenarios){
+        pending.add(pool.submit(() -> {
+          runScenario(scenario, out, events, commands, errors);
+          return null;
+        }));
+      }
+      for(Future<?> future : pending){
+        future.get();
+      }
+    } catch(InterruptedException e){
+      Thread.currentThread().interrupt();
+      throw new IOException("Execução em lote interrompida", e);
+    } catch(ExecutionException e){
+      Throwable cause = e.getCause();
+      if(cause instanceof UncheckedIOException){
+        throw ((UncheckedIOException) cause).getCause();
+      }
+      throw new IOException("Falha ao executar cenário", cause);
+    } finally {
+      pool.shutdownNow();
+    }
+    out.flush();
+    return new BatchSummary(scenarios.size(), commands.get(), errors.get(), System.nanoTime() - start);
+  }
+
+  private void runScenario(Path path, Writer out, EventSink events, AtomicLong commands, AtomicLong errors){
+    String scenario = path.toString();
+    StringBuilder buffer = new StringBuilder(FLUSH_THRESHOLD + 256);
+    State state = new State(events);
+    long executed = 0;
+    long failed = 0;
+    try(BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)){
+      String line;
+      int number = 0;
+      while((line = reader.readLine()) != null){
+        number++;
+        int comment = line.indexOf('#');
+        String text = (comment < 0 ? line : line.substring(0, comment)).trim();
+        if(text.isEmpty()){
+          continue;
+        }
+        executed++;
+        String[] fields = tokenize(text);
+        try {
+          execute(state, fields, buffer, scenario, number);
+        } catch(RuntimeException e){
+          failed++;
+          format.append(buffer, scenario, number, fields[0], fields.length > 1 ? fields[1] : "", "erro", String.valueOf(e.getMessage()), 0);
+        }
+        if(buffer.length() >= FLUSH_THRESHOLD){
+          flush(buffer, out);
+        }
+      }
+    } catch(IOException e){
+      failed++;
+      format.append(buffer, scenario, 0, "", "", "erro", "Não foi possível ler o cenário: " + e.getMessage(), 0);
+    } finally {
+      flush(buffer, out);
+      commands.addAndGet(executed);
+      errors.addAndGet(failed);
+    }
+  }
+
+  private void execute(State state, String[] fields, StringBuilder buffer, String scenario, int number){
+    String command = fields[0].toLowerCase();
+    switch(command){
+      case "civ": {
+        arguments(fields, 4, 5);
+        if(state.civilizations.containsKey(fields[1])){
+          throw new IllegalArgumentException("Civilização já declarada: " + fields[1]);
+        }
+        TroopFactory factory = units.factory(fields[2]);
+        AttackStrategy strategy = fields.length == 5 ? strategies.get(fields[4]) : new BalancedStrategy();
+        Civilization civilization = new Civilization(fields[1], Integer.parseInt(fields[3]), strategy, state.events);
+        ScenarioCivilization created = new ScenarioCivilization(civilization, factory);
+        state.civilizations.put(fields[1], created);
+        ok(buffer, scenario, number, command, created, civilization.getStrategy().getName());
+        return;
+      }
+      case "train": {
+        arguments(fields, 4, 4);
+        ScenarioCivilization target = state.get(fields[1]);
+        int count = Integer.parseInt(fields[3]);
+        target.train(target.factory.train(UnitType.valueOf(fields[2]), count));
+        ok(buffer, scenario, number, command, target, String.valueOf(target.troopCount()));
+        return;
+      }
+      case "upgrade": {
+        arguments(fields, 3, 3);
+        ScenarioCivilization target = state.get(fields[1]);
+        target.addUpgrade(Upgrade.valueOf(fields[2]));
+        ok(buffer, scenario, number, command, target, String.valueOf(target.armyAttack()));
+        return;
+      }
+      case "strategy": {
+        arguments(fields, 3, 3);
+        ScenarioCivilization target = state.get(fields[1]);
+        target.setStrategy(strategies.get(fields[2]));
+        ok(buffer, scenario, number, command, target, fields[2]);
+        return;
+      }
+      case "resources": {
+        arguments(fields, 3, 3);
+        ScenarioCivilization target = state.get(fields[1]);
+        target.civilization.addResources(Integer.parseInt(fields[2]));
+        ok(buffer, scenario, number, command, target, fields[2]);
+        return;
+      }
+      case "attack": {
+        arguments(fields, 2, 2);
+        ScenarioCivilization target = state.get(fields[1]);
+        int power = target.civilization.attack();
+        if(power == Civilization.ATTACK_REJECTED){
+          format.append(buffer, scenario, number, command, target.civilization.getName(), "rejeitado", "0",
+            target.civilization.getResources());
+          return;
+        }
+        //poder da civilizacao somado ao ataque efetivo do exercito
+        ok(buffer, scenario, number, command, target, String.valueOf(power + target.armyAttack()));
+        return;
+      }
+      default:
+        throw new IllegalArgumentException("Comando desconhecido: " + fields[0]);
+    }
+  }
+
+  private void ok(StringBuilder buffer, String scenario, int number, String command, ScenarioCivilization target, String value){
+    format.append(buffer, scenario, number, command, target.civilization.getName(), "ok", value, target.civilization.getResources());
+  }
+
+  //Separa por espacos sem passar pelo motor de regex de String.split
+  private static String[] tokenize(String text){
+    String[] fields = new String[6];
+    int count = 0;
+    int i = 0;
+    int length = text.length();
+    while(i < length){
+      while(i < length && Character.isWhitespace(text.charAt(i))){
+        i++;
+      }
+      int start = i;
+      while(i < length && !Character.isWhitespace(text.charAt(i))){
+        i++;
+      }
+      if(start < i){
+        if(count == fields.length){
+          fields = Arrays.copyOf(fields, count * 2);
+        }
+        fields[count++] = text.substring(start, i);
+      }
+    }
+    return count == fields.length ? fields : Arrays.copyOf(fields, count);
+  }
+
+  private static void arguments(String[] fields, int min, int max){
+    if(fields.length < min || fields.length > max){
+      throw new IllegalArgumentException(fields[0] + " espera " + (min == max ? min - 1 : (min - 1) + " a " + (max - 1)) + " argumentos");
+    }
+  }
+
+  private static void flush(StringBuilder buffer, Writer out){
+    if(buffer.length() == 0){
+      return;
+    }
+    try {
+      synchronized(out){
+        out.append(buffer);
+      }
+    } catch(IOException e){
+      throw new UncheckedIOException(e);
+    }
+    buffer.setLength(0);
+  }
+
+  //Estado de um arquivo de cenario
+  private static final class State {
+    final Map<String, ScenarioCivilization> civilizations = new HashMap<>();
+    final EventSink events;
+
+    State(EventSink events){
+      this.events = events;
+    }
+
+    ScenarioCivilization get(String name){
+      ScenarioCivilization state = civilizations.get(name);
+      if(state == null){
+        throw new IllegalArgumentException("Civilização não declarada: " + name);
+      }
+      return state;
+    }
+  }
+}
@@ -1,5 +1,8 @@
 package patterns.decorator;
 
+import patterns.events.EventSink;
+import patterns.events.Events;
+
 public class BasicTroop implements TroopComponent {
   private final  String name;
   private final int attack;
@@ -33,11 +36,26 @@ public class BasicTroop implements TroopComponent {
     return name;
   }
 
+  //Uma tropa basica ja e plana, nao ha nada a compilar
+  @Override
+  public TroopComponent compile(){
+    return this;
+  }
+
   @Override
   public void display(){
-    System.out.println("TROPA: " + String.format("%-30s", getDescription()) );
-    System.out.println("Ataque: " + String.format("%-27d", getAttack()) );
-    System.out.println("Defesa: " + String.format("%-27d", getDefense()) );
-    System.out.println("Custo: " + String.format("%-29d", getCost()) );
+    display(this);
+  }
+
+  //Formato de exibicao compartilhado pelos componentes que guardam seus proprios atributos
+  static void display(TroopComponent troop){
+    EventSink events = Events.sink();
+    if(!events.isEnabled()){
+      return;
+    }
+    events.info("TROPA: " + String.format("%-30s", troop.getDescription()) );
+    events.info("Ataque: " + String.format("%-27d", troop.getAttack()) );
+    events.info("Defesa: " + String.format("%-27d", troop.getDefense()) );
+    events.info("Custo: " + String.format("%-29d", troop.getCost()) );
   }
 }
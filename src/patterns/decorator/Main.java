@@ -64,6 +64,12 @@ public class Main {
         TroopComponent fullUpgrade = new EliteTraining(withWeapon);
         System.out.println("Totalmente aprimorado: " + fullUpgrade.getCost() + " ouro");
         
+        // Compilando a cadeia em um snapshot plano
+        System.out.println("\n\n=== CADEIA COMPILADA ===");
+        TroopComponent compiled = fullUpgrade.compile();
+        System.out.println("Cadeia original: " + fullUpgrade.getAttack() + "/" + fullUpgrade.getDefense() + "/" + fullUpgrade.getCost());
+        System.out.println("Snapshot:        " + compiled.getAttack() + "/" + compiled.getDefense() + "/" + compiled.getCost());
+        
         // Demonstrando a flexibilidade do padrão
         System.out.println("\n\n=== FLEXIBILIDADE DO DECORATOR ===");
         System.out.println("O padrão Decorator permite:");
@@ -6,4 +6,13 @@ public interface TroopComponent {
   int getCost();
   String getDescription();
   void display();
+
+  /**
+   * Compila a cadeia de decoradores em um componente imutavel com os
+   * atributos ja somados, de modo que cada leitura custe O(1).
+   * @return componente com os mesmos valores e descricao da cadeia original
+   */
+  default TroopComponent compile(){
+    return new BasicTroop(getDescription(), getAttack(), getDefense(), getCost());
+  }
 }
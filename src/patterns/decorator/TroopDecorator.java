@@ -1,10 +1,37 @@
 package patterns.decorator;
 
+import patterns.metrics.Metrics;
+
 public class TroopDecorator implements TroopComponent{
-  protected TroopComponent wrappedTroop;
+  //Subclasses que ainda sobrescrevem getDescription(); a montagem em lote para nelas e usa o texto delas
+  private static final ClassValue<Boolean> OVERRIDES_DESCRIPTION = new ClassValue<>() {
+    @Override
+    protected Boolean computeValue(Class<?> type){
+      try {
+        return type.getMethod("getDescription").getDeclaringClass() != TroopDecorator.class;
+      } catch(NoSuchMethodException e){
+        throw new IllegalStateException(e);
+      }
+    }
+  };
+
+  protected final TroopComponent wrappedTroop;
+  //Quantidade de decoradores na cadeia, contando este
+  private final int depth;
+  //Snapshot da cadeia; um novo upgrade cria um novo decorador externo sem cache
+  private TroopComponent compiled;
+  //Descricao montada uma unica vez, na primeira leitura
+  private String description;
+  //Profundidade ja enviada as metricas; corrida benigna: no pior caso a cadeia e contada duas vezes
+  private boolean depthRecorded;
 
   public TroopDecorator(TroopComponent troop){
     this.wrappedTroop = troop;
+    this.depth = troop instanceof TroopDecorator ? ((TroopDecorator) troop).depth + 1 : 1;
+  }
+
+  public int getDepth(){
+    return depth;
   }
 
   @Override
@@ -22,13 +49,100 @@ public class TroopDecorator implements TroopComponent{
     return wrappedTroop.getCost();
   }
   
+  /**
+   * Monta a descricao da cadeia inteira em um unico StringBuilder e a guarda
+   * neste decorador. Os decoradores internos nao materializam suas proprias
+   * descricoes, entao cadeias profundas custam O(tamanho do texto).
+   * Subclasses definem seu trecho em getDescriptionSuffix(). Decoradores
+   * antigos que sobrescrevem getDescription() continuam funcionando: a
+   * montagem usa o texto deles para a parte da cadeia que envolvem, sem o
+   * cache.
+   */
   @Override
   public String getDescription(){
-    return wrappedTroop.getDescription();
+    recordDepth();
+    String cached = description;
+    if(cached == null){
+      cached = buildDescription();
+      description = cached;
+    }
+    return cached;
   }
 
+  //Trecho acrescentado por este decorador a descricao da tropa envolvida
+  protected String getDescriptionSuffix(){
+    return "";
+  }
+
+  private String buildDescription(){
+    int depth = 0;
+    TroopComponent current = this;
+    String prefix = null;
+    while(current instanceof TroopDecorator){
+      if(current != this && OVERRIDES_DESCRIPTION.get(current.getClass())){
+        //A camada interna e lida como parte desta cadeia; sua profundidade nao conta de novo
+        ((TroopDecorator) current).depthRecorded = true;
+        prefix = current.getDescription();
+        break;
+      }
+      String known = ((TroopDecorator) current).description;
+      if(known != null){
+        prefix = known;
+        break;
+      }
+      depth++;
+      current = ((TroopDecorator) current).wrappedTroop;
+    }
+    if(prefix == null){
+      prefix = current.getDescription();
+    }
+    TroopDecorator[] layers = new TroopDecorator[depth];
+    current = this;
+    for(int i = 0; i < depth; i++){
+      layers[i] = (TroopDecorator) current;
+      current = layers[i].wrappedTroop;
+    }
+    StringBuilder builder = new StringBuilder(prefix);
+    for(int i = depth - 1; i >= 0; i--){
+      builder.append(layers[i].getDescriptionSuffix());
+    }
+    return builder.toString();
+  }
+
+  @Override
+  public TroopComponent compile(){
+    recordDepth();
+    TroopComponent snapshot = compiled;
+    if(snapshot == null){
+      snapshot = TroopComponent.super.compile();
+      compiled = snapshot;
+    }
+    return snapshot;
+  }
+
+  //Exibe os atributos da cadeia completa, nao apenas os da tropa envolvida
   @Override
   public void display(){
-    wrappedTroop.display();
+    recordDepth();
+    BasicTroop.display(this);
+  }
+
+  /**
+   * Envia a profundidade as metricas na primeira leitura da cadeia como um
+   * todo (compile, getDescription ou display), compilada ou nao. Os
+   * atributos numericos nao contam: cada decorador os repassa ao envolvido,
+   * e por eles nao da para saber qual camada e o topo da cadeia, entao cada
+   * nivel intermediario seria contado. Uma cadeia so lida pelos atributos
+   * numericos nunca tem a profundidade registrada.
+   */
+  private void recordDepth(){
+    if(depthRecorded){
+      return;
+    }
+    Metrics metrics = Metrics.get();
+    if(metrics.isEnabled()){
+      depthRecorded = true;
+      metrics.decoratorDepth(depth);
+    }
   }
 }
@@ -0,0 +1,143 @@
+package patterns.decorator;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import patterns.decorator.upgrades.Upgrade;
+
+/**
+ * Cache das combinacoes de upgrades ja resolvidas.
+ *
+ * A chave e formada pelos atributos da tropa base e pela sequencia ordenada
+ * de upgrades; o valor e o snapshot compilado da cadeia de decoradores.
+ * O cache e dividido em segmentos LRU independentes, cada um com seu
+ * proprio lock, para que threads diferentes raramente disputem o mesmo.
+ */
+public class UpgradeCache {
+  private static final int SEGMENTS = 16;
+
+  private final Segment[] segments = new Segment[SEGMENTS];
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * @param maximumSize numero maximo de combinacoes guardadas (arredondado
+   * para cima ate um multiplo do numero de segmentos)
+   */
+  public UpgradeCache(int maximumSize){
+    if(maximumSize < SEGMENTS){
+      throw new IllegalArgumentException("Tamanho máximo deve ser pelo menos " + SEGMENTS + ": " + maximumSize);
+    }
+    int perSegment = (maximumSize + SEGMENTS - 1) / SEGMENTS;
+    for(int i = 0; i < SEGMENTS; i++){
+      segments[i] = new Segment(perSegment);
+    }
+  }
+
+  public TroopComponent resolve(BasicTroop base, Upgrade... upgrades){
+    return resolve(base.getDescription(), base.getAttack(), base.getDefense(), base.getCost(), upgrades);
+  }
+
+  /**
+   * Retorna a tropa base com os upgrades aplicados na ordem informada.
+   * @return componente imutavel com atributos e descricao ja resolvidos
+   */
+  public TroopComponent resolve(String name, int attack, int defense, int cost, Upgrade... upgrades){
+    if(upgrades.length > Upgrade.MAX_PACKED_UPGRADES){
+      misses.increment();
+      return build(name, attack, defense, cost, upgrades);
+    }
+    Key key = new Key(name, attack, defense, cost, encode(upgrades));
+    Segment segment = segments[spread(key.hashCode()) & (SEGMENTS - 1)];
+    TroopComponent cached;
+    synchronized(segment){
+      cached = segment.get(key);
+    }
+    if(cached != null){
+      hits.increment();
+      return cached;
+    }
+    misses.increment();
+    //A resolucao roda fora do lock; duas threads podem resolver a mesma chave, com o mesmo resultado
+    TroopComponent resolved = build(name, attack, defense, cost, upgrades);
+    synchronized(segment){
+      segment.put(key, resolved);
+    }
+    return resolved;
+  }
+
+  public long getHitCount(){
+    return hits.sum();
+  }
+
+  public long getMissCount(){
+    return misses.sum();
+  }
+
+  public long getEvictionCount(){
+    return evictions.sum();
+  }
+
+  public int size(){
+    int size = 0;
+    for(Segment segment : segments){
+      synchronized(segment){
+        size += segment.size();
+      }
+    }
+    return size;
+  }
+
+  public void clear(){
+    for(Segment segment : segments){
+      synchronized(segment){
+        segment.clear();
+      }
+    }
+  }
+
+  private static TroopComponent build(String name, int attack, int defense, int cost, Upgrade[] upgrades){
+    TroopComponent troop = new BasicTroop(name, attack, defense, cost);
+    for(Upgrade upgrade : upgrades){
+      troop = upgrade.applyTo(troop);
+    }
+    return troop.compile();
+  }
+
+  private static long encode(Upgrade[] upgrades){
+    long encoded = 0;
+    for(Upgrade upgrade : upgrades){
+      encoded = Upgrade.append(encoded, upgrade);
+    }
+    return encoded;
+  }
+
+  private static int spread(int hash){
+    return hash ^ (hash >>> 16);
+  }
+
+  private record Key(String name, int attack, int defense, int cost, long upgrades){
+  }
+
+  private final class Segment extends LinkedHashMap<Key, TroopComponent> {
+    private static final long serialVersionUID = 1L;
+
+    private final int capacity;
+
+    Segment(int capacity){
+      super(16, 0.75f, true);
+      this.capacity = capacity;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Key, TroopComponent> eldest){
+      if(size() > capacity){
+        evictions.increment();
+        return true;
+      }
+      return false;
+    }
+  }
+}
@@ -0,0 +1,194 @@
+package patterns.decorator;
+
+import patterns.decorator.upgrades.Upgrade;
+
+/**
+ * Alternativa compacta a uma cadeia de decoradores.
+ *
+ * Em vez de um objeto por upgrade, guarda a sequencia ordenada de upgrades
+ * empacotada em um long e os atributos ja somados a partir da tabela do
+ * enum Upgrade. O resultado (atributos e descricao) e o mesmo de empilhar
+ * os decoradores na mesma ordem, e a memoria por tropa e constante.
+ */
+public final class UpgradedTroop implements TroopComponent {
+  private final String name;
+  private final int baseAttack;
+  private final int baseDefense;
+  private final int baseCost;
+  private final long upgrades;
+  private final int upgradeCount;
+  private final int upgradeMask;
+  private final int attack;
+  private final int defense;
+  private final int cost;
+  private String description;
+
+  public UpgradedTroop(String name, int attack, int defense, int cost){
+    this(name, attack, defense, cost, 0L, 0);
+  }
+
+  private UpgradedTroop(String name, int baseAttack, int baseDefense, int baseCost, long upgrades, int upgradeCount){
+    this.name = name;
+    this.baseAttack = baseAttack;
+    this.baseDefense = baseDefense;
+    this.baseCost = baseCost;
+    this.upgrades = upgrades;
+    this.upgradeCount = upgradeCount;
+    int attack = baseAttack;
+    int defense = baseDefense;
+    int cost = baseCost;
+    int mask = 0;
+    for(int i = 0; i < upgradeCount; i++){
+      Upgrade upgrade = Upgrade.unpack(upgrades, upgradeCount, i);
+      attack += upgrade.getAttackBonus();
+      defense += upgrade.getDefenseBonus();
+      cost += upgrade.getCostBonus();
+      mask |= upgrade.bit();
+    }
+    this.attack = attack;
+    this.defense = defense;
+    this.cost = cost;
+    this.upgradeMask = mask;
+  }
+
+  /**
+   * Recria uma tropa a partir de uma sequencia de upgrades ja empacotada
+   * (ver Upgrade.append), por exemplo lida de um arquivo.
+   */
+  public static UpgradedTroop of(String name, int baseAttack, int baseDefense, int baseCost, long packedUpgrades, int upgradeCount){
+    if(upgradeCount < 0 || upgradeCount > Upgrade.MAX_PACKED_UPGRADES){
+      throw new IllegalArgumentException("Quantidade de upgrades inválida: " + upgradeCount);
+    }
+    return new UpgradedTroop(name, baseAttack, baseDefense, baseCost, packedUpgrades, upgradeCount);
+  }
+
+  /**
+   * Converte uma cadeia de decoradores (ou uma tropa basica) para a forma compacta.
+   * @throws IllegalArgumentException se a cadeia tiver um decorador fora do registro Upgrade
+   */
+  public static UpgradedTroop from(TroopComponent troop){
+    if(troop instanceof UpgradedTroop){
+      return (UpgradedTroop) troop;
+    }
+    Upgrade[] reversed = new Upgrade[Upgrade.MAX_PACKED_UPGRADES];
+    int count = 0;
+    TroopComponent current = troop;
+    while(current instanceof TroopDecorator){
+      Upgrade upgrade = Upgrade.of(current);
+      if(upgrade == null){
+        throw new IllegalArgumentException("Decorador não registrado em Upgrade: " + current.getClass().getName());
+      }
+      if(count == reversed.length){
+        throw new IllegalArgumentException("Cadeia com mais de " + Upgrade.MAX_PACKED_UPGRADES + " upgrades");
+      }
+      reversed[count++] = upgrade;
+      current = ((TroopDecorator) current).wrappedTroop;
+    }
+    UpgradedTroop result = current instanceof UpgradedTroop
+      ? (UpgradedTroop) current
+      : new UpgradedTroop(current.getDescription(), current.getAttack(), current.getDefense(), current.getCost());
+    for(int i = count - 1; i >= 0; i--){
+      result = result.with(reversed[i]);
+    }
+    return result;
+  }
+
+  //Retorna uma nova tropa com o upgrade aplicado por cima dos atuais
+  public UpgradedTroop with(Upgrade upgrade){
+    if(upgradeCount == Upgrade.MAX_PACKED_UPGRADES){
+      throw new IllegalStateException("Limite de " + Upgrade.MAX_PACKED_UPGRADES + " upgrades atingido");
+    }
+    return new UpgradedTroop(name, baseAttack, baseDefense, baseCost, Upgrade.append(upgrades, upgrade), upgradeCount + 1);
+  }
+
+  //Reconstroi a cadeia de decoradores equivalente
+  public TroopComponent toDecoratorChain(){
+    TroopComponent troop = new BasicTroop(name, baseAttack, baseDefense, baseCost);
+    for(int i = 0; i < upgradeCount; i++){
+      troop = Upgrade.unpack(upgrades, upgradeCount, i).applyTo(troop);
+    }
+    return troop;
+  }
+
+  public boolean has(Upgrade upgrade){
+    return (upgradeMask & upgrade.bit()) != 0;
+  }
+
+  //Conjunto dos upgrades aplicados, um bit por Upgrade (sem ordem nem repeticoes)
+  public int getUpgradeMask(){
+    return upgradeMask;
+  }
+
+  public int getUpgradeCount(){
+    return upgradeCount;
+  }
+
+  public Upgrade getUpgrade(int index){
+    if(index < 0 || index >= upgradeCount){
+      throw new IndexOutOfBoundsException("Upgrade " + index + " fora de " + upgradeCount);
+    }
+    return Upgrade.unpack(upgrades, upgradeCount, index);
+  }
+
+  public String getName(){
+    return name;
+  }
+
+  public int getBaseAttack(){
+    return baseAttack;
+  }
+
+  public int getBaseDefense(){
+    return baseDefense;
+  }
+
+  public int getBaseCost(){
+    return baseCost;
+  }
+
+  //Sequencia ordenada de upgrades empacotada (ver Upgrade.append)
+  public long getPackedUpgrades(){
+    return upgrades;
+  }
+
+  @Override
+  public int getAttack(){
+    return attack;
+  }
+
+  @Override
+  public int getDefense(){
+    return defense;
+  }
+
+  @Override
+  public int getCost(){
+    return cost;
+  }
+
+  //Montada na primeira leitura e guardada
+  @Override
+  public String getDescription(){
+    String cached = description;
+    if(cached == null){
+      StringBuilder builder = new StringBuilder(name);
+      for(int i = 0; i < upgradeCount; i++){
+        builder.append(Upgrade.unpack(upgrades, upgradeCount, i).getDescriptionSuffix());
+      }
+      cached = builder.toString();
+      description = cached;
+    }
+    return cached;
+  }
+
+  //Os atributos ja estao somados, nao ha cadeia a compilar
+  @Override
+  public TroopComponent compile(){
+    return this;
+  }
+
+  @Override
+  public void display(){
+    BasicTroop.display(this);
+  }
+}
@@ -0,0 +1,113 @@
+package patterns.decorator.tech;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import patterns.decorator.upgrades.Upgrade;
+import patterns.factory.UnitType;
+
+/**
+ * Snapshot imutavel das tecnologias pesquisadas.
+ *
+ * Para cada (civilizacao, tipo de unidade) guarda os bonus somados de todos
+ * os upgrades pesquisados e os bits desses upgrades (Upgrade.bit()), em
+ * arrays densos indexados por civilizationId * UnitType.count() + tipo.
+ * Cada pesquisa gera um novo snapshot com versao maior; quem le um
+ * snapshot ve todos os bonus de uma pesquisa ou nenhum.
+ */
+public final class ModifierTable {
+  static final ModifierTable EMPTY = new ModifierTable(0, new HashMap<>(), new String[0],
+    new int[0], new int[0], new int[0], new int[0]);
+
+  private final long version;
+  private final Map<String, Integer> civilizationIds;
+  private final String[] civilizationNames;
+  private final int[] attack;
+  private final int[] defense;
+  private final int[] cost;
+  private final int[] upgrades;
+
+  private ModifierTable(long version, Map<String, Integer> civilizationIds, String[] civilizationNames,
+                        int[] attack, int[] defense, int[] cost, int[] upgrades){
+    this.version = version;
+    this.civilizationIds = civilizationIds;
+    this.civilizationNames = civilizationNames;
+    this.attack = attack;
+    this.defense = defense;
+    this.cost = cost;
+    this.upgrades = upgrades;
+  }
+
+  /**
+   * Novo snapshot com o upgrade pesquisado; custa O(civilizacoes x tipos),
+   * independente do numero de tropas.
+   */
+  ModifierTable withResearch(String civilization, UnitType type, Upgrade upgrade){
+    Map<String, Integer> ids = civilizationIds;
+    String[] names = civilizationNames;
+    Integer id = ids.get(civilization);
+    if(id == null){
+      ids = new HashMap<>(civilizationIds);
+      id = names.length;
+      ids.put(civilization, id);
+      names = Arrays.copyOf(names, id + 1);
+      names[id] = civilization;
+    }
+    int length = names.length * UnitType.count();
+    int[] attack = Arrays.copyOf(this.attack, length);
+    int[] defense = Arrays.copyOf(this.defense, length);
+    int[] cost = Arrays.copyOf(this.cost, length);
+    int[] upgrades = Arrays.copyOf(this.upgrades, length);
+    int slot = id * UnitType.count() + type.ordinal();
+    attack[slot] += upgrade.getAttackBonus();
+    defense[slot] += upgrade.getDefenseBonus();
+    cost[slot] += upgrade.getCostBonus();
+    upgrades[slot] |= upgrade.bit();
+    return new ModifierTable(version + 1, ids, names, attack, defense, cost, upgrades);
+  }
+
+  public long getVersion(){
+    return version;
+  }
+
+  //Id da civilizacao nesta tabela, ou -1 se ela ainda nao pesquisou nada
+  public int civilizationId(String name){
+    Integer id = civilizationIds.get(name);
+    return id == null ? -1 : id;
+  }
+
+  public int civilizationCount(){
+    return civilizationNames.length;
+  }
+
+  public String civilizationName(int civilizationId){
+    return civilizationNames[civilizationId];
+  }
+
+  //Os getters abaixo aceitam civilizationId -1 (sem tecnologias) e retornam zero
+  public int attackBonus(int civilizationId, UnitType type){
+    return civilizationId < 0 ? 0 : attack[civilizationId * UnitType.count() + type.ordinal()];
+  }
+
+  public int defenseBonus(int civilizationId, UnitType type){
+    return civilizationId < 0 ? 0 : defense[civilizationId * UnitType.count() + type.ordinal()];
+  }
+
+  public int costBonus(int civilizationId, UnitType type){
+    return civilizationId < 0 ? 0 : cost[civilizationId * UnitType.count() + type.ordinal()];
+  }
+
+  public int upgrades(int civilizationId, UnitType type){
+    return civilizationId < 0 ? 0 : upgrades[civilizationId * UnitType.count() + type.ordinal()];
+  }
+
+  public boolean isResearched(String civilization, UnitType type, Upgrade upgrade){
+    return (upgrades(civilizationId(civilization), type) & upgrade.bit()) != 0;
+  }
+
+  @Override
+  public String toString(){
+    return "ModifierTable[versão " + version + ", " + civilizationNames.length + " civilizações]";
+  }
+}
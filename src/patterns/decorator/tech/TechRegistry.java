@@ -0,0 +1,45 @@
+package patterns.decorator.tech;
+
+import patterns.decorator.upgrades.Upgrade;
+import patterns.factory.Troop;
+import patterns.factory.UnitType;
+
+/**
+ * Tecnologias pesquisadas por civilizacao.
+ *
+ * Pesquisar um upgrade para um tipo de unidade vale para todas as tropas
+ * daquele tipo da civilizacao, ja existentes ou futuras, sem decorar
+ * nenhuma delas: as leituras de atributos (TechTroop, CombatKernel)
+ * consultam o ModifierTable atual. A tabela e trocada inteira a cada
+ * pesquisa (copy-on-write), entao leitores nunca veem uma pesquisa pela
+ * metade e nao precisam de lock.
+ */
+public class TechRegistry {
+  private volatile ModifierTable table = ModifierTable.EMPTY;
+
+  /**
+   * Pesquisa o upgrade para o tipo de unidade da civilizacao.
+   * @return false se ele ja tinha sido pesquisado
+   */
+  public synchronized boolean research(String civilization, UnitType type, Upgrade upgrade){
+    if(table.isResearched(civilization, type, upgrade)){
+      return false;
+    }
+    table = table.withResearch(civilization, type, upgrade);
+    return true;
+  }
+
+  //Snapshot atual; use o mesmo snapshot para leituras que devem ser consistentes entre si
+  public ModifierTable table(){
+    return table;
+  }
+
+  public long getVersion(){
+    return table.getVersion();
+  }
+
+  //Visao da tropa com as tecnologias da sua civilizacao aplicadas
+  public TechTroop apply(Troop troop){
+    return new TechTroop(troop, this);
+  }
+}
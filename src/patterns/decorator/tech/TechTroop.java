@@ -0,0 +1,95 @@
+package patterns.decorator.tech;
+
+import patterns.events.EventSink;
+import patterns.events.Events;
+import patterns.factory.Troop;
+import patterns.factory.UnitType;
+
+/**
+ * Tropa cujos atributos incluem as tecnologias da sua civilizacao.
+ *
+ * Nao guarda bonus proprios: cada leitura soma o atributo da tropa base ao
+ * bonus do ModifierTable atual do TechRegistry, entao uma pesquisa nova
+ * vale imediatamente para todas as TechTroop existentes.
+ */
+public final class TechTroop implements Troop {
+  private final Troop base;
+  private final TechRegistry registry;
+  /**
+   * Id da civilizacao na tabela; -1 enquanto a civilizacao nao pesquisou
+   * nada. O campo nao e volatile nem sincronizado de proposito: duas threads
+   * podem ver -1 ao mesmo tempo e recalcular o id, mas ambas obtem o mesmo
+   * valor, porque ids nunca mudam depois de atribuidos, e a escrita de um
+   * int e atomica. O pior caso e uma consulta repetida a tabela, nunca um
+   * id errado.
+   */
+  private int civilizationId = -1;
+
+  TechTroop(Troop base, TechRegistry registry){
+    this.base = base;
+    this.registry = registry;
+  }
+
+  private int civilizationId(ModifierTable table){
+    if(civilizationId < 0){
+      civilizationId = table.civilizationId(base.getCivilization());
+    }
+    return civilizationId;
+  }
+
+  public Troop getBase(){
+    return base;
+  }
+
+  @Override
+  public int getAttack(){
+    ModifierTable table = registry.table();
+    return base.getAttack() + table.attackBonus(civilizationId(table), base.getUnitType());
+  }
+
+  @Override
+  public int getDefense(){
+    ModifierTable table = registry.table();
+    return base.getDefense() + table.defenseBonus(civilizationId(table), base.getUnitType());
+  }
+
+  @Override
+  public int getGoldCost(){
+    ModifierTable table = registry.table();
+    return base.getGoldCost() + table.costBonus(civilizationId(table), base.getUnitType());
+  }
+
+  @Override
+  public int getWoodCost(){
+    return base.getWoodCost();
+  }
+
+  @Override
+  public UnitType getUnitType(){
+    return base.getUnitType();
+  }
+
+  @Override
+  public String getCivilization(){
+    return base.getCivilization();
+  }
+
+  @Override
+  public String getDescription(){
+    //um unico snapshot para que os tres atributos sejam da mesma versao
+    ModifierTable table = registry.table();
+    int id = civilizationId(table);
+    UnitType type = base.getUnitType();
+    return String.format("%s %s (Ataque: %d, Defesa: %d, Custo: %d ouro, %d madeira)", type.getLabel(), getCivilization(),
+      base.getAttack() + table.attackBonus(id, type), base.getDefense() + table.defenseBonus(id, type),
+      base.getGoldCost() + table.costBonus(id, type), getWoodCost());
+  }
+
+  @Override
+  public void display(){
+    EventSink events = Events.sink();
+    if(events.isEnabled()){
+      events.error(getDescription());
+    }
+  }
+}
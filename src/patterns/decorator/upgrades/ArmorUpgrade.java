@@ -21,8 +21,8 @@ public class ArmorUpgrade extends TroopDecorator {
   }
 
   @Override
-  public String getDescription(){
-    return wrappedTroop.getDescription() + " + Armadura Reforçada";
+  protected String getDescriptionSuffix(){
+    return " + Armadura Reforçada";
   }
 
 }
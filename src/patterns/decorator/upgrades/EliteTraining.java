@@ -27,7 +27,7 @@ public class EliteTraining extends TroopDecorator {
     }
     
     @Override
-    public String getDescription() {
-        return wrappedTroop.getDescription() + " + Treinamento Elite";
+    protected String getDescriptionSuffix() {
+        return " + Treinamento Elite";
     }
 }
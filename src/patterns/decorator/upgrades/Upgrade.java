@@ -0,0 +1,103 @@
+package patterns.decorator.upgrades;
+
+import java.util.function.UnaryOperator;
+
+import patterns.decorator.BasicTroop;
+import patterns.decorator.TroopComponent;
+
+/**
+ * Registro dos upgrades disponiveis.
+ *
+ * Cada constante sabe criar o seu decorador; os bonus e o sufixo da
+ * descricao sao extraidos do proprio decorador aplicado sobre uma tropa
+ * neutra, entao continuam definidos em um unico lugar.
+ * O ordinal e usado como identificador compacto, portanto novos upgrades
+ * devem ser adicionados apenas no final.
+ */
+public enum Upgrade {
+  ARMOR(ArmorUpgrade.class, ArmorUpgrade::new),
+  WEAPON(WeaponUpgrade.class, WeaponUpgrade::new),
+  ELITE(EliteTraining.class, EliteTraining::new),
+  VETERAN(VeteranStatus.class, VeteranStatus::new);
+
+  /**
+   * Sequencias ordenadas de upgrades sao empacotadas em um long com
+   * BITS_PER_UPGRADE bits por upgrade (ordinal + 1, zero = vazio), o
+   * primeiro upgrade nos bits mais significativos.
+   */
+  public static final int BITS_PER_UPGRADE = 4;
+  public static final int MAX_PACKED_UPGRADES = Long.SIZE / BITS_PER_UPGRADE - 1;
+
+  private static final Upgrade[] VALUES = values();
+
+  private final Class<? extends TroopComponent> decoratorType;
+  private final UnaryOperator<TroopComponent> decorator;
+  private final int attackBonus;
+  private final int defenseBonus;
+  private final int costBonus;
+  private final String descriptionSuffix;
+
+  Upgrade(Class<? extends TroopComponent> decoratorType, UnaryOperator<TroopComponent> decorator){
+    this.decoratorType = decoratorType;
+    this.decorator = decorator;
+    TroopComponent probe = decorator.apply(new BasicTroop("", 0, 0, 0));
+    this.attackBonus = probe.getAttack();
+    this.defenseBonus = probe.getDefense();
+    this.costBonus = probe.getCost();
+    this.descriptionSuffix = probe.getDescription();
+  }
+
+  //Envolve a tropa no decorador correspondente
+  public TroopComponent applyTo(TroopComponent troop){
+    return decorator.apply(troop);
+  }
+
+  public int getAttackBonus(){
+    return attackBonus;
+  }
+
+  public int getDefenseBonus(){
+    return defenseBonus;
+  }
+
+  public int getCostBonus(){
+    return costBonus;
+  }
+
+  public String getDescriptionSuffix(){
+    return descriptionSuffix;
+  }
+
+  public int bit(){
+    return 1 << ordinal();
+  }
+
+  public static Upgrade fromId(int id){
+    return VALUES[id];
+  }
+
+  //Identifica o upgrade de um decorador; null se nao for um dos registrados
+  public static Upgrade of(TroopComponent decorator){
+    for(Upgrade upgrade : VALUES){
+      if(upgrade.decoratorType == decorator.getClass()){
+        return upgrade;
+      }
+    }
+    return null;
+  }
+
+  //Acrescenta um upgrade ao final de uma sequencia empacotada
+  public static long append(long packed, Upgrade upgrade){
+    return (packed << BITS_PER_UPGRADE) | (upgrade.ordinal() + 1);
+  }
+
+  //Le o i-esimo upgrade (a partir de 0) de uma sequencia empacotada com count upgrades
+  public static Upgrade unpack(long packed, int count, int index){
+    int shift = (count - 1 - index) * BITS_PER_UPGRADE;
+    return VALUES[(int) ((packed >>> shift) & ((1 << BITS_PER_UPGRADE) - 1)) - 1];
+  }
+
+  public static int count(){
+    return VALUES.length;
+  }
+}
@@ -27,7 +27,7 @@ public class VeteranStatus extends TroopDecorator {
     }
     
     @Override
-    public String getDescription() {
-        return wrappedTroop.getDescription() + " + Status Veterano";
+    protected String getDescriptionSuffix() {
+        return " + Status Veterano";
     }
 }
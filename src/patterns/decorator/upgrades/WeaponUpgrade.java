@@ -21,7 +21,7 @@ public class WeaponUpgrade extends TroopDecorator {
   }
 
   @Override
-  public String getDescription(){
-    return wrappedTroop.getDescription() + " + Arma Aprimorada";
+  protected String getDescriptionSuffix(){
+    return " + Arma Aprimorada";
   }
 }
@@ -0,0 +1,270 @@
+package patterns.events;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * EventSink assincrono: as threads produtoras apenas gravam a mensagem num
+ * ring buffer limitado e sem locks, e uma unica thread de escrita drena o
+ * buffer em lotes para canais de saida.
+ *
+ * Produtores nunca bloqueiam em I/O: com o buffer cheio a mensagem e
+ * descartada e contabilizada em getDroppedCount(). Se a escrita falhar, a
+ * thread de escrita para, as mensagens seguintes sao descartadas e a falha
+ * e relancada por flush() e close().
+ */
+public class AsyncEventSink implements EventSink, AutoCloseable {
+  private static final byte INFO = 0;
+  private static final byte ERROR = 1;
+  private static final int BATCH_BYTES = 64 * 1024;
+  private static final long MAX_IDLE_PARK_NANOS = 1_000_000L;
+
+  private final int mask;
+  private final String[] messages;
+  private final byte[] streams;
+  //sequencia de cada slot (fila limitada de Vyukov): indica se esta livre ou publicado
+  private final AtomicLongArray sequences;
+  private final AtomicLong tail = new AtomicLong();
+  private long head;
+  //Mensagens ja escritas nos canais; publicado ao fim de cada lote para flush()
+  private volatile long written;
+
+  private final WritableByteChannel out;
+  private final WritableByteChannel err;
+  private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+  private final ByteBuffer outBuffer = ByteBuffer.allocate(BATCH_BYTES);
+  private final ByteBuffer errBuffer = ByteBuffer.allocate(BATCH_BYTES);
+
+  private final LongAdder dropped = new LongAdder();
+  private final Thread writer;
+  private volatile boolean running = true;
+  private volatile Throwable failure;
+
+  /**
+   * @param out canal para as mensagens informativas
+   * @param err canal para as mensagens de erro
+   * @param capacity numero maximo de mensagens pendentes (arredondado para potencia de 2)
+   */
+  public AsyncEventSink(WritableByteChannel out, WritableByteChannel err, int capacity){
+    if(capacity < 2){
+      throw new IllegalArgumentException("Capacidade deve ser pelo menos 2: " + capacity);
+    }
+    int size = Integer.highestOneBit(capacity - 1) << 1;
+    this.mask = size - 1;
+    this.messages = new String[size];
+    this.streams = new byte[size];
+    this.sequences = new AtomicLongArray(size);
+    for(int i = 0; i < size; i++){
+      sequences.set(i, i);
+    }
+    this.out = out;
+    this.err = err;
+    this.writer = new Thread(this::drainLoop, "async-event-sink");
+    this.writer.setDaemon(true);
+    this.writer.start();
+  }
+
+  //Sink assincrono sobre a saida padrao e a saida de erro do processo
+  public static AsyncEventSink toConsole(int capacity){
+    return new AsyncEventSink(
+      Channels.newChannel(new FileOutputStream(FileDescriptor.out)),
+      Channels.newChannel(new FileOutputStream(FileDescriptor.err)),
+      capacity);
+  }
+
+  @Override
+  public boolean isEnabled(){
+    return running;
+  }
+
+  @Override
+  public void info(String line){
+    offer(INFO, line);
+  }
+
+  @Override
+  public void error(String line){
+    offer(ERROR, line);
+  }
+
+  public long getDroppedCount(){
+    return dropped.sum();
+  }
+
+  private void offer(byte stream, String line){
+    if(!running){
+      dropped.increment();
+      return;
+    }
+    long position = tail.get();
+    while(true){
+      int index = (int) position & mask;
+      long difference = sequences.get(index) - position;
+      if(difference == 0){
+        if(tail.compareAndSet(position, position + 1)){
+          messages[index] = line;
+          streams[index] = stream;
+          sequences.lazySet(index, position + 1);
+          return;
+        }
+        position = tail.get();
+      } else if(difference < 0){
+        //buffer cheio: descarta em vez de bloquear o produtor
+        dropped.increment();
+        return;
+      } else {
+        position = tail.get();
+      }
+    }
+  }
+
+  private void drainLoop(){
+    try {
+      drainUntilClosed();
+    } catch(Throwable e){
+      failure = e;
+      running = false;
+    }
+  }
+
+  private void drainUntilClosed(){
+    long idlePark = 1_000L;
+    while(running){
+      if(drainBatch()){
+        idlePark = 1_000L;
+      } else {
+        LockSupport.parkNanos(this, idlePark);
+        idlePark = Math.min(idlePark * 2, MAX_IDLE_PARK_NANOS);
+      }
+    }
+    //espera os produtores que ja reservaram um slot terminarem de publicar
+    while(head != tail.get()){
+      if(!drainBatch()){
+        Thread.onSpinWait();
+      }
+    }
+  }
+
+  //Drena tudo que ja foi publicado; retorna false se nao havia nada
+  private boolean drainBatch(){
+    boolean drained = false;
+    while(true){
+      int index = (int) head & mask;
+      if(sequences.get(index) != head + 1){
+        break;
+      }
+      String line = messages[index];
+      byte stream = streams[index];
+      messages[index] = null;
+      sequences.lazySet(index, head + mask + 1);
+      head++;
+      drained = true;
+      if(stream == ERROR){
+        append(errBuffer, err, line);
+      } else {
+        append(outBuffer, out, line);
+      }
+    }
+    if(drained){
+      flush(outBuffer, out);
+      flush(errBuffer, err);
+      written = head;
+    }
+    return drained;
+  }
+
+  private void append(ByteBuffer buffer, WritableByteChannel channel, String line){
+    encode(buffer, channel, CharBuffer.wrap(line));
+    encode(buffer, channel, CharBuffer.wrap(System.lineSeparator()));
+  }
+
+  private void encode(ByteBuffer buffer, WritableByteChannel channel, CharBuffer chars){
+    encoder.reset();
+    while(true){
+      CoderResult result = encoder.encode(chars, buffer, true);
+      if(result.isOverflow()){
+        flush(buffer, channel);
+      } else {
+        break;
+      }
+    }
+  }
+
+  private void flush(ByteBuffer buffer, WritableByteChannel channel){
+    if(buffer.position() == 0){
+      return;
+    }
+    buffer.flip();
+    try {
+      while(buffer.hasRemaining()){
+        channel.write(buffer);
+      }
+    } catch(IOException e){
+      throw new UncheckedIOException(e);
+    } finally {
+      buffer.clear();
+    }
+  }
+
+  /**
+   * Espera ate que as mensagens publicadas antes da chamada tenham sido
+   * escritas nos canais.
+   * @throws UncheckedIOException se a escrita falhou
+   */
+  public void flush(){
+    long target = tail.get();
+    while(written < target){
+      checkFailure();
+      if(!writer.isAlive()){
+        break;
+      }
+      LockSupport.unpark(writer);
+      LockSupport.parkNanos(this, MAX_IDLE_PARK_NANOS);
+    }
+    checkFailure();
+  }
+
+  /**
+   * Para de aceitar mensagens, escreve as pendentes e aguarda a thread de escrita.
+   * Mensagens publicadas concorrentemente ao close podem ser descartadas.
+   * @throws UncheckedIOException se a escrita falhou
+   */
+  @Override
+  public void close(){
+    running = false;
+    LockSupport.unpark(writer);
+    try {
+      writer.join();
+    } catch(InterruptedException e){
+      Thread.currentThread().interrupt();
+    }
+    checkFailure();
+  }
+
+  private void checkFailure(){
+    Throwable cause = failure;
+    if(cause == null){
+      return;
+    }
+    if(cause instanceof UncheckedIOException){
+      throw (UncheckedIOException) cause;
+    }
+    if(cause instanceof Error){
+      throw (Error) cause;
+    }
+    throw new IllegalStateException("Falha na thread de escrita de eventos", cause);
+  }
+}
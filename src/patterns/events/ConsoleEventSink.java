@@ -0,0 +1,24 @@
+package patterns.events;
+
+//Escreve direto no console, de forma sincrona (comportamento original)
+public final class ConsoleEventSink implements EventSink {
+  public static final ConsoleEventSink INSTANCE = new ConsoleEventSink();
+
+  private ConsoleEventSink(){
+  }
+
+  @Override
+  public boolean isEnabled(){
+    return true;
+  }
+
+  @Override
+  public void info(String line){
+    System.out.println(line);
+  }
+
+  @Override
+  public void error(String line){
+    System.err.println(line);
+  }
+}
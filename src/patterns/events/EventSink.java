@@ -0,0 +1,25 @@
+package patterns.events;
+
+/**
+ * Destino das mensagens geradas por civilizacoes e tropas.
+ *
+ * Quem publica deve consultar isEnabled() antes de montar o texto, assim
+ * um sink desligado nao custa nenhuma alocacao.
+ */
+public interface EventSink {
+  /**
+   * Indica se as mensagens serao de fato usadas
+   * @return false quando publicar nao tem nenhum efeito
+   */
+  boolean isEnabled();
+
+  /**
+   * Publica uma linha informativa (equivalente a System.out)
+   */
+  void info(String line);
+
+  /**
+   * Publica uma linha de erro (equivalente a System.err)
+   */
+  void error(String line);
+}
@@ -0,0 +1,29 @@
+package patterns.events;
+
+/**
+ * Ponto unico de acesso ao EventSink em uso.
+ *
+ * O padrao e o ConsoleEventSink, que mantem a saida das demonstracoes;
+ * simulacoes podem instalar um AsyncEventSink (como o modo batch com
+ * --events) ou o NoOpEventSink.
+ */
+public final class Events {
+  private static volatile EventSink sink = ConsoleEventSink.INSTANCE;
+
+  private Events(){
+  }
+
+  public static EventSink sink(){
+    return sink;
+  }
+
+  //Troca o sink global; retorna o anterior para que possa ser restaurado
+  public static EventSink install(EventSink newSink){
+    if(newSink == null){
+      throw new IllegalArgumentException("EventSink não pode ser nulo");
+    }
+    EventSink previous = sink;
+    sink = newSink;
+    return previous;
+  }
+}
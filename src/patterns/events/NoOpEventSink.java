@@ -0,0 +1,22 @@
+package patterns.events;
+
+//Descarta tudo; usado em benchmarks e simulacoes sem saida
+public final class NoOpEventSink implements EventSink {
+  public static final NoOpEventSink INSTANCE = new NoOpEventSink();
+
+  private NoOpEventSink(){
+  }
+
+  @Override
+  public boolean isEnabled(){
+    return false;
+  }
+
+  @Override
+  public void info(String line){
+  }
+
+  @Override
+  public void error(String line){
+  }
+}
@@ -1,10 +1,15 @@
 package patterns.factory;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 import patterns.factory.civilizations.BritishFactory;
 import patterns.factory.civilizations.FrenchFactory;
+import patterns.factory.registry.UnitRegistry;
 
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
         System.out.println("=== FACTORY METHOD PATTERN ===");
         
         // Criando exército britânico
@@ -24,5 +29,15 @@ public class Main {
         
         System.out.println("Britânico: " + britishArcher.getAttack() + " de ataque");
         System.out.println("Francês: " + frenchArcher.getAttack() + " de ataque");
+
+        // Mesmas tropas, lidas de um arquivo de dados em vez de uma subclasse por civilização
+        Path data = Path.of("data", "units.csv");
+        if (Files.exists(data)) {
+            System.out.println("\n=== Registro de Unidades (" + data + ") ===");
+            UnitRegistry registry = UnitRegistry.load(data);
+            for (String civilization : registry.table().civilizations()) {
+                registry.factory(civilization).createKnight().display();
+            }
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,49 @@
+package patterns.factory;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Grupo de tropas identicas criado de uma vez por TroopFactory.train().
+ *
+ * Guarda apenas o TroopTemplate e a quantidade: todas as posicoes
+ * devolvem o mesmo template, entao um esquadrao de um milhao de unidades
+ * ocupa o mesmo espaco que um de uma.
+ */
+public final class Squad extends AbstractList<Troop> implements RandomAccess {
+  private final TroopTemplate template;
+  private final int size;
+
+  public Squad(TroopTemplate template, int size){
+    if(size < 0){
+      throw new IllegalArgumentException("Quantidade negativa: " + size);
+    }
+    this.template = template;
+    this.size = size;
+  }
+
+  public TroopTemplate getTemplate(){
+    return template;
+  }
+
+  @Override
+  public Troop get(int index){
+    if(index < 0 || index >= size){
+      throw new IndexOutOfBoundsException("Índice " + index + " fora do esquadrão de tamanho " + size);
+    }
+    return template;
+  }
+
+  @Override
+  public int size(){
+    return size;
+  }
+
+  public long totalAttack(){
+    return (long) template.getAttack() * size;
+  }
+
+  public long totalGoldCost(){
+    return (long) template.getGoldCost() * size;
+  }
+}
@@ -7,4 +7,18 @@ public interface  Troop {
   int getWoodCost();
   String getDescription();
   void display();
+
+  /**
+   * Tipo da unidade, usado pelos armazenamentos compactos (Army,
+   * OffHeapTroopStore) e pela persistencia. Implementacoes antigas que nao
+   * o informam continuam compilando, mas nao podem ser guardadas neles.
+   */
+  default UnitType getUnitType(){
+    throw new UnsupportedOperationException(getClass().getName() + " não informa o tipo de unidade");
+  }
+
+  //Nome da civilizacao; mesmas restricoes de getUnitType()
+  default String getCivilization(){
+    throw new UnsupportedOperationException(getClass().getName() + " não informa a civilização");
+  }
 }
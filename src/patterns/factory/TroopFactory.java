@@ -1,12 +1,75 @@
 package patterns.factory;
 
+import java.util.concurrent.CompletableFuture;
+
+import patterns.events.Events;
+import patterns.factory.training.TrainingQueue;
+import patterns.metrics.Metrics;
+
 public abstract class TroopFactory {
+  //Templates desta fabrica, indexados pelo ordinal de UnitType
+  private final TroopTemplate[] templates = new TroopTemplate[UnitType.count()];
+
   public abstract Troop createArcher();
   public abstract Troop createSwordsman();
   public abstract Troop createKnight();
 
+  public Troop create(UnitType type){
+    switch(type){
+      case ARCHER: return createArcher();
+      case SWORDSMAN: return createSwordsman();
+      case KNIGHT: return createKnight();
+      default: throw new IllegalArgumentException("Tipo de unidade desconhecido: " + type);
+    }
+  }
+
+  /**
+   * Template compartilhado das tropas deste tipo, criado na primeira
+   * chamada a partir de prototype(type). Fabricas cujos atributos mudam
+   * durante a execucao devem sobrescrever este metodo.
+   */
+  public TroopTemplate template(UnitType type){
+    TroopTemplate template = templates[type.ordinal()];
+    if(template == null){
+      //corrida inofensiva: duas threads podem montar templates iguais e a ultima escrita prevalece
+      template = TroopTemplate.of(prototype(type));
+      templates[type.ordinal()] = template;
+    }
+    return template;
+  }
+
+  /**
+   * Tropa usada como modelo do template, que nao deve contar como tropa
+   * criada nas metricas. O padrao e create(type); fabricas que
+   * contabilizam em create (via trained) devem sobrescrever.
+   */
+  protected Troop prototype(UnitType type){
+    return create(type);
+  }
+
+  /**
+   * Cria count tropas do mesmo tipo de uma vez, todas compartilhando o
+   * mesmo TroopTemplate; o custo nao depende de count.
+   */
+  public Squad train(UnitType type, int count){
+    Squad squad = new Squad(template(type), count);
+    Metrics metrics = Metrics.get();
+    if(metrics.isEnabled()){
+      metrics.troopsCreated(getClass(), type, count);
+    }
+    return squad;
+  }
+
+  /**
+   * Versao assincrona de train: o pedido entra na fila da civilizacao e as
+   * tropas sao criadas por uma thread da TrainingQueue.
+   */
+  public CompletableFuture<Squad> trainAsync(TrainingQueue queue, UnitType type, int count){
+    return queue.submit(this, type, count);
+  }
+
   public void trainArmy(){
-    System.out.println("--Treinando exército--");
+    Events.sink().info("--Treinando exército--");
     Troop archer = createArcher();
     Troop swordsman = createSwordsman();
     Troop knight = createKnight();
@@ -16,4 +79,13 @@ public abstract class TroopFactory {
     knight.display();
     
   }
+
+  //Chamado pelas fabricas concretas ao entregar uma tropa, para contabiliza-la nas metricas
+  protected final Troop trained(Troop troop){
+    Metrics metrics = Metrics.get();
+    if(metrics.isEnabled()){
+      metrics.troopCreated(getClass(), troop.getUnitType());
+    }
+    return troop;
+  }
 }
@@ -0,0 +1,84 @@
+package patterns.factory;
+
+import patterns.events.EventSink;
+import patterns.events.Events;
+
+/**
+ * Tropa imutavel compartilhada (Flyweight).
+ *
+ * As tropas de uma mesma (civilizacao, tipo de unidade) tem exatamente os
+ * mesmos atributos e nenhum estado proprio, entao uma unica instancia
+ * pode representar todas elas. Nao ha tabela global: quem cria o template
+ * (TroopFactory, UnitTable) o guarda e reaproveita, e os templates de uma
+ * UnitTable substituida por reload sao coletados junto com ela.
+ */
+public final class TroopTemplate implements Troop {
+  private final UnitType unitType;
+  private final String civilization;
+  private final int attack;
+  private final int defense;
+  private final int goldCost;
+  private final int woodCost;
+  private final String description;
+
+  private TroopTemplate(Troop prototype){
+    this.unitType = prototype.getUnitType();
+    this.civilization = prototype.getCivilization();
+    this.attack = prototype.getAttack();
+    this.defense = prototype.getDefense();
+    this.goldCost = prototype.getGoldCost();
+    this.woodCost = prototype.getWoodCost();
+    this.description = prototype.getDescription();
+  }
+
+  //Template com os mesmos atributos do prototipo
+  public static TroopTemplate of(Troop prototype){
+    if(prototype instanceof TroopTemplate){
+      return (TroopTemplate) prototype;
+    }
+    return new TroopTemplate(prototype);
+  }
+
+  @Override
+  public int getAttack(){
+    return attack;
+  }
+
+  @Override
+  public int getDefense(){
+    return defense;
+  }
+
+  @Override
+  public int getGoldCost(){
+    return goldCost;
+  }
+
+  @Override
+  public int getWoodCost(){
+    return woodCost;
+  }
+
+  @Override
+  public UnitType getUnitType(){
+    return unitType;
+  }
+
+  @Override
+  public String getCivilization(){
+    return civilization;
+  }
+
+  @Override
+  public String getDescription(){
+    return description;
+  }
+
+  @Override
+  public void display(){
+    EventSink events = Events.sink();
+    if(events.isEnabled()){
+      events.error(description);
+    }
+  }
+}
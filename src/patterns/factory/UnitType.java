@@ -0,0 +1,36 @@
+package patterns.factory;
+
+/**
+ * Tipos de unidade que uma TroopFactory sabe criar.
+ * O ordinal e usado como identificador compacto (byte) em armazenamentos
+ * primitivos, portanto novos tipos devem ser adicionados apenas no final.
+ */
+public enum UnitType {
+  ARCHER("Arqueiro"),
+  SWORDSMAN("Espadachim"),
+  KNIGHT("Cavaleiro");
+
+  private static final UnitType[] VALUES = values();
+
+  private final String label;
+
+  UnitType(String label){
+    this.label = label;
+  }
+
+  public String getLabel(){
+    return label;
+  }
+
+  public byte id(){
+    return (byte) ordinal();
+  }
+
+  public static UnitType fromId(int id){
+    return VALUES[id];
+  }
+
+  public static int count(){
+    return VALUES.length;
+  }
+}
@@ -0,0 +1,326 @@
+package patterns.factory.army;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import patterns.events.EventSink;
+import patterns.events.Events;
+import patterns.factory.Squad;
+import patterns.factory.Troop;
+import patterns.factory.UnitType;
+
+/**
+ * Armazenamento de exercito em estrutura de arrays (SoA).
+ *
+ * Cada atributo das tropas fica em um array primitivo paralelo, de modo que
+ * milhoes de unidades ocupam poucos bytes cada e varreduras completas do
+ * exercito percorrem memoria contigua. O nome da civilizacao e guardado uma
+ * unica vez numa tabela e cada tropa referencia apenas seu id.
+ */
+public class Army {
+  private static final int DEFAULT_CAPACITY = 16;
+  //Maior array que as JVMs costumam aceitar
+  private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+  private int[] attack;
+  private int[] defense;
+  private int[] goldCost;
+  private int[] woodCost;
+  private byte[] unitType;
+  private short[] civilization;
+  private int size;
+
+  private final Map<String, Short> civilizationIds = new HashMap<>();
+  private String[] civilizationNames = new String[4];
+
+  public Army(){
+    this(DEFAULT_CAPACITY);
+  }
+
+  public Army(int initialCapacity){
+    int capacity = Math.max(initialCapacity, 1);
+    attack = new int[capacity];
+    defense = new int[capacity];
+    goldCost = new int[capacity];
+    woodCost = new int[capacity];
+    unitType = new byte[capacity];
+    civilization = new short[capacity];
+  }
+
+  //Adiciona uma tropa existente copiando seus atributos; retorna o indice
+  public int add(Troop troop){
+    return add(troop.getUnitType(), troop.getCivilization(), troop.getAttack(), troop.getDefense(), troop.getGoldCost(), troop.getWoodCost());
+  }
+
+  public int add(UnitType type, String civilizationName, int attack, int defense, int goldCost, int woodCost){
+    return add(type, civilizationId(civilizationName), attack, defense, goldCost, woodCost);
+  }
+
+  public int add(UnitType type, int civilizationId, int attack, int defense, int goldCost, int woodCost){
+    if(civilizationId < 0 || civilizationId >= civilizationIds.size()){
+      throw new IllegalArgumentException("Civilização desconhecida: " + civilizationId);
+    }
+    ensureCapacity(size + 1L);
+    int index = size++;
+    this.attack[index] = attack;
+    this.defense[index] = defense;
+    this.goldCost[index] = goldCost;
+    this.woodCost[index] = woodCost;
+    this.unitType[index] = type.id();
+    this.civilization[index] = (short) civilizationId;
+    return index;
+  }
+
+  /**
+   * Adiciona count copias da mesma tropa preenchendo os arrays em bloco,
+   * sem criar objetos por unidade.
+   * @return indice da primeira copia
+   */
+  public int add(Troop troop, int count){
+    if(count < 0){
+      throw new IllegalArgumentException("Quantidade negativa: " + count);
+    }
+    int civilizationId = civilizationId(troop.getCivilization());
+    ensureCapacity((long) size + count);
+    int from = size;
+    int to = size + count;
+    Arrays.fill(attack, from, to, troop.getAttack());
+    Arrays.fill(defense, from, to, troop.getDefense());
+    Arrays.fill(goldCost, from, to, troop.getGoldCost());
+    Arrays.fill(woodCost, from, to, troop.getWoodCost());
+    Arrays.fill(unitType, from, to, troop.getUnitType().id());
+    Arrays.fill(civilization, from, to, (short) civilizationId);
+    size = to;
+    return from;
+  }
+
+  public int add(Squad squad){
+    return add(squad.getTemplate(), squad.size());
+  }
+
+  /**
+   * Remove a tropa do indice informado em O(1), movendo a ultima tropa
+   * para a posicao liberada. Indices obtidos anteriormente para a ultima
+   * tropa deixam de ser validos.
+   */
+  public void remove(int index){
+    checkIndex(index);
+    int last = --size;
+    attack[index] = attack[last];
+    defense[index] = defense[last];
+    goldCost[index] = goldCost[last];
+    woodCost[index] = woodCost[last];
+    unitType[index] = unitType[last];
+    civilization[index] = civilization[last];
+  }
+
+  public void clear(){
+    size = 0;
+  }
+
+  public int size(){
+    return size;
+  }
+
+  //Registra (ou recupera) o id compacto de uma civilizacao
+  public int civilizationId(String name){
+    Short id = civilizationIds.get(name);
+    if(id != null){
+      return id;
+    }
+    int next = civilizationIds.size();
+    if(next > Short.MAX_VALUE){
+      throw new IllegalStateException("Limite de civilizações atingido: " + next);
+    }
+    if(next == civilizationNames.length){
+      civilizationNames = Arrays.copyOf(civilizationNames, next * 2);
+    }
+    civilizationNames[next] = name;
+    civilizationIds.put(name, (short) next);
+    return next;
+  }
+
+  public String civilizationName(int civilizationId){
+    return civilizationNames[civilizationId];
+  }
+
+  public int civilizationCount(){
+    return civilizationIds.size();
+  }
+
+  public int getAttack(int index){
+    checkIndex(index);
+    return attack[index];
+  }
+
+  public int getDefense(int index){
+    checkIndex(index);
+    return defense[index];
+  }
+
+  public int getGoldCost(int index){
+    checkIndex(index);
+    return goldCost[index];
+  }
+
+  public int getWoodCost(int index){
+    checkIndex(index);
+    return woodCost[index];
+  }
+
+  public UnitType getUnitType(int index){
+    checkIndex(index);
+    return UnitType.fromId(unitType[index]);
+  }
+
+  public int getCivilizationId(int index){
+    checkIndex(index);
+    return civilization[index];
+  }
+
+  public long totalAttack(){
+    long total = 0;
+    for(int i = 0; i < size; i++){
+      total += attack[i];
+    }
+    return total;
+  }
+
+  public long totalDefense(){
+    long total = 0;
+    for(int i = 0; i < size; i++){
+      total += defense[i];
+    }
+    return total;
+  }
+
+  public long totalGoldCost(){
+    long total = 0;
+    for(int i = 0; i < size; i++){
+      total += goldCost[i];
+    }
+    return total;
+  }
+
+  //Colunas usadas pelo CombatKernel; apenas as primeiras size() posicoes sao validas
+  int[] attackColumn(){
+    return attack;
+  }
+
+  int[] defenseColumn(){
+    return defense;
+  }
+
+  byte[] unitTypeColumn(){
+    return unitType;
+  }
+
+  short[] civilizationColumn(){
+    return civilization;
+  }
+
+  /**
+   * Cria um cursor reutilizavel sobre o exercito. O cursor implementa Troop
+   * e pode ser reposicionado com moveTo sem nenhuma alocacao.
+   */
+  public View view(){
+    return new View();
+  }
+
+  /**
+   * Percorre todas as tropas usando um unico cursor. O Troop recebido pelo
+   * consumidor e reposicionado a cada passo e nao deve ser guardado.
+   */
+  public void forEach(Consumer<? super Troop> action){
+    View view = new View();
+    for(int i = 0; i < size; i++){
+      view.index = i;
+      action.accept(view);
+    }
+  }
+
+  private void ensureCapacity(long required){
+    if(required <= attack.length){
+      return;
+    }
+    if(required > MAX_CAPACITY){
+      throw new IllegalStateException("Limite de tropas atingido: " + required);
+    }
+    int capacity = (int) Math.min(MAX_CAPACITY, Math.max(required, attack.length + (attack.length >> 1)));
+    attack = Arrays.copyOf(attack, capacity);
+    defense = Arrays.copyOf(defense, capacity);
+    goldCost = Arrays.copyOf(goldCost, capacity);
+    woodCost = Arrays.copyOf(woodCost, capacity);
+    unitType = Arrays.copyOf(unitType, capacity);
+    civilization = Arrays.copyOf(civilization, capacity);
+  }
+
+  private void checkIndex(int index){
+    if(index < 0 || index >= size){
+      throw new IndexOutOfBoundsException("Índice " + index + " fora do exército de tamanho " + size);
+    }
+  }
+
+  //Visao de uma tropa do exercito, sem copia dos dados
+  public final class View implements Troop {
+    private int index;
+
+    private View(){
+    }
+
+    public View moveTo(int index){
+      checkIndex(index);
+      this.index = index;
+      return this;
+    }
+
+    public int index(){
+      return index;
+    }
+
+    @Override
+    public int getAttack(){
+      return attack[index];
+    }
+
+    @Override
+    public int getDefense(){
+      return defense[index];
+    }
+
+    @Override
+    public int getGoldCost(){
+      return goldCost[index];
+    }
+
+    @Override
+    public int getWoodCost(){
+      return woodCost[index];
+    }
+
+    @Override
+    public UnitType getUnitType(){
+      return UnitType.fromId(unitType[index]);
+    }
+
+    @Override
+    public String getCivilization(){
+      return civilizationNames[civilization[index]];
+    }
+
+    @Override
+    public String getDescription(){
+      return String.format("%s %s (Ataque: %d, Defesa: %d, Custo: %d ouro, %d madeira)", getUnitType().getLabel(), getCivilization(), getAttack(), getDefense(), getGoldCost(), getWoodCost());
+    }
+
+    @Override
+    public void display(){
+      EventSink events = Events.sink();
+      if(events.isEnabled()){
+        events.error(getDescription());
+      }
+    }
+  }
+}
@@ -0,0 +1,177 @@
+package patterns.factory.army;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import patterns.decorator.tech.ModifierTable;
+import patterns.decorator.upgrades.Upgrade;
+import patterns.factory.UnitType;
+import patterns.strategy.AttackStrategy;
+
+/**
+ * Calculos de combate em lote sobre as colunas primitivas de um Army.
+ *
+ * O modificador da estrategia e lido uma unica vez por lote, e o laco
+ * interno so percorre arrays int contiguos, sem chamadas de interface nem
+ * desvios, o que permite ao JIT desenrolar o calculo. O resultado por tropa
+ * e o mesmo de AttackStrategy.attackPower/defensePower aplicado a
+ * (valor + bonus). A versao de score que recebe um ForkJoinPool divide as
+ * colunas entre as threads; os tempos medidos estao no README
+ * (CombatKernelBenchmark).
+ *
+ * A Vector API nao foi usada: no Java 17 ela so existe como modulo
+ * incubador (jdk.incubator.vector), que exige --add-modules na compilacao
+ * e na execucao. O laco fica escalar, deixado a cargo do JIT.
+ */
+public final class CombatKernel {
+  //Tamanho fixo das folhas da divisao paralela
+  private static final int TROOPS_PER_LEAF = 1 << 18;
+
+  private CombatKernel(){
+  }
+
+  /**
+   * Grava em out[i] o valor efetivo de cada tropa: (in[i] + bonus) * modifier,
+   * truncado como em AttackStrategy.attackPower.
+   */
+  public static void apply(int[] in, int[] out, int from, int to, int bonus, double modifier){
+    checkRange(in, from, to);
+    checkRange(out, from, to);
+    for(int i = from; i < to; i++){
+      out[i] = (int) ((in[i] + bonus) * modifier);
+    }
+  }
+
+  //Soma dos valores efetivos, sem gravar a coluna intermediaria
+  public static long sum(int[] in, int from, int to, int bonus, double modifier){
+    checkRange(in, from, to);
+    long total = 0;
+    for(int i = from; i < to; i++){
+      total += (int) ((in[i] + bonus) * modifier);
+    }
+    return total;
+  }
+
+  //Ataque total do exercito com a estrategia e os upgrades aplicados a todas as tropas
+  public static long totalAttack(Army army, AttackStrategy strategy, Upgrade... upgrades){
+    int bonus = 0;
+    for(Upgrade upgrade : upgrades){
+      bonus += upgrade.getAttackBonus();
+    }
+    return sum(army.attackColumn(), 0, army.size(), bonus, strategy.getAttackModifier());
+  }
+
+  public static long totalDefense(Army army, AttackStrategy strategy, Upgrade... upgrades){
+    int bonus = 0;
+    for(Upgrade upgrade : upgrades){
+      bonus += upgrade.getDefenseBonus();
+    }
+    return sum(army.defenseColumn(), 0, army.size(), bonus, strategy.getDefenseModifier());
+  }
+
+  /**
+   * Ataque total do exercito com as tecnologias de cada civilizacao: cada
+   * tropa recebe o bonus do seu (civilizacao, tipo de unidade) no snapshot.
+   */
+  public static long totalAttack(Army army, AttackStrategy strategy, ModifierTable technologies){
+    int[] bonus = bonusBySlot(army, technologies, true);
+    return sum(army.attackColumn(), army.civilizationColumn(), army.unitTypeColumn(), army.size(), bonus, strategy.getAttackModifier());
+  }
+
+  public static long totalDefense(Army army, AttackStrategy strategy, ModifierTable technologies){
+    int[] bonus = bonusBySlot(army, technologies, false);
+    return sum(army.defenseColumn(), army.civilizationColumn(), army.unitTypeColumn(), army.size(), bonus, strategy.getDefenseModifier());
+  }
+
+  private static long sum(int[] in, short[] civilization, byte[] unitType, int size, int[] bonus, double modifier){
+    int types = UnitType.count();
+    long total = 0;
+    for(int i = 0; i < size; i++){
+      total += (int) ((in[i] + bonus[civilization[i] * types + unitType[i]]) * modifier);
+    }
+    return total;
+  }
+
+  //Bonus indexados pelos ids de civilizacao do proprio exercito
+  private static int[] bonusBySlot(Army army, ModifierTable technologies, boolean attack){
+    int types = UnitType.count();
+    int[] bonus = new int[army.civilizationCount() * types];
+    for(int civilization = 0; civilization < army.civilizationCount(); civilization++){
+      int id = technologies.civilizationId(army.civilizationName(civilization));
+      for(int type = 0; type < types; type++){
+        UnitType unitType = UnitType.fromId(type);
+        bonus[civilization * types + type] = attack ? technologies.attackBonus(id, unitType) : technologies.defenseBonus(id, unitType);
+      }
+    }
+    return bonus;
+  }
+
+  /**
+   * Pontua um confronto entre dois exercitos: o ataque efetivo de cada lado
+   * menos 30% da defesa efetiva do outro, como em Engagement.
+   * @return positivo se o primeiro exercito leva vantagem, negativo se o segundo
+   */
+  public static long score(Army army, AttackStrategy strategy, Army opponent, AttackStrategy opponentStrategy){
+    long pressure = totalAttack(army, strategy) - totalDefense(opponent, opponentStrategy) * 3 / 10;
+    long opponentPressure = totalAttack(opponent, opponentStrategy) - totalDefense(army, strategy) * 3 / 10;
+    return Math.max(0, pressure) - Math.max(0, opponentPressure);
+  }
+
+  /**
+   * Mesmo resultado de score, com as quatro somas divididas em blocos que
+   * rodam em paralelo no pool.
+   */
+  public static long score(Army army, AttackStrategy strategy, Army opponent, AttackStrategy opponentStrategy, ForkJoinPool pool){
+    Sum attack = new Sum(army.attackColumn(), 0, army.size(), strategy.getAttackModifier());
+    Sum defense = new Sum(army.defenseColumn(), 0, army.size(), strategy.getDefenseModifier());
+    Sum opponentAttack = new Sum(opponent.attackColumn(), 0, opponent.size(), opponentStrategy.getAttackModifier());
+    Sum opponentDefense = new Sum(opponent.defenseColumn(), 0, opponent.size(), opponentStrategy.getDefenseModifier());
+    pool.invoke(new RecursiveTask<Void>(){
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected Void compute(){
+        invokeAll(attack, defense, opponentAttack, opponentDefense);
+        return null;
+      }
+    });
+    long pressure = attack.join() - opponentDefense.join() * 3 / 10;
+    long opponentPressure = opponentAttack.join() - defense.join() * 3 / 10;
+    return Math.max(0, pressure) - Math.max(0, opponentPressure);
+  }
+
+  //Soma de sum(in, from, to, 0, modifier) dividida ao meio ate TROOPS_PER_LEAF
+  private static final class Sum extends RecursiveTask<Long> {
+    private static final long serialVersionUID = 1L;
+
+    private final int[] in;
+    private final int from;
+    private final int to;
+    private final double modifier;
+
+    Sum(int[] in, int from, int to, double modifier){
+      this.in = in;
+      this.from = from;
+      this.to = to;
+      this.modifier = modifier;
+    }
+
+    @Override
+    protected Long compute(){
+      if(to - from <= TROOPS_PER_LEAF){
+        return sum(in, from, to, 0, modifier);
+      }
+      int middle = (from + to) >>> 1;
+      Sum left = new Sum(in, from, middle, modifier);
+      left.fork();
+      long right = new Sum(in, middle, to, modifier).compute();
+      return right + left.join();
+    }
+  }
+
+  private static void checkRange(int[] column, int from, int to){
+    if(from < 0 || to > column.length || from > to){
+      throw new IndexOutOfBoundsException("Intervalo [" + from + ", " + to + ") fora de " + column.length);
+    }
+  }
+}
@@ -0,0 +1,381 @@
+package patterns.factory.army;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import patterns.decorator.upgrades.Upgrade;
+import patterns.events.EventSink;
+import patterns.events.Events;
+import patterns.factory.Squad;
+import patterns.factory.Troop;
+import patterns.factory.UnitType;
+
+/**
+ * Armazenamento de tropas fora do heap.
+ *
+ * Cada tropa ocupa um registro de RECORD_BYTES bytes em buffers diretos,
+ * alocados em blocos de RECORDS_PER_CHUNK registros conforme o exercito
+ * cresce. O heap guarda apenas os poucos objetos dos blocos, entao o
+ * trabalho do GC nao cresce com o numero de tropas.
+ *
+ * Layout do registro (ordem de bytes nativa):
+ * <pre>
+ *  0 int   ataque
+ *  4 int   defesa
+ *  8 int   custo em ouro
+ * 12 int   custo em madeira
+ * 16 short id da civilizacao
+ * 18 byte  tipo de unidade
+ * 19 byte  (livre)
+ * 20 int   bits dos upgrades aplicados (Upgrade.bit())
+ * </pre>
+ *
+ * Depois de close() o armazenamento nao pode mais ser usado: todo acesso
+ * lanca IllegalStateException. close() nao libera a memoria na hora; ele
+ * apenas solta as referencias aos blocos, e a memoria direta so volta ao
+ * sistema depois que um GC coletar os buffers. Quem cria e fecha muitos
+ * armazenamentos grandes em sequencia deve contar com esse atraso ao
+ * dimensionar -XX:MaxDirectMemorySize.
+ */
+public class OffHeapTroopStore implements AutoCloseable {
+  public static final int RECORD_BYTES = 24;
+  public static final int RECORDS_PER_CHUNK = 1 << 20;
+
+  private static final int ATTACK = 0;
+  private static final int DEFENSE = 4;
+  private static final int GOLD_COST = 8;
+  private static final int WOOD_COST = 12;
+  private static final int CIVILIZATION = 16;
+  private static final int UNIT_TYPE = 18;
+  private static final int UPGRADES = 20;
+
+  private static final int CHUNK_SHIFT = Integer.numberOfTrailingZeros(RECORDS_PER_CHUNK);
+  private static final int CHUNK_MASK = RECORDS_PER_CHUNK - 1;
+
+  private ByteBuffer[] chunks = new ByteBuffer[4];
+  private int chunkCount;
+  private int size;
+  private boolean closed;
+
+  private final Map<String, Short> civilizationIds = new HashMap<>();
+  private String[] civilizationNames = new String[4];
+
+  //Adiciona uma tropa existente copiando seus atributos; retorna o indice
+  public int add(Troop troop){
+    return add(troop.getUnitType(), civilizationId(troop.getCivilization()), troop.getAttack(), troop.getDefense(), troop.getGoldCost(), troop.getWoodCost(), 0);
+  }
+
+  public int add(UnitType type, int civilizationId, int attack, int defense, int goldCost, int woodCost, int upgrades){
+    checkOpen();
+    if(civilizationId < 0 || civilizationId >= civilizationIds.size()){
+      throw new IllegalArgumentException("Civilização desconhecida: " + civilizationId);
+    }
+    ensureCapacity(size + 1L);
+    int index = size++;
+    write(chunks[index >>> CHUNK_SHIFT], (index & CHUNK_MASK) * RECORD_BYTES, type.id(), (short) civilizationId, attack, defense, goldCost, woodCost, upgrades);
+    return index;
+  }
+
+  /**
+   * Adiciona count copias da mesma tropa.
+   * @return indice da primeira copia
+   */
+  public int add(Troop troop, int count){
+    checkOpen();
+    if(count < 0){
+      throw new IllegalArgumentException("Quantidade negativa: " + count);
+    }
+    short civilizationId = (short) civilizationId(troop.getCivilization());
+    byte type = troop.getUnitType().id();
+    int attack = troop.getAttack();
+    int defense = troop.getDefense();
+    int goldCost = troop.getGoldCost();
+    int woodCost = troop.getWoodCost();
+    ensureCapacity((long) size + count);
+    int from = size;
+    int to = size + count;
+    for(int i = from; i < to; i++){
+      write(chunks[i >>> CHUNK_SHIFT], (i & CHUNK_MASK) * RECORD_BYTES, type, civilizationId, attack, defense, goldCost, woodCost, 0);
+    }
+    size = to;
+    return from;
+  }
+
+  public int add(Squad squad){
+    return add(squad.getTemplate(), squad.size());
+  }
+
+  //Marca o upgrade como aplicado e soma seus bonus aos atributos da tropa
+  public void applyUpgrade(int index, Upgrade upgrade){
+    ByteBuffer chunk = chunk(index);
+    int offset = offset(index);
+    chunk.putInt(offset + ATTACK, chunk.getInt(offset + ATTACK) + upgrade.getAttackBonus());
+    chunk.putInt(offset + DEFENSE, chunk.getInt(offset + DEFENSE) + upgrade.getDefenseBonus());
+    chunk.putInt(offset + GOLD_COST, chunk.getInt(offset + GOLD_COST) + upgrade.getCostBonus());
+    chunk.putInt(offset + UPGRADES, chunk.getInt(offset + UPGRADES) | upgrade.bit());
+  }
+
+  /**
+   * Remove a tropa do indice informado em O(1), copiando o ultimo registro
+   * para a posicao liberada, como em Army.remove.
+   */
+  public void remove(int index){
+    ByteBuffer chunk = chunk(index);
+    int offset = offset(index);
+    int last = --size;
+    ByteBuffer lastChunk = chunks[last >>> CHUNK_SHIFT];
+    int lastOffset = (last & CHUNK_MASK) * RECORD_BYTES;
+    for(int i = 0; i < RECORD_BYTES; i += Long.BYTES){
+      chunk.putLong(offset + i, lastChunk.getLong(lastOffset + i));
+    }
+  }
+
+  //Esvazia o armazenamento mantendo os blocos alocados
+  public void clear(){
+    checkOpen();
+    size = 0;
+  }
+
+  public int size(){
+    checkOpen();
+    return size;
+  }
+
+  //Bytes reservados fora do heap
+  public long getReservedBytes(){
+    checkOpen();
+    return (long) chunkCount * RECORDS_PER_CHUNK * RECORD_BYTES;
+  }
+
+  //Registra (ou recupera) o id compacto de uma civilizacao
+  public int civilizationId(String name){
+    checkOpen();
+    Short id = civilizationIds.get(name);
+    if(id != null){
+      return id;
+    }
+    int next = civilizationIds.size();
+    if(next > Short.MAX_VALUE){
+      throw new IllegalStateException("Limite de civilizações atingido: " + next);
+    }
+    if(next == civilizationNames.length){
+      civilizationNames = Arrays.copyOf(civilizationNames, next * 2);
+    }
+    civilizationNames[next] = name;
+    civilizationIds.put(name, (short) next);
+    return next;
+  }
+
+  public String civilizationName(int civilizationId){
+    checkOpen();
+    return civilizationNames[civilizationId];
+  }
+
+  public int getAttack(int index){
+    return chunk(index).getInt(offset(index) + ATTACK);
+  }
+
+  public int getDefense(int index){
+    return chunk(index).getInt(offset(index) + DEFENSE);
+  }
+
+  public int getGoldCost(int index){
+    return chunk(index).getInt(offset(index) + GOLD_COST);
+  }
+
+  public int getWoodCost(int index){
+    return chunk(index).getInt(offset(index) + WOOD_COST);
+  }
+
+  public UnitType getUnitType(int index){
+    return UnitType.fromId(chunk(index).get(offset(index) + UNIT_TYPE));
+  }
+
+  public int getCivilizationId(int index){
+    return chunk(index).getShort(offset(index) + CIVILIZATION);
+  }
+
+  public int getUpgrades(int index){
+    return chunk(index).getInt(offset(index) + UPGRADES);
+  }
+
+  public boolean hasUpgrade(int index, Upgrade upgrade){
+    return (getUpgrades(index) & upgrade.bit()) != 0;
+  }
+
+  public long totalAttack(){
+    return sum(ATTACK);
+  }
+
+  public long totalDefense(){
+    return sum(DEFENSE);
+  }
+
+  public long totalGoldCost(){
+    return sum(GOLD_COST);
+  }
+
+  /**
+   * Cria um cursor somente leitura sobre o armazenamento, reposicionavel
+   * com moveTo sem nenhuma alocacao.
+   */
+  public View view(){
+    checkOpen();
+    return new View();
+  }
+
+  /**
+   * Percorre todas as tropas usando um unico cursor. O Troop recebido pelo
+   * consumidor e reposicionado a cada passo e nao deve ser guardado.
+   */
+  public void forEach(Consumer<? super Troop> action){
+    checkOpen();
+    View view = new View();
+    for(int i = 0; i < size; i++){
+      view.index = i;
+      action.accept(view);
+    }
+  }
+
+  /**
+   * Solta as referencias aos blocos; a memoria direta so e devolvida depois
+   * que o GC coletar os buffers. Chamadas posteriores (inclusive de cursores
+   * ja criados) lancam IllegalStateException.
+   */
+  @Override
+  public void close(){
+    closed = true;
+    chunks = new ByteBuffer[0];
+    chunkCount = 0;
+    size = 0;
+  }
+
+  public boolean isClosed(){
+    return closed;
+  }
+
+  private long sum(int field){
+    checkOpen();
+    long total = 0;
+    for(int c = 0; c < chunkCount; c++){
+      ByteBuffer chunk = chunks[c];
+      int records = Math.min(RECORDS_PER_CHUNK, size - c * RECORDS_PER_CHUNK);
+      int end = records * RECORD_BYTES;
+      for(int offset = field; offset < end; offset += RECORD_BYTES){
+        total += chunk.getInt(offset);
+      }
+    }
+    return total;
+  }
+
+  private static void write(ByteBuffer chunk, int offset, byte type, short civilizationId,
+                            int attack, int defense, int goldCost, int woodCost, int upgrades){
+    chunk.putInt(offset + ATTACK, attack);
+    chunk.putInt(offset + DEFENSE, defense);
+    chunk.putInt(offset + GOLD_COST, goldCost);
+    chunk.putInt(offset + WOOD_COST, woodCost);
+    chunk.putShort(offset + CIVILIZATION, civilizationId);
+    chunk.put(offset + UNIT_TYPE, type);
+    chunk.putInt(offset + UPGRADES, upgrades);
+  }
+
+  private void ensureCapacity(long required){
+    checkOpen();
+    if(required > Integer.MAX_VALUE){
+      throw new IllegalStateException("Limite de tropas atingido: " + required);
+    }
+    while(required > (long) chunkCount * RECORDS_PER_CHUNK){
+      if(chunkCount == chunks.length){
+        chunks = Arrays.copyOf(chunks, chunkCount * 2);
+      }
+      chunks[chunkCount++] = ByteBuffer.allocateDirect(RECORDS_PER_CHUNK * RECORD_BYTES).order(ByteOrder.nativeOrder());
+    }
+  }
+
+  private ByteBuffer chunk(int index){
+    checkOpen();
+    if(index < 0 || index >= size){
+      throw new IndexOutOfBoundsException("Índice " + index + " fora do armazenamento de tamanho " + size);
+    }
+    return chunks[index >>> CHUNK_SHIFT];
+  }
+
+  private static int offset(int index){
+    return (index & CHUNK_MASK) * RECORD_BYTES;
+  }
+
+  private void checkOpen(){
+    if(closed){
+      throw new IllegalStateException("Armazenamento de tropas fechado");
+    }
+  }
+
+  //Visao somente leitura de uma tropa armazenada, sem copia dos dados
+  public final class View implements Troop {
+    private int index;
+
+    private View(){
+    }
+
+    public View moveTo(int index){
+      chunk(index);
+      this.index = index;
+      return this;
+    }
+
+    public int index(){
+      return index;
+    }
+
+    @Override
+    public int getAttack(){
+      return OffHeapTroopStore.this.getAttack(index);
+    }
+
+    @Override
+    public int getDefense(){
+      return OffHeapTroopStore.this.getDefense(index);
+    }
+
+    @Override
+    public int getGoldCost(){
+      return OffHeapTroopStore.this.getGoldCost(index);
+    }
+
+    @Override
+    public int getWoodCost(){
+      return OffHeapTroopStore.this.getWoodCost(index);
+    }
+
+    @Override
+    public UnitType getUnitType(){
+      return OffHeapTroopStore.this.getUnitType(index);
+    }
+
+    @Override
+    public String getCivilization(){
+      return civilizationNames[getCivilizationId(index)];
+    }
+
+    public int getUpgrades(){
+      return OffHeapTroopStore.this.getUpgrades(index);
+    }
+
+    @Override
+    public String getDescription(){
+      return String.format("%s %s (Ataque: %d, Defesa: %d, Custo: %d ouro, %d madeira)", getUnitType().getLabel(), getCivilization(), getAttack(), getDefense(), getGoldCost(), getWoodCost());
+    }
+
+    @Override
+    public void display(){
+      EventSink events = Events.sink();
+      if(events.isEnabled()){
+        events.error(getDescription());
+      }
+    }
+  }
+}
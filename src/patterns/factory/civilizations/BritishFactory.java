@@ -1,6 +1,7 @@
 package patterns.factory.civilizations;
 import  patterns.factory.TroopFactory;
 import patterns.factory.Troop;
+import patterns.factory.UnitType;
 import patterns.factory.troops.Archer;
 import patterns.factory.troops.Swordsman;
 import patterns.factory.troops.Knight;
@@ -8,16 +9,27 @@ import patterns.factory.troops.Knight;
 public class BritishFactory extends  TroopFactory {
   @Override
   public Troop createArcher(){
-  return new Archer("Britanico", 35, 10, 40, 20);
+  return trained(prototype(UnitType.ARCHER));
   }
 
   @Override
   public Troop createSwordsman(){
-    return new Swordsman("Britanico", 25, 20, 60, 10);
+    return trained(prototype(UnitType.SWORDSMAN));
   }
 
   @Override
   public Troop createKnight(){
-    return new Knight("Britanico", 40, 30, 120, 0);
+    return trained(prototype(UnitType.KNIGHT));
+  }
+
+  //Atributos das tropas, sem contabilizar nas metricas
+  @Override
+  protected Troop prototype(UnitType type){
+    switch(type){
+      case ARCHER: return new Archer("Britanico", 35, 10, 40, 20);
+      case SWORDSMAN: return new Swordsman("Britanico", 25, 20, 60, 10);
+      case KNIGHT: return new Knight("Britanico", 40, 30, 120, 0);
+      default: throw new IllegalArgumentException("Tipo de unidade desconhecido: " + type);
+    }
   }
 }
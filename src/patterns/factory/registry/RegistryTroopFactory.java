@@ -0,0 +1,72 @@
+package patterns.factory.registry;
+
+import patterns.factory.Troop;
+import patterns.factory.TroopFactory;
+import patterns.factory.TroopTemplate;
+import patterns.factory.UnitType;
+
+/**
+ * TroopFactory servida por um UnitRegistry.
+ *
+ * Guarda o id da civilizacao junto com a tabela em que ele foi resolvido;
+ * o nome so e procurado de novo quando o registro publica outra tabela.
+ */
+public class RegistryTroopFactory extends TroopFactory {
+  private final UnitRegistry registry;
+  private final String civilization;
+  private volatile Binding binding;
+
+  RegistryTroopFactory(UnitRegistry registry, String civilization){
+    this.registry = registry;
+    this.civilization = civilization;
+  }
+
+  public String getCivilization(){
+    return civilization;
+  }
+
+  @Override
+  public Troop createArcher(){
+    return create(UnitType.ARCHER);
+  }
+
+  @Override
+  public Troop createSwordsman(){
+    return create(UnitType.SWORDSMAN);
+  }
+
+  @Override
+  public Troop createKnight(){
+    return create(UnitType.KNIGHT);
+  }
+
+  @Override
+  public Troop create(UnitType type){
+    Binding current = bind();
+    return trained(current.table().create(current.civilizationId(), type));
+  }
+
+  //Os templates vem da tabela em uso, entao acompanham as recargas
+  @Override
+  public TroopTemplate template(UnitType type){
+    Binding current = bind();
+    return current.table().template(current.civilizationId(), type);
+  }
+
+  private Binding bind(){
+    UnitTable table = registry.table();
+    Binding current = binding;
+    if(current == null || current.table() != table){
+      int id = table.civilizationId(civilization);
+      if(id < 0){
+        throw new IllegalStateException("Civilização removida do registro: " + civilization);
+      }
+      current = new Binding(table, id);
+      binding = current;
+    }
+    return current;
+  }
+
+  private record Binding(UnitTable table, int civilizationId) {
+  }
+}
@@ -0,0 +1,75 @@
+package patterns.factory.registry;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+import patterns.factory.Troop;
+import patterns.factory.TroopFactory;
+import patterns.factory.UnitType;
+
+/**
+ * Registro de unidades por civilizacao carregado de um arquivo de dados
+ * (ver UnitTable), substituindo uma subclasse de TroopFactory por civilizacao.
+ *
+ * reload() monta a nova tabela por completo e so entao a publica com uma
+ * escrita volatile: criacoes em andamento terminam com a tabela que ja
+ * tinham lido e nenhuma delas precisa esperar.
+ */
+public class UnitRegistry {
+  private volatile UnitTable table;
+  private final AtomicLong version = new AtomicLong(1);
+
+  public UnitRegistry(UnitTable table){
+    this.table = table;
+  }
+
+  public static UnitRegistry load(Path path) throws IOException {
+    return new UnitRegistry(UnitTable.load(path));
+  }
+
+  //Recarrega o arquivo; em caso de erro a tabela atual continua em uso
+  public void reload(Path path) throws IOException {
+    replace(UnitTable.load(path));
+  }
+
+  //Publica uma nova tabela; retorna a anterior
+  public synchronized UnitTable replace(UnitTable newTable){
+    if(newTable == null){
+      throw new IllegalArgumentException("UnitTable não pode ser nula");
+    }
+    UnitTable previous = table;
+    table = newTable;
+    version.incrementAndGet();
+    return previous;
+  }
+
+  public UnitTable table(){
+    return table;
+  }
+
+  //Incrementada a cada troca de tabela
+  public long getVersion(){
+    return version.get();
+  }
+
+  /**
+   * @throws IllegalArgumentException se a civilizacao ou a unidade nao estiverem na tabela
+   */
+  public Troop create(String civilization, UnitType type){
+    UnitTable current = table;
+    int id = current.civilizationId(civilization);
+    if(id < 0){
+      throw new IllegalArgumentException("Civilização desconhecida: " + civilization);
+    }
+    return current.create(id, type);
+  }
+
+  //TroopFactory de uma civilizacao, que acompanha as recargas da tabela
+  public TroopFactory factory(String civilization){
+    if(table.civilizationId(civilization) < 0){
+      throw new IllegalArgumentException("Civilização desconhecida: " + civilization);
+    }
+    return new RegistryTroopFactory(this, civilization);
+  }
+}
@@ -0,0 +1,204 @@
+package patterns.factory.registry;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import patterns.factory.Troop;
+import patterns.factory.TroopTemplate;
+import patterns.factory.UnitType;
+import patterns.factory.troops.Archer;
+import patterns.factory.troops.Knight;
+import patterns.factory.troops.Swordsman;
+
+/**
+ * Tabela imutavel com os atributos de cada (civilizacao, tipo de unidade).
+ *
+ * Os atributos ficam em arrays densos indexados por
+ * civilizacao * UnitType.count() + tipo, entao criar uma tropa e um acesso
+ * a array, sem despacho por subclasse de TroopFactory.
+ *
+ * Formato do arquivo (uma unidade por linha, '#' inicia comentario):
+ * <pre>
+ * civilizacao,tipo,ataque,defesa,ouro,madeira
+ * Britanico,ARCHER,35,10,40,20
+ * </pre>
+ */
+public final class UnitTable {
+  private final String[] civilizations;
+  private final Map<String, Integer> civilizationIds;
+  private final boolean[] present;
+  private final int[] attack;
+  private final int[] defense;
+  private final int[] goldCost;
+  private final int[] woodCost;
+  private final TroopTemplate[] templates;
+
+  private UnitTable(List<String> civilizations, Map<String, Integer> civilizationIds, boolean[] present,
+                    int[] attack, int[] defense, int[] goldCost, int[] woodCost){
+    this.civilizations = civilizations.toArray(new String[0]);
+    this.civilizationIds = civilizationIds;
+    this.present = present;
+    this.attack = attack;
+    this.defense = defense;
+    this.goldCost = goldCost;
+    this.woodCost = woodCost;
+    this.templates = new TroopTemplate[present.length];
+    for(int slot = 0; slot < present.length; slot++){
+      if(present[slot]){
+        templates[slot] = TroopTemplate.of(create(slot / UnitType.count(), UnitType.fromId(slot % UnitType.count())));
+      }
+    }
+  }
+
+  public static UnitTable load(Path path) throws IOException {
+    try(Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)){
+      return parse(reader, path.toString());
+    }
+  }
+
+  /**
+   * @param source nome usado nas mensagens de erro
+   * @throws IOException se alguma linha for invalida ou repetida
+   */
+  public static UnitTable parse(Reader reader, String source) throws IOException {
+    BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+    List<String> civilizations = new ArrayList<>();
+    Map<String, Integer> ids = new HashMap<>();
+    List<int[]> rows = new ArrayList<>();
+    String line;
+    int number = 0;
+    while((line = lines.readLine()) != null){
+      number++;
+      int comment = line.indexOf('#');
+      String text = (comment < 0 ? line : line.substring(0, comment)).trim();
+      if(text.isEmpty()){
+        continue;
+      }
+      String[] fields = text.split(",");
+      if(fields.length != 6){
+        throw new IOException(source + ":" + number + ": esperados 6 campos, encontrados " + fields.length);
+      }
+      try {
+        String civilization = fields[0].trim();
+        Integer id = ids.get(civilization);
+        if(id == null){
+          id = civilizations.size();
+          ids.put(civilization, id);
+          civilizations.add(civilization);
+        }
+        UnitType type = UnitType.valueOf(fields[1].trim());
+        rows.add(new int[]{id, type.ordinal(), Integer.parseInt(fields[2].trim()), Integer.parseInt(fields[3].trim()),
+          Integer.parseInt(fields[4].trim()), Integer.parseInt(fields[5].trim()), number});
+      } catch(IllegalArgumentException e){
+        throw new IOException(source + ":" + number + ": " + e.getMessage(), e);
+      }
+    }
+
+    int slots = civilizations.size() * UnitType.count();
+    boolean[] present = new boolean[slots];
+    int[] attack = new int[slots];
+    int[] defense = new int[slots];
+    int[] goldCost = new int[slots];
+    int[] woodCost = new int[slots];
+    for(int[] row : rows){
+      int slot = row[0] * UnitType.count() + row[1];
+      if(present[slot]){
+        throw new IOException(source + ":" + row[6] + ": unidade repetida para " + civilizations.get(row[0]));
+      }
+      present[slot] = true;
+      attack[slot] = row[2];
+      defense[slot] = row[3];
+      goldCost[slot] = row[4];
+      woodCost[slot] = row[5];
+    }
+    return new UnitTable(civilizations, ids, present, attack, defense, goldCost, woodCost);
+  }
+
+  //Id da civilizacao nesta tabela, ou -1 se ela nao existir
+  public int civilizationId(String civilization){
+    Integer id = civilizationIds.get(civilization);
+    return id == null ? -1 : id;
+  }
+
+  public String civilizationName(int civilizationId){
+    return civilizations[civilizationId];
+  }
+
+  public int civilizationCount(){
+    return civilizations.length;
+  }
+
+  public List<String> civilizations(){
+    return List.of(civilizations);
+  }
+
+  public boolean contains(int civilizationId, UnitType type){
+    return present[slot(civilizationId, type)];
+  }
+
+  public int getAttack(int civilizationId, UnitType type){
+    return attack[slot(civilizationId, type)];
+  }
+
+  public int getDefense(int civilizationId, UnitType type){
+    return defense[slot(civilizationId, type)];
+  }
+
+  public int getGoldCost(int civilizationId, UnitType type){
+    return goldCost[slot(civilizationId, type)];
+  }
+
+  public int getWoodCost(int civilizationId, UnitType type){
+    return woodCost[slot(civilizationId, type)];
+  }
+
+  /**
+   * @throws IllegalArgumentException se a civilizacao nao tiver esse tipo de unidade
+   */
+  public Troop create(int civilizationId, UnitType type){
+    int slot = slot(civilizationId, type);
+    if(!present[slot]){
+      throw new IllegalArgumentException(civilizations[civilizationId] + " não tem a unidade " + type.getLabel());
+    }
+    String civilization = civilizations[civilizationId];
+    switch(type){
+      case ARCHER: return new Archer(civilization, attack[slot], defense[slot], goldCost[slot], woodCost[slot]);
+      case SWORDSMAN: return new Swordsman(civilization, attack[slot], defense[slot], goldCost[slot], woodCost[slot]);
+      case KNIGHT: return new Knight(civilization, attack[slot], defense[slot], goldCost[slot], woodCost[slot]);
+      default: throw new IllegalArgumentException("Tipo de unidade sem classe: " + type);
+    }
+  }
+
+  /**
+   * Template compartilhado, montado junto com a tabela
+   * @throws IllegalArgumentException se a civilizacao nao tiver esse tipo de unidade
+   */
+  public TroopTemplate template(int civilizationId, UnitType type){
+    TroopTemplate template = templates[slot(civilizationId, type)];
+    if(template == null){
+      throw new IllegalArgumentException(civilizations[civilizationId] + " não tem a unidade " + type.getLabel());
+    }
+    return template;
+  }
+
+  private int slot(int civilizationId, UnitType type){
+    if(civilizationId < 0 || civilizationId >= civilizations.length){
+      throw new IllegalArgumentException("Civilização " + civilizationId + " fora de " + civilizations.length);
+    }
+    return civilizationId * UnitType.count() + type.ordinal();
+  }
+
+  @Override
+  public String toString(){
+    return "UnitTable" + Arrays.toString(civilizations);
+  }
+}
@@ -0,0 +1,13 @@
+package patterns.factory.training;
+
+/**
+ * O que TrainingQueue faz com um pedido quando a fila da civilizacao esta cheia.
+ */
+public enum OverflowPolicy {
+  //Falha o novo pedido na hora (RejectedExecutionException), sem bloquear quem pediu
+  REJECT,
+  //Bloqueia quem pediu ate abrir espaco na fila (backpressure)
+  BLOCK,
+  //Descarta o pedido mais antigo da fila (que falha com RejectedExecutionException) e aceita o novo
+  DROP_OLDEST
+}
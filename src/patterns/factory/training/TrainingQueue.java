@@ -0,0 +1,289 @@
+package patterns.factory.training;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import patterns.factory.Squad;
+import patterns.factory.TroopFactory;
+import patterns.factory.TroopTemplate;
+import patterns.factory.UnitType;
+import patterns.metrics.Metrics;
+
+/**
+ * Fila assincrona de treino de tropas.
+ *
+ * Cada civilizacao (identificada pelo nome, ja que UnitRegistry.factory
+ * devolve uma fabrica nova a cada chamada) tem a sua propria fila
+ * limitada; um conjunto fixo de threads atende as filas em rodizio,
+ * criando os pedidos de uma fila em lote (o template de cada tipo e
+ * buscado uma vez por fabrica em cada lote). O resultado de cada pedido
+ * chega por um CompletableFuture.
+ *
+ * Quando uma fila enche, a OverflowPolicy decide entre recusar, bloquear
+ * quem pediu ou descartar o pedido mais antigo; a memoria usada fica
+ * limitada a capacidade por civilizacao.
+ */
+public class TrainingQueue implements AutoCloseable {
+  private static final int BATCH_SIZE = 256;
+  private static final long IDLE_POLL_MILLIS = 50;
+
+  private final int capacityPerCivilization;
+  private final OverflowPolicy policy;
+  private final Map<String, CivilizationQueue> queues = new ConcurrentHashMap<>();
+  //Filas com pedidos pendentes; cada fila aparece no maximo uma vez
+  private final BlockingQueue<CivilizationQueue> ready = new LinkedBlockingQueue<>();
+  private final Thread[] workers;
+  private final AtomicLong pending = new AtomicLong();
+  private final LongAdder completed = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+  private volatile boolean closed;
+
+  public TrainingQueue(int workerCount, int capacityPerCivilization, OverflowPolicy policy){
+    if(workerCount <= 0 || capacityPerCivilization <= 0){
+      throw new IllegalArgumentException("Threads e capacidade devem ser positivas");
+    }
+    this.capacityPerCivilization = capacityPerCivilization;
+    this.policy = policy;
+    this.workers = new Thread[workerCount];
+    for(int i = 0; i < workerCount; i++){
+      workers[i] = new Thread(this::work, "training-worker-" + i);
+      workers[i].setDaemon(true);
+      workers[i].start();
+    }
+  }
+
+  /**
+   * Pede o treino de count tropas do tipo informado.
+   * @return futuro completado com o Squad, ou com RejectedExecutionException se o pedido for recusado
+   */
+  public CompletableFuture<Squad> submit(TroopFactory factory, UnitType type, int count){
+    CompletableFuture<Squad> future = new CompletableFuture<>();
+    if(count < 0){
+      future.completeExceptionally(new IllegalArgumentException("Quantidade negativa: " + count));
+      return future;
+    }
+    String civilization;
+    try {
+      civilization = factory.template(type).getCivilization();
+    } catch(RuntimeException e){
+      future.completeExceptionally(e);
+      return future;
+    }
+    //conta o pedido antes de olhar closed: um worker so sai com closed e nada pendente, entao nao perde este pedido
+    pending.incrementAndGet();
+    if(closed){
+      pending.decrementAndGet();
+      return reject(future, "Fila de treino encerrada");
+    }
+    CivilizationQueue queue = queues.computeIfAbsent(civilization, name -> new CivilizationQueue());
+    Request request = new Request(factory, type, count, future);
+    if(!enqueue(queue, request)){
+      pending.decrementAndGet();
+      return future;
+    }
+    queue.schedule();
+    return future;
+  }
+
+  private boolean enqueue(CivilizationQueue queue, Request request){
+    switch(policy){
+      case REJECT:
+        if(queue.requests.offer(request)){
+          return true;
+        }
+        reject(request.future, "Fila de treino cheia");
+        return false;
+      case BLOCK:
+        try {
+          queue.requests.put(request);
+          return true;
+        } catch(InterruptedException e){
+          Thread.currentThread().interrupt();
+          request.future.completeExceptionally(e);
+          return false;
+        }
+      case DROP_OLDEST:
+        while(!queue.requests.offer(request)){
+          Request oldest = queue.requests.poll();
+          if(oldest != null){
+            pending.decrementAndGet();
+            reject(oldest.future, "Pedido descartado por um mais recente");
+          }
+        }
+        return true;
+      default:
+        throw new IllegalStateException("Política desconhecida: " + policy);
+    }
+  }
+
+  private CompletableFuture<Squad> reject(CompletableFuture<Squad> future, String reason){
+    rejected.increment();
+    future.completeExceptionally(new RejectedExecutionException(reason));
+    return future;
+  }
+
+  private void work(){
+    Request[] batch = new Request[BATCH_SIZE];
+    TroopTemplate[] templates = new TroopTemplate[UnitType.count()];
+    long[] created = new long[UnitType.count()];
+    try {
+      while(true){
+        CivilizationQueue queue = ready.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if(queue == null){
+          if(closed && pending.get() == 0){
+            return;
+          }
+          continue;
+        }
+        int size = 0;
+        Request request;
+        while(size < BATCH_SIZE && (request = queue.requests.poll()) != null){
+          batch[size++] = request;
+        }
+        try {
+          train(batch, size, templates, created);
+        } finally {
+          //se algo escapou de train (as metricas, por exemplo), os pedidos restantes falham e a fila volta ao rodizio
+          abandon(batch, size);
+          queue.reschedule();
+        }
+      }
+    } catch(InterruptedException e){
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void train(Request[] batch, int size, TroopTemplate[] templates, long[] created){
+    TroopFactory factory = null;
+    for(int i = 0; i < size; i++){
+      Request request = batch[i];
+      batch[i] = null;
+      if(request.factory != factory){
+        //fabricas diferentes da mesma civilizacao podem ter atributos diferentes
+        flush(factory, templates, created);
+        factory = request.factory;
+      }
+      //Throwable: um Error de uma fabrica falha so o seu pedido, sem derrubar o worker
+      try {
+        int type = request.type.ordinal();
+        if(templates[type] == null){
+          templates[type] = factory.template(request.type);
+        }
+        created[type] += request.count;
+        request.future.complete(new Squad(templates[type], request.count));
+      } catch(Throwable e){
+        request.future.completeExceptionally(e);
+      } finally {
+        completed.increment();
+        pending.decrementAndGet();
+      }
+    }
+    flush(factory, templates, created);
+  }
+
+  //Falha os pedidos do lote que train nao chegou a atender
+  private void abandon(Request[] batch, int size){
+    for(int i = 0; i < size; i++){
+      Request request = batch[i];
+      if(request != null){
+        batch[i] = null;
+        request.future.completeExceptionally(new IllegalStateException("Lote de treino interrompido por uma falha"));
+        completed.increment();
+        pending.decrementAndGet();
+      }
+    }
+  }
+
+  //Publica as metricas das tropas criadas por uma fabrica e limpa o cache de templates
+  private static void flush(TroopFactory factory, TroopTemplate[] templates, long[] created){
+    Metrics metrics = Metrics.get();
+    for(int type = 0; type < templates.length; type++){
+      if(metrics.isEnabled() && created[type] > 0){
+        metrics.troopsCreated(factory.getClass(), UnitType.fromId(type), created[type]);
+      }
+      templates[type] = null;
+      created[type] = 0;
+    }
+  }
+
+  //Pedidos aceitos e ainda nao atendidos
+  public long getPending(){
+    return pending.get();
+  }
+
+  public long getCompleted(){
+    return completed.sum();
+  }
+
+  public long getRejected(){
+    return rejected.sum();
+  }
+
+  public int getCapacityPerCivilization(){
+    return capacityPerCivilization;
+  }
+
+  /**
+   * Recusa novos pedidos, atende os que ja estavam na fila e encerra as threads.
+   * Se quem chamou for interrompido, para de esperar e mantem a interrupcao.
+   */
+  @Override
+  public void close(){
+    closed = true;
+    try {
+      for(Thread worker : workers){
+        worker.join();
+      }
+    } catch(InterruptedException e){
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private final class CivilizationQueue {
+    final BlockingQueue<Request> requests = new ArrayBlockingQueue<>(capacityPerCivilization);
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    //Coloca a fila em rodizio se ainda nao estiver
+    void schedule(){
+      if(scheduled.compareAndSet(false, true)){
+        ready.add(this);
+      }
+    }
+
+    //Chamado pela thread que acabou de atender um lote
+    void reschedule(){
+      if(!requests.isEmpty()){
+        ready.add(this);
+        return;
+      }
+      scheduled.set(false);
+      //um pedido pode ter chegado entre o isEmpty e o set
+      if(!requests.isEmpty()){
+        schedule();
+      }
+    }
+  }
+
+  private static final class Request {
+    final TroopFactory factory;
+    final UnitType type;
+    final int count;
+    final CompletableFuture<Squad> future;
+
+    Request(TroopFactory factory, UnitType type, int count, CompletableFuture<Squad> future){
+      this.factory = factory;
+      this.type = type;
+      this.count = count;
+      this.future = future;
+    }
+  }
+}
@@ -1,5 +1,8 @@
 package patterns.factory.troops;
+import patterns.events.EventSink;
+import patterns.events.Events;
 import patterns.factory.Troop;
+import patterns.factory.UnitType;
 
 public class Archer implements Troop {
   private final String civilization;
@@ -36,6 +39,16 @@ public class Archer implements Troop {
     return woodCost;
   }
   
+  @Override
+  public UnitType getUnitType(){
+    return UnitType.ARCHER;
+  }
+
+  @Override
+  public String getCivilization(){
+    return civilization;
+  }
+
   @Override
   public String getDescription(){
     return String.format("Arqueiro %s (Ataque: %d, Defesa: %d, Custo: %d ouro, %d madeira)" , civilization, attack, defense, goldCost, woodCost);
@@ -43,6 +56,9 @@ public class Archer implements Troop {
 
   @Override
   public void display(){
-    System.err.println(getDescription());
+    EventSink events = Events.sink();
+    if(events.isEnabled()){
+      events.error(getDescription());
+    }
   }
 }
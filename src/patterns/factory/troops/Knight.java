@@ -1,6 +1,9 @@
 package patterns.factory.troops;
 
+import patterns.events.EventSink;
+import patterns.events.Events;
 import patterns.factory.Troop;
+import patterns.factory.UnitType;
 
 public class Knight implements Troop {
   private final String civilization;
@@ -37,6 +40,16 @@ public class Knight implements Troop {
     return woodCost;
   }
   
+  @Override
+  public UnitType getUnitType(){
+    return UnitType.KNIGHT;
+  }
+
+  @Override
+  public String getCivilization(){
+    return civilization;
+  }
+
   @Override
   public String getDescription(){
     return String.format("Cavaleiro %s (Ataque: %d, Defesa: %d, Custo: %d ouro, %d madeira)" , civilization, attack, defense, goldCost, woodCost);
@@ -44,6 +57,9 @@ public class Knight implements Troop {
 
   @Override
   public void display(){
-    System.err.println(getDescription());
+    EventSink events = Events.sink();
+    if(events.isEnabled()){
+      events.error(getDescription());
+    }
   }
 }
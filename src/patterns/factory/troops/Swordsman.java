@@ -1,6 +1,9 @@
 package patterns.factory.troops;
 
+import patterns.events.EventSink;
+import patterns.events.Events;
 import patterns.factory.Troop;
+import patterns.factory.UnitType;
 
 public class Swordsman implements Troop {
    private final String civilization;
@@ -37,6 +40,16 @@ public class Swordsman implements Troop {
     return woodCost;
   }
   
+  @Override
+  public UnitType getUnitType(){
+    return UnitType.SWORDSMAN;
+  }
+
+  @Override
+  public String getCivilization(){
+    return civilization;
+  }
+
   @Override
   public String getDescription(){
     return String.format("Espadachim  %s (Ataque: %d, Defesa: %d, Custo: %d ouro, %d madeira)" , civilization, attack, defense, goldCost, woodCost);
@@ -44,6 +57,9 @@ public class Swordsman implements Troop {
 
   @Override
   public void display(){
-    System.err.println(getDescription());
+    EventSink events = Events.sink();
+    if(events.isEnabled()){
+      events.error(getDescription());
+    }
   }
 }
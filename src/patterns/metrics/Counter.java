@@ -0,0 +1,20 @@
+package patterns.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+//Contador com celulas distribuidas (LongAdder): incrementos concorrentes nao disputam a mesma variavel
+public final class Counter {
+  private final LongAdder adder = new LongAdder();
+
+  public void increment(){
+    adder.increment();
+  }
+
+  public void add(long amount){
+    adder.add(amount);
+  }
+
+  public long get(){
+    return adder.sum();
+  }
+}
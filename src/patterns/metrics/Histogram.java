@@ -0,0 +1,73 @@
+package patterns.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de valores nao negativos em faixas de potencia de 2.
+ *
+ * Cada faixa e um LongAdder, entao gravar custa um incremento sem lock;
+ * os percentis sao aproximados pelo limite superior da faixa.
+ */
+public final class Histogram {
+  private static final int BUCKETS = Long.SIZE + 1;
+
+  private final LongAdder[] buckets = new LongAdder[BUCKETS];
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sum = new LongAdder();
+  private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+  public Histogram(){
+    for(int i = 0; i < BUCKETS; i++){
+      buckets[i] = new LongAdder();
+    }
+  }
+
+  public void record(long value){
+    long clamped = Math.max(0, value);
+    buckets[Long.SIZE - Long.numberOfLeadingZeros(clamped)].increment();
+    count.increment();
+    sum.add(clamped);
+    max.accumulate(clamped);
+  }
+
+  public long getCount(){
+    return count.sum();
+  }
+
+  public double getMean(){
+    long total = count.sum();
+    return total == 0 ? 0 : (double) sum.sum() / total;
+  }
+
+  public long getMax(){
+    return max.get();
+  }
+
+  /**
+   * @param quantile entre 0 e 1 (0.99 para p99)
+   * @return limite superior da faixa que contem o percentil
+   */
+  public long getPercentile(double quantile){
+    long[] counts = new long[BUCKETS];
+    long total = 0;
+    for(int i = 0; i < BUCKETS; i++){
+      counts[i] = buckets[i].sum();
+      total += counts[i];
+    }
+    if(total == 0){
+      return 0;
+    }
+    long target = Math.max(1, (long) Math.ceil(quantile * total));
+    long seen = 0;
+    for(int i = 0; i < BUCKETS; i++){
+      seen += counts[i];
+      if(seen >= target){
+        //a faixa i guarda os valores com i bits significativos
+        long upper = i == Long.SIZE ? Long.MAX_VALUE : (1L << i) - 1;
+        return Math.min(upper, getMax());
+      }
+    }
+    return getMax();
+  }
+}
@@ -0,0 +1,114 @@
+package patterns.metrics;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import patterns.factory.UnitType;
+
+/**
+ * Pontos de medicao usados por fabricas, civilizacoes e decoradores.
+ *
+ * Segue o mesmo modelo de Events: ha uma instancia global trocavel e quem
+ * instrumenta consulta isEnabled() antes de medir. Desligado (o padrao),
+ * o custo e uma leitura volatile e um desvio, sem alocacao nem relogio.
+ * Ao instalar um registro, os contadores fixos sao resolvidos uma unica vez.
+ */
+public final class Metrics {
+  public static final String ATTACKS_EXECUTED = "civilization.attacks.executed";
+  public static final String ATTACKS_REJECTED = "civilization.attacks.rejected";
+  public static final String DECORATOR_DEPTH = "decorator.chain.depth";
+
+  private static final Metrics DISABLED = new Metrics(null);
+  private static volatile Metrics current = DISABLED;
+
+  private final MetricsRegistry registry;
+  private final Counter attacksExecuted;
+  private final Counter attacksRejected;
+  private final Histogram decoratorDepth;
+  //Por classe de fabrica: um contador por UnitType, indexado por ordinal
+  private final ConcurrentMap<Class<?>, Counter[]> troopsCreated = new ConcurrentHashMap<>();
+  private final ConcurrentMap<Class<?>, Histogram> strategyTimes = new ConcurrentHashMap<>();
+
+  private Metrics(MetricsRegistry registry){
+    this.registry = registry;
+    this.attacksExecuted = registry == null ? null : registry.counter(ATTACKS_EXECUTED);
+    this.attacksRejected = registry == null ? null : registry.counter(ATTACKS_REJECTED);
+    this.decoratorDepth = registry == null ? null : registry.histogram(DECORATOR_DEPTH);
+  }
+
+  public static Metrics get(){
+    return current;
+  }
+
+  /**
+   * Liga a coleta, enviando as medicoes para o registro informado.
+   * @return o registro anterior, ou null se a coleta estava desligada
+   */
+  public static MetricsRegistry install(MetricsRegistry registry){
+    if(registry == null){
+      throw new IllegalArgumentException("MetricsRegistry não pode ser nulo");
+    }
+    MetricsRegistry previous = current.registry;
+    current = new Metrics(registry);
+    return previous;
+  }
+
+  //Desliga a coleta; retorna o registro que estava em uso (ou null)
+  public static MetricsRegistry disable(){
+    MetricsRegistry previous = current.registry;
+    current = DISABLED;
+    return previous;
+  }
+
+  public boolean isEnabled(){
+    return registry != null;
+  }
+
+  //Registro em uso, ou null se a coleta estiver desligada
+  public MetricsRegistry registry(){
+    return registry;
+  }
+
+  //Os metodos abaixo so devem ser chamados quando isEnabled() for true
+
+  public void troopCreated(Class<?> factory, UnitType type){
+    troopsCreated.computeIfAbsent(factory, this::factoryCounters)[type.ordinal()].increment();
+  }
+
+  //Criacao em lote (TroopFactory.train)
+  public void troopsCreated(Class<?> factory, UnitType type, long count){
+    troopsCreated.computeIfAbsent(factory, this::factoryCounters)[type.ordinal()].add(count);
+  }
+
+  public void attackExecuted(){
+    attacksExecuted.increment();
+  }
+
+  public void attackRejected(){
+    attacksRejected.increment();
+  }
+
+  /**
+   * Tempo gasto pela estrategia em um ataque executado (calculo do poder e,
+   * com eventos ligados, do texto), em nanossegundos. O histograma se chama
+   * strategy.&lt;Classe&gt;.nanos e a sua contagem e o numero de ataques.
+   */
+  public void strategyTime(Class<?> strategy, long nanos){
+    strategyTimes.computeIfAbsent(strategy,
+      type -> registry.histogram("strategy." + type.getSimpleName() + ".nanos")).record(nanos);
+  }
+
+  //Numero de decoradores de uma cadeia, uma vez por cadeia (ver TroopDecorator)
+  public void decoratorDepth(int depth){
+    decoratorDepth.record(depth);
+  }
+
+  private Counter[] factoryCounters(Class<?> factory){
+    UnitType[] types = UnitType.values();
+    Counter[] counters = new Counter[types.length];
+    for(UnitType type : types){
+      counters[type.ordinal()] = registry.counter("factory." + factory.getSimpleName() + "." + type.name() + ".created");
+    }
+    return counters;
+  }
+}
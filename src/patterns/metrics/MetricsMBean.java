@@ -0,0 +1,110 @@
+package patterns.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+/**
+ * Expoe um MetricsRegistry via JMX (jconsole, VisualVM).
+ *
+ * Cada contador vira um atributo com o seu nome; cada histograma vira os
+ * atributos nome.count, nome.mean, nome.p50, nome.p99 e nome.max. Os
+ * valores sao lidos do registro no momento da consulta.
+ */
+public class MetricsMBean implements DynamicMBean {
+  public static final String DEFAULT_NAME = "patterns:type=Metrics";
+
+  private static final String[] HISTOGRAM_FIELDS = {"count", "mean", "p50", "p99", "max"};
+
+  private final MetricsRegistry registry;
+
+  public MetricsMBean(MetricsRegistry registry){
+    this.registry = registry;
+  }
+
+  //Registra o registro no MBeanServer da plataforma com DEFAULT_NAME
+  public static ObjectName register(MetricsRegistry registry) throws JMException {
+    ObjectName name = new ObjectName(DEFAULT_NAME);
+    ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMBean(registry), name);
+    return name;
+  }
+
+  @Override
+  public Object getAttribute(String attribute) throws AttributeNotFoundException {
+    Counter counter = registry.counters().get(attribute);
+    if(counter != null){
+      return counter.get();
+    }
+    int dot = attribute.lastIndexOf('.');
+    Histogram histogram = dot < 0 ? null : registry.histograms().get(attribute.substring(0, dot));
+    if(histogram != null){
+      switch(attribute.substring(dot + 1)){
+        case "count": return histogram.getCount();
+        case "mean": return histogram.getMean();
+        case "p50": return histogram.getPercentile(0.50);
+        case "p99": return histogram.getPercentile(0.99);
+        case "max": return histogram.getMax();
+        default: break;
+      }
+    }
+    throw new AttributeNotFoundException("Métrica desconhecida: " + attribute);
+  }
+
+  @Override
+  public AttributeList getAttributes(String[] attributes){
+    AttributeList list = new AttributeList();
+    for(String attribute : attributes){
+      try {
+        list.add(new Attribute(attribute, getAttribute(attribute)));
+      } catch(AttributeNotFoundException e){
+        //atributos desconhecidos sao omitidos, como pede DynamicMBean
+      }
+    }
+    return list;
+  }
+
+  @Override
+  public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+    throw new AttributeNotFoundException("Métricas são somente leitura: " + attribute.getName());
+  }
+
+  @Override
+  public AttributeList setAttributes(AttributeList attributes){
+    return new AttributeList();
+  }
+
+  @Override
+  public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+    //nenhuma operacao e exposta (ver getMBeanInfo)
+    throw new ReflectionException(new NoSuchMethodException(actionName), "Operação desconhecida: " + actionName);
+  }
+
+  //Montado a cada consulta, pois novas metricas aparecem durante a execucao
+  @Override
+  public MBeanInfo getMBeanInfo(){
+    List<MBeanAttributeInfo> attributes = new ArrayList<>();
+    for(String name : registry.counters().keySet()){
+      attributes.add(new MBeanAttributeInfo(name, "long", "Contador", true, false, false));
+    }
+    for(Map.Entry<String, Histogram> entry : registry.histograms().entrySet()){
+      for(String field : HISTOGRAM_FIELDS){
+        String type = field.equals("mean") ? "double" : "long";
+        attributes.add(new MBeanAttributeInfo(entry.getKey() + "." + field, type, "Histograma", true, false, false));
+      }
+    }
+    return new MBeanInfo(getClass().getName(), "Métricas dos padrões", attributes.toArray(new MBeanAttributeInfo[0]),
+      null, new MBeanOperationInfo[0], null);
+  }
+}
@@ -0,0 +1,23 @@
+package patterns.metrics;
+
+import java.util.Map;
+
+/**
+ * Registro de metricas por nome.
+ *
+ * Implementacoes podem encaminhar os valores para outro sistema de
+ * monitoramento; SimpleMetricsRegistry apenas os guarda em memoria.
+ * counter() e histogram() devem retornar sempre a mesma instancia para o
+ * mesmo nome, pois quem instrumenta guarda a referencia.
+ */
+public interface MetricsRegistry {
+  Counter counter(String name);
+
+  Histogram histogram(String name);
+
+  //Visao dos contadores ja criados, por nome
+  Map<String, Counter> counters();
+
+  //Visao dos histogramas ja criados, por nome
+  Map<String, Histogram> histograms();
+}
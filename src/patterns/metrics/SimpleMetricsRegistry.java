@@ -0,0 +1,31 @@
+package patterns.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+//Guarda as metricas em memoria, ordenadas por nome
+public class SimpleMetricsRegistry implements MetricsRegistry {
+  private final Map<String, Counter> counters = new ConcurrentSkipListMap<>();
+  private final Map<String, Histogram> histograms = new ConcurrentSkipListMap<>();
+
+  @Override
+  public Counter counter(String name){
+    return counters.computeIfAbsent(name, key -> new Counter());
+  }
+
+  @Override
+  public Histogram histogram(String name){
+    return histograms.computeIfAbsent(name, key -> new Histogram());
+  }
+
+  @Override
+  public Map<String, Counter> counters(){
+    return Collections.unmodifiableMap(counters);
+  }
+
+  @Override
+  public Map<String, Histogram> histograms(){
+    return Collections.unmodifiableMap(histograms);
+  }
+}
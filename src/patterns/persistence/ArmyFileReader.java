@@ -0,0 +1,268 @@
+package patterns.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import patterns.decorator.UpgradedTroop;
+import patterns.decorator.upgrades.Upgrade;
+import patterns.events.EventSink;
+import patterns.events.Events;
+import patterns.factory.Troop;
+import patterns.factory.UnitType;
+import patterns.factory.army.Army;
+
+/**
+ * Le um arquivo no formato de ArmyFormat mapeando-o em memoria.
+ *
+ * Os registros sao lidos diretamente do MappedByteBuffer, sem desserializar
+ * cada tropa; o arquivo e mapeado em blocos para suportar mais de 2 GB.
+ * O mapeamento e liberado pela JVM quando o leitor deixa de ser referenciado.
+ */
+public class ArmyFileReader implements AutoCloseable {
+  //Blocos de 1 GB, multiplos do tamanho do registro
+  private static final int RECORDS_PER_CHUNK = (1 << 30) / ArmyFormat.RECORD_SIZE;
+  private static final long CHUNK_BYTES = (long) RECORDS_PER_CHUNK * ArmyFormat.RECORD_SIZE;
+
+  private final FileChannel channel;
+  private final MappedByteBuffer[] chunks;
+  private final long recordCount;
+  private final String[] names;
+
+  public ArmyFileReader(Path path) throws IOException {
+    this.channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      ByteBuffer header = ByteBuffer.allocate(ArmyFormat.HEADER_SIZE).order(ArmyFormat.BYTE_ORDER);
+      while(header.hasRemaining()){
+        if(channel.read(header, header.position()) < 0){
+          break;
+        }
+      }
+      header.flip();
+      if(header.remaining() < ArmyFormat.HEADER_SIZE || header.getInt(0) != ArmyFormat.MAGIC){
+        throw new IOException("Arquivo não é um exército válido: " + path);
+      }
+      short version = header.getShort(ArmyFormat.HEADER_VERSION);
+      if(version != ArmyFormat.VERSION){
+        throw new IOException("Versão de arquivo não suportada: " + version);
+      }
+      if(header.getShort(ArmyFormat.HEADER_RECORD_SIZE) != ArmyFormat.RECORD_SIZE){
+        throw new IOException("Tamanho de registro inesperado: " + header.getShort(ArmyFormat.HEADER_RECORD_SIZE));
+      }
+      this.recordCount = header.getLong(ArmyFormat.HEADER_RECORD_COUNT);
+      long tableOffset = header.getLong(ArmyFormat.HEADER_TABLE_OFFSET);
+      int tableCount = header.getInt(ArmyFormat.HEADER_TABLE_COUNT);
+      if(recordCount < 0 || tableCount < 0
+          || tableOffset != ArmyFormat.HEADER_SIZE + recordCount * ArmyFormat.RECORD_SIZE || tableOffset > channel.size()){
+        throw new IOException("Arquivo truncado ou corrompido: " + path);
+      }
+
+      int chunkCount = (int) ((recordCount + RECORDS_PER_CHUNK - 1) / RECORDS_PER_CHUNK);
+      this.chunks = new MappedByteBuffer[chunkCount];
+      for(int i = 0; i < chunkCount; i++){
+        long start = ArmyFormat.HEADER_SIZE + i * CHUNK_BYTES;
+        long length = Math.min(CHUNK_BYTES, tableOffset - start);
+        chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        chunks[i].order(ArmyFormat.BYTE_ORDER);
+      }
+
+      ByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, tableOffset, channel.size() - tableOffset);
+      table.order(ArmyFormat.BYTE_ORDER);
+      this.names = new String[tableCount];
+      for(int i = 0; i < tableCount; i++){
+        int length = table.remaining() < Short.BYTES ? -1 : table.getShort();
+        if(length < 0 || length > table.remaining()){
+          throw new IOException("Tabela de nomes corrompida no nome " + i + ": " + path);
+        }
+        byte[] bytes = new byte[length];
+        table.get(bytes);
+        names[i] = new String(bytes, StandardCharsets.UTF_8);
+      }
+    } catch(IOException | RuntimeException e){
+      channel.close();
+      throw e;
+    }
+  }
+
+  public long size(){
+    return recordCount;
+  }
+
+  public int getAttack(long index){
+    return intAt(index, ArmyFormat.ATTACK);
+  }
+
+  public int getDefense(long index){
+    return intAt(index, ArmyFormat.DEFENSE);
+  }
+
+  public int getGoldCost(long index){
+    return intAt(index, ArmyFormat.GOLD_COST);
+  }
+
+  public int getWoodCost(long index){
+    return intAt(index, ArmyFormat.WOOD_COST);
+  }
+
+  //Tipo da unidade, ou null para tropas gravadas do modelo decorator
+  public UnitType getUnitType(long index){
+    byte id = chunk(index).get(offset(index) + ArmyFormat.UNIT_TYPE);
+    return id == ArmyFormat.NO_UNIT_TYPE ? null : UnitType.fromId(id);
+  }
+
+  //Civilizacao (modelo factory) ou nome da tropa base (modelo decorator)
+  public String getName(long index){
+    return names[nameId(chunk(index), offset(index), index)];
+  }
+
+  public int getUpgradeCount(long index){
+    return chunk(index).get(offset(index) + ArmyFormat.UPGRADE_COUNT);
+  }
+
+  public long getPackedUpgrades(long index){
+    return chunk(index).getLong(offset(index) + ArmyFormat.UPGRADES);
+  }
+
+  /**
+   * Reconstroi uma tropa do modelo decorator, com os upgrades reaplicados.
+   * @throws IOException se a sequencia de upgrades gravada for invalida
+   */
+  public UpgradedTroop component(long index) throws IOException {
+    int count = getUpgradeCount(index);
+    long packed = getPackedUpgrades(index);
+    if(count < 0 || count > Upgrade.MAX_PACKED_UPGRADES){
+      throw new IOException("Registro " + index + " com quantidade de upgrades inválida: " + count);
+    }
+    for(int i = 0; i < count; i++){
+      int id = (int) (packed >>> (i * Upgrade.BITS_PER_UPGRADE)) & ((1 << Upgrade.BITS_PER_UPGRADE) - 1);
+      if(id < 1 || id > Upgrade.count()){
+        throw new IOException("Registro " + index + " com upgrade inválido: " + id);
+      }
+    }
+    return UpgradedTroop.of(getName(index), getAttack(index), getDefense(index), getGoldCost(index), packed, count);
+  }
+
+  //Cursor reutilizavel que le as tropas do modelo factory direto do arquivo
+  public View view(){
+    return new View();
+  }
+
+  //Copia as tropas do modelo factory para um Army em memoria
+  public Army toArmy(){
+    if(recordCount > Integer.MAX_VALUE){
+      throw new IllegalStateException("Exército grande demais para um Army em memória: " + recordCount);
+    }
+    Army army = new Army((int) recordCount);
+    int[] civilizationIds = new int[names.length];
+    for(int i = 0; i < names.length; i++){
+      civilizationIds[i] = army.civilizationId(names[i]);
+    }
+    for(long i = 0; i < recordCount; i++){
+      ByteBuffer chunk = chunk(i);
+      int base = offset(i);
+      byte type = chunk.get(base + ArmyFormat.UNIT_TYPE);
+      if(type == ArmyFormat.NO_UNIT_TYPE){
+        throw new IllegalStateException("Registro " + i + " não é do modelo factory");
+      }
+      army.add(UnitType.fromId(type), civilizationIds[nameId(chunk, base, i)],
+        chunk.getInt(base + ArmyFormat.ATTACK), chunk.getInt(base + ArmyFormat.DEFENSE),
+        chunk.getInt(base + ArmyFormat.GOLD_COST), chunk.getInt(base + ArmyFormat.WOOD_COST));
+    }
+    return army;
+  }
+
+  private int nameId(ByteBuffer chunk, int base, long index){
+    int id = chunk.getShort(base + ArmyFormat.NAME_ID);
+    if(id < 0 || id >= names.length){
+      throw new IllegalStateException("Registro " + index + " com id de nome inválido: " + id);
+    }
+    return id;
+  }
+
+  private int intAt(long index, int field){
+    return chunk(index).getInt(offset(index) + field);
+  }
+
+  private ByteBuffer chunk(long index){
+    if(index < 0 || index >= recordCount){
+      throw new IndexOutOfBoundsException("Registro " + index + " fora de " + recordCount);
+    }
+    return chunks[(int) (index / RECORDS_PER_CHUNK)];
+  }
+
+  private static int offset(long index){
+    return (int) (index % RECORDS_PER_CHUNK) * ArmyFormat.RECORD_SIZE;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  //Visao de um registro do modelo factory, sem copia
+  public final class View implements Troop {
+    private long index;
+
+    private View(){
+    }
+
+    public View moveTo(long index){
+      chunk(index);
+      this.index = index;
+      return this;
+    }
+
+    public long index(){
+      return index;
+    }
+
+    @Override
+    public int getAttack(){
+      return ArmyFileReader.this.getAttack(index);
+    }
+
+    @Override
+    public int getDefense(){
+      return ArmyFileReader.this.getDefense(index);
+    }
+
+    @Override
+    public int getGoldCost(){
+      return ArmyFileReader.this.getGoldCost(index);
+    }
+
+    @Override
+    public int getWoodCost(){
+      return ArmyFileReader.this.getWoodCost(index);
+    }
+
+    @Override
+    public UnitType getUnitType(){
+      return ArmyFileReader.this.getUnitType(index);
+    }
+
+    @Override
+    public String getCivilization(){
+      return getName(index);
+    }
+
+    @Override
+    public String getDescription(){
+      UnitType type = getUnitType();
+      String label = type == null ? "Tropa" : type.getLabel();
+      return String.format("%s %s (Ataque: %d, Defesa: %d, Custo: %d ouro, %d madeira)", label, getCivilization(), getAttack(), getDefense(), getGoldCost(), getWoodCost());
+    }
+
+    @Override
+    public void display(){
+      EventSink events = Events.sink();
+      if(events.isEnabled()){
+        events.error(getDescription());
+      }
+    }
+  }
+}
@@ -0,0 +1,173 @@
+package patterns.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import patterns.decorator.TroopComponent;
+import patterns.decorator.UpgradedTroop;
+import patterns.factory.Troop;
+import patterns.factory.army.Army;
+
+/**
+ * Grava um exercito no formato de ArmyFormat usando um FileChannel e um
+ * buffer direto reutilizado; os registros sao escritos em lotes.
+ * O cabecalho so e preenchido no close(), junto com a tabela de nomes.
+ * Nomes com mais de ArmyFormat.MAX_NAME_BYTES bytes em UTF-8 sao
+ * rejeitados com IOException antes de qualquer registro ser gravado.
+ */
+public class ArmyFileWriter implements AutoCloseable {
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final FileChannel channel;
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ArmyFormat.BYTE_ORDER);
+  private final Map<String, Integer> nameIds = new HashMap<>();
+  private final List<byte[]> names = new ArrayList<>();
+  private long recordCount;
+  private boolean closed;
+
+  public ArmyFileWriter(Path path) throws IOException {
+    this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    this.channel.position(ArmyFormat.HEADER_SIZE);
+  }
+
+  public static void write(Path path, Army army) throws IOException {
+    try(ArmyFileWriter writer = new ArmyFileWriter(path)){
+      writer.addAll(army);
+    }
+  }
+
+  public static void write(Path path, Iterable<? extends TroopComponent> troops) throws IOException {
+    try(ArmyFileWriter writer = new ArmyFileWriter(path)){
+      for(TroopComponent troop : troops){
+        writer.add(troop);
+      }
+    }
+  }
+
+  //Grava uma tropa do modelo factory
+  public void add(Troop troop) throws IOException {
+    writeRecord(troop.getAttack(), troop.getDefense(), troop.getGoldCost(), troop.getWoodCost(),
+      troop.getUnitType().id(), nameId(troop.getCivilization()), 0, 0L);
+  }
+
+  /**
+   * Grava uma tropa do modelo decorator: os atributos da tropa base e a
+   * sequencia de upgrades aplicados.
+   * @throws IllegalArgumentException se a cadeia nao puder ser representada por UpgradedTroop
+   */
+  public void add(TroopComponent troop) throws IOException {
+    UpgradedTroop upgraded = UpgradedTroop.from(troop);
+    writeRecord(upgraded.getBaseAttack(), upgraded.getBaseDefense(), upgraded.getBaseCost(), 0,
+      ArmyFormat.NO_UNIT_TYPE, nameId(upgraded.getName()), upgraded.getUpgradeCount(), upgraded.getPackedUpgrades());
+  }
+
+  public void addAll(Army army) throws IOException {
+    int[] fileIds = new int[0];
+    for(int i = 0; i < army.size(); i++){
+      int civilizationId = army.getCivilizationId(i);
+      if(civilizationId >= fileIds.length){
+        int previous = fileIds.length;
+        fileIds = Arrays.copyOf(fileIds, Math.max(civilizationId + 1, previous * 2));
+        Arrays.fill(fileIds, previous, fileIds.length, -1);
+      }
+      if(fileIds[civilizationId] < 0){
+        fileIds[civilizationId] = nameId(army.civilizationName(civilizationId));
+      }
+      writeRecord(army.getAttack(i), army.getDefense(i), army.getGoldCost(i), army.getWoodCost(i),
+        army.getUnitType(i).id(), fileIds[civilizationId], 0, 0L);
+    }
+  }
+
+  public long getRecordCount(){
+    return recordCount;
+  }
+
+  private void writeRecord(int attack, int defense, int goldCost, int woodCost, byte unitType, int nameId, int upgradeCount, long upgrades) throws IOException {
+    if(closed){
+      throw new IllegalStateException("Arquivo já fechado");
+    }
+    if(buffer.remaining() < ArmyFormat.RECORD_SIZE){
+      drain();
+    }
+    buffer.putInt(attack)
+      .putInt(defense)
+      .putInt(goldCost)
+      .putInt(woodCost)
+      .put(unitType)
+      .put((byte) upgradeCount)
+      .putShort((short) nameId)
+      .putInt(0)
+      .putLong(upgrades);
+    recordCount++;
+  }
+
+  private int nameId(String name) throws IOException {
+    Integer id = nameIds.get(name);
+    if(id != null){
+      return id;
+    }
+    int next = names.size();
+    if(next > Short.MAX_VALUE){
+      throw new IllegalStateException("Limite de nomes atingido: " + next);
+    }
+    byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+    if(bytes.length > ArmyFormat.MAX_NAME_BYTES){
+      throw new IOException("Nome com " + bytes.length + " bytes excede o limite de " + ArmyFormat.MAX_NAME_BYTES);
+    }
+    nameIds.put(name, next);
+    names.add(bytes);
+    return next;
+  }
+
+  private void drain() throws IOException {
+    buffer.flip();
+    while(buffer.hasRemaining()){
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if(closed){
+      return;
+    }
+    try {
+      drain();
+      long tableOffset = channel.position();
+      for(byte[] bytes : names){
+        if(buffer.remaining() < Short.BYTES + bytes.length){
+          drain();
+        }
+        buffer.putShort((short) bytes.length).put(bytes);
+      }
+      drain();
+
+      ByteBuffer header = ByteBuffer.allocate(ArmyFormat.HEADER_SIZE).order(ArmyFormat.BYTE_ORDER);
+      header.putInt(ArmyFormat.MAGIC)
+        .putShort(ArmyFormat.VERSION)
+        .putShort((short) ArmyFormat.RECORD_SIZE)
+        .putLong(recordCount)
+        .putLong(tableOffset)
+        .putInt(names.size())
+        .putInt(0)
+        .flip();
+      channel.position(0);
+      while(header.hasRemaining()){
+        channel.write(header);
+      }
+    } finally {
+      closed = true;
+      channel.close();
+    }
+  }
+}
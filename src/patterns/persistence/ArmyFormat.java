@@ -0,0 +1,63 @@
+package patterns.persistence;
+
+import java.nio.ByteOrder;
+
+/**
+ * Layout do arquivo binario de exercitos (versao 1, little-endian).
+ *
+ * <pre>
+ * Cabecalho (32 bytes)
+ *   0  int   MAGIC "AOEA"
+ *   4  short VERSION
+ *   6  short RECORD_SIZE
+ *   8  long  numero de registros
+ *   16 long  offset da tabela de nomes
+ *   24 int   numero de nomes na tabela
+ *   28 int   reservado
+ *
+ * Registro (32 bytes, a partir do offset 32)
+ *   0  int   ataque
+ *   4  int   defesa
+ *   8  int   custo em ouro (custo total para tropas do modelo decorator)
+ *   12 int   custo em madeira
+ *   16 byte  UnitType (NO_UNIT_TYPE para tropas do modelo decorator)
+ *   17 byte  quantidade de upgrades aplicados
+ *   18 short id do nome (civilizacao ou nome da tropa base) na tabela
+ *   20 int   reservado
+ *   24 long  sequencia de upgrades empacotada (ver Upgrade.append)
+ *
+ * Tabela de nomes: para cada nome, short com o tamanho em bytes + UTF-8
+ * (no maximo MAX_NAME_BYTES bytes).
+ * </pre>
+ *
+ * Para tropas do modelo decorator os atributos gravados sao os da tropa
+ * base; os upgrades sao reaplicados na leitura.
+ */
+public final class ArmyFormat {
+  public static final int MAGIC = 0x41454F41;
+  public static final short VERSION = 1;
+  public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+  public static final int HEADER_SIZE = 32;
+  public static final int RECORD_SIZE = 32;
+  public static final byte NO_UNIT_TYPE = -1;
+  public static final int MAX_NAME_BYTES = Short.MAX_VALUE;
+
+  static final int HEADER_VERSION = 4;
+  static final int HEADER_RECORD_SIZE = 6;
+  static final int HEADER_RECORD_COUNT = 8;
+  static final int HEADER_TABLE_OFFSET = 16;
+  static final int HEADER_TABLE_COUNT = 24;
+
+  static final int ATTACK = 0;
+  static final int DEFENSE = 4;
+  static final int GOLD_COST = 8;
+  static final int WOOD_COST = 12;
+  static final int UNIT_TYPE = 16;
+  static final int UPGRADE_COUNT = 17;
+  static final int NAME_ID = 18;
+  static final int UPGRADES = 24;
+
+  private ArmyFormat(){
+  }
+}
@@ -0,0 +1,333 @@
+package patterns.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Journal append-only dos comandos aplicados a civilizacoes.
+ *
+ * <pre>
+ * Cabecalho (16 bytes): int MAGIC, short VERSION, short reservado, long geracao
+ * Registro (16 bytes):
+ *   0  int   id da civilizacao
+ *   4  byte  tipo (CREATE, SPEND, DEPOSIT, STRATEGY)
+ *   5  byte  reservado
+ *   6  short tamanho do nome em bytes (CREATE e STRATEGY)
+ *   8  int   argumento (recursos iniciais ou valor)
+ *   12 int   verificacao, para detectar um registro escrito pela metade
+ * CREATE e STRATEGY sao seguidos do nome em UTF-8, completado ate multiplo de 16.
+ * </pre>
+ *
+ * Os registros sao acumulados em um buffer e gravados em lote (group
+ * commit) por sync(), que pode ser chamado manualmente ou periodicamente.
+ * Uma falha de escrita deixa o journal inutilizavel: ela e guardada e
+ * relancada pelo append, sync ou close seguinte, inclusive quando veio
+ * do sync periodico.
+ */
+public class CivilizationJournal implements AutoCloseable {
+  public static final int MAGIC = 0x4A454F41;
+  public static final short VERSION = 1;
+  public static final int HEADER_SIZE = 16;
+  public static final int RECORD_SIZE = 16;
+
+  public static final byte CREATE = 1;
+  public static final byte SPEND = 2;
+  public static final byte DEPOSIT = 3;
+  public static final byte STRATEGY = 4;
+
+  static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+  private static final int BUFFER_SIZE = 1 << 20;
+
+  private final FileChannel channel;
+  private final long generation;
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(BYTE_ORDER);
+  private final ScheduledExecutorService syncer;
+  private boolean closed;
+  private IOException failure;
+
+  /**
+   * Abre (ou cria) o journal para escrita no final do arquivo.
+   * @param syncIntervalMillis intervalo do group commit automatico; 0 para apenas sync() manual
+   */
+  public CivilizationJournal(Path path, long generation, long syncIntervalMillis) throws IOException {
+    this.generation = generation;
+    this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    if(channel.size() == 0){
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(BYTE_ORDER);
+      header.putInt(MAGIC).putShort(VERSION).putShort((short) 0).putLong(generation).flip();
+      while(header.hasRemaining()){
+        channel.write(header);
+      }
+    }
+    channel.position(channel.size());
+    if(syncIntervalMillis > 0){
+      syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "journal-sync");
+        thread.setDaemon(true);
+        return thread;
+      });
+      syncer.scheduleWithFixedDelay(this::syncQuietly, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+    } else {
+      syncer = null;
+    }
+  }
+
+  public long getGeneration(){
+    return generation;
+  }
+
+  public synchronized void appendCreate(int civilizationId, String name, int resources) throws IOException {
+    appendNamed(CREATE, civilizationId, name, resources);
+  }
+
+  public synchronized void appendStrategy(int civilizationId, String strategyName) throws IOException {
+    appendNamed(STRATEGY, civilizationId, strategyName, 0);
+  }
+
+  //Registra um debito (ataque aceito) ou credito de recursos
+  public synchronized void append(byte type, int civilizationId, int argument) throws IOException {
+    ensureWritable();
+    if(buffer.remaining() < RECORD_SIZE){
+      drain();
+    }
+    putRecord(type, civilizationId, 0, argument, 0);
+  }
+
+  private void appendNamed(byte type, int civilizationId, String name, int argument) throws IOException {
+    ensureWritable();
+    byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+    if(bytes.length > Short.MAX_VALUE){
+      throw new IllegalArgumentException("Nome longo demais para o journal: " + bytes.length + " bytes");
+    }
+    int padded = paddedLength(bytes.length);
+    if(buffer.remaining() < RECORD_SIZE + padded){
+      drain();
+    }
+    putRecord(type, civilizationId, bytes.length, argument, name.hashCode());
+    buffer.put(bytes);
+    for(int i = bytes.length; i < padded; i++){
+      buffer.put((byte) 0);
+    }
+  }
+
+  private void putRecord(byte type, int civilizationId, int nameLength, int argument, int nameHash){
+    buffer.putInt(civilizationId)
+      .put(type)
+      .put((byte) 0)
+      .putShort((short) nameLength)
+      .putInt(argument)
+      .putInt(check(civilizationId, type, nameLength, argument, nameHash));
+  }
+
+  /**
+   * Grava no arquivo todos os registros acumulados e forca-os para o disco.
+   */
+  public synchronized void sync() throws IOException {
+    if(closed){
+      return;
+    }
+    checkFailure();
+    drain();
+    force();
+  }
+
+  //Chamado pelo group commit automatico; a falha fica guardada para o proximo append/sync/close
+  private void syncQuietly(){
+    try {
+      sync();
+    } catch(IOException e){
+      //ja registrada em failure
+    }
+  }
+
+  private void drain() throws IOException {
+    buffer.flip();
+    try {
+      while(buffer.hasRemaining()){
+        channel.write(buffer);
+      }
+    } catch(IOException e){
+      failure = e;
+      throw e;
+    }
+    buffer.clear();
+  }
+
+  private void force() throws IOException {
+    try {
+      channel.force(false);
+    } catch(IOException e){
+      failure = e;
+      throw e;
+    }
+  }
+
+  private void ensureWritable() throws IOException {
+    if(closed){
+      throw new IllegalStateException("Journal fechado");
+    }
+    checkFailure();
+  }
+
+  private void checkFailure() throws IOException {
+    if(failure != null){
+      throw new IOException("Falha anterior ao gravar o journal", failure);
+    }
+  }
+
+  /**
+   * Aguarda o sync periodico em andamento (sem interrompe-lo, o que fecharia
+   * o canal), grava os registros pendentes e fecha o arquivo.
+   * @throws IOException se esta ou alguma gravacao anterior falhou
+   */
+  @Override
+  public void close() throws IOException {
+    //o status de interrupcao e restaurado so depois da gravacao final: com ele ligado o FileChannel fecharia
+    boolean interrupted = Thread.interrupted();
+    if(syncer != null){
+      syncer.shutdown();
+      try {
+        syncer.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+      } catch(InterruptedException e){
+        interrupted = true;
+      }
+    }
+    try {
+      synchronized(this){
+        if(closed){
+          return;
+        }
+        try {
+          checkFailure();
+          drain();
+          force();
+        } finally {
+          closed = true;
+          channel.close();
+        }
+      }
+    } finally {
+      if(interrupted){
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Le os registros de um journal em sequencia. Para no primeiro registro
+   * incompleto ou invalido (fim de uma escrita interrompida) e retorna o
+   * numero de bytes validos, para que o arquivo possa ser truncado ali.
+   */
+  public static long replay(Path path, long expectedGeneration, Handler handler) throws IOException {
+    if(!Files.exists(path)){
+      return 0;
+    }
+    try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+      ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(BYTE_ORDER);
+      buffer.flip();
+      if(!fill(buffer, channel, HEADER_SIZE) || buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION){
+        throw new IOException("Journal inválido: " + path);
+      }
+      if(buffer.getLong(8) != expectedGeneration){
+        throw new IOException("Journal de geração " + buffer.getLong(8) + ", esperado " + expectedGeneration + ": " + path);
+      }
+      buffer.position(HEADER_SIZE);
+      long valid = HEADER_SIZE;
+      byte[] name = new byte[64];
+      while(fill(buffer, channel, RECORD_SIZE)){
+        int start = buffer.position();
+        int civilizationId = buffer.getInt(start);
+        byte type = buffer.get(start + 4);
+        int nameLength = buffer.getShort(start + 6);
+        int argument = buffer.getInt(start + 8);
+        int check = buffer.getInt(start + 12);
+        if(type == SPEND || type == DEPOSIT){
+          if(check != check(civilizationId, type, 0, argument, 0)){
+            break;
+          }
+          buffer.position(start + RECORD_SIZE);
+          valid += RECORD_SIZE;
+          if(type == SPEND){
+            handler.spend(civilizationId, argument);
+          } else {
+            handler.deposit(civilizationId, argument);
+          }
+          continue;
+        }
+        if((type != CREATE && type != STRATEGY) || nameLength < 0){
+          break;
+        }
+        int size = RECORD_SIZE + paddedLength(nameLength);
+        if(!fill(buffer, channel, size)){
+          break;
+        }
+        start = buffer.position();
+        if(name.length < nameLength){
+          name = new byte[nameLength];
+        }
+        buffer.get(start + RECORD_SIZE, name, 0, nameLength);
+        String text = new String(name, 0, nameLength, StandardCharsets.UTF_8);
+        if(check != check(civilizationId, type, nameLength, argument, text.hashCode())){
+          break;
+        }
+        buffer.position(start + size);
+        valid += size;
+        if(type == CREATE){
+          handler.create(civilizationId, text, argument);
+        } else {
+          handler.strategy(civilizationId, text);
+        }
+      }
+      return valid;
+    }
+  }
+
+  //Garante pelo menos required bytes disponiveis no buffer (em modo leitura); false no fim do arquivo
+  private static boolean fill(ByteBuffer buffer, FileChannel channel, int required) throws IOException {
+    if(buffer.remaining() >= required){
+      return true;
+    }
+    buffer.compact();
+    try {
+      while(buffer.position() < required){
+        if(channel.read(buffer) < 0){
+          return false;
+        }
+      }
+      return true;
+    } finally {
+      buffer.flip();
+    }
+  }
+
+  private static int paddedLength(int length){
+    return (length + RECORD_SIZE - 1) & -RECORD_SIZE;
+  }
+
+  private static int check(int civilizationId, byte type, int nameLength, int argument, int nameHash){
+    int hash = MAGIC;
+    hash = 31 * hash + civilizationId;
+    hash = 31 * hash + type;
+    hash = 31 * hash + nameLength;
+    hash = 31 * hash + argument;
+    hash = 31 * hash + nameHash;
+    return hash;
+  }
+
+  //Recebe os registros durante o replay
+  public interface Handler {
+    void create(int civilizationId, String name, int resources);
+    void spend(int civilizationId, int amount);
+    void deposit(int civilizationId, int amount);
+    void strategy(int civilizationId, String strategyName);
+  }
+}
@@ -0,0 +1,137 @@
+package patterns.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import patterns.strategy.Civilization;
+import patterns.strategy.StrategyRegistry;
+
+/**
+ * Snapshot do estado de um conjunto de civilizacoes.
+ *
+ * <pre>
+ * Cabecalho (24 bytes): int MAGIC, short VERSION, short reservado,
+ *                       long geracao do journal seguinte, int quantidade, int reservado
+ * Para cada civilizacao: int recursos, short tamanho do nome, nome UTF-8,
+ *                        short tamanho da estrategia, nome da estrategia UTF-8
+ * </pre>
+ *
+ * O arquivo e escrito em um temporario e movido atomicamente, entao um
+ * snapshot lido e sempre completo. Nomes de civilizacao e de estrategia
+ * com mais de MAX_NAME_BYTES bytes em UTF-8 sao recusados com IOException.
+ */
+public final class CivilizationSnapshot {
+  public static final int MAGIC = 0x53454F41;
+  public static final short VERSION = 1;
+  public static final int MAX_NAME_BYTES = Short.MAX_VALUE;
+  private static final int HEADER_SIZE = 24;
+  //Cabe o maior registro possivel: recursos e dois nomes de MAX_NAME_BYTES
+  private static final int BUFFER_SIZE = 1 << 17;
+
+  private final long generation;
+  private final List<Civilization> civilizations;
+
+  private CivilizationSnapshot(long generation, List<Civilization> civilizations){
+    this.generation = generation;
+    this.civilizations = civilizations;
+  }
+
+  //Geracao do journal que continua a partir deste snapshot
+  public long getGeneration(){
+    return generation;
+  }
+
+  //Civilizacoes na ordem dos ids
+  public List<Civilization> getCivilizations(){
+    return civilizations;
+  }
+
+  public static void write(Path path, long generation, List<Civilization> civilizations) throws IOException {
+    Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+    try {
+      try(FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(CivilizationJournal.BYTE_ORDER);
+        buffer.putInt(MAGIC).putShort(VERSION).putShort((short) 0).putLong(generation).putInt(civilizations.size()).putInt(0);
+        for(Civilization civilization : civilizations){
+          byte[] name = encode(civilization.getName());
+          byte[] strategy = encode(civilization.getStrategy().getName());
+          int size = Integer.BYTES + 2 * Short.BYTES + name.length + strategy.length;
+          if(buffer.remaining() < size){
+            drain(buffer, channel);
+          }
+          buffer.putInt(civilization.getResources())
+            .putShort((short) name.length).put(name)
+            .putShort((short) strategy.length).put(strategy);
+        }
+        drain(buffer, channel);
+        channel.force(true);
+      }
+      Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch(IOException | RuntimeException e){
+      //nao deixa um temporario pela metade; o snapshot anterior continua valido
+      try {
+        Files.deleteIfExists(temporary);
+      } catch(IOException suppressed){
+        e.addSuppressed(suppressed);
+      }
+      throw e;
+    }
+  }
+
+  private static byte[] encode(String name) throws IOException {
+    byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+    if(bytes.length > MAX_NAME_BYTES){
+      throw new IOException("Nome com " + bytes.length + " bytes excede o limite de " + MAX_NAME_BYTES);
+    }
+    return bytes;
+  }
+
+  /**
+   * @return o snapshot, ou null se o arquivo nao existir
+   */
+  public static CivilizationSnapshot read(Path path, StrategyRegistry strategies) throws IOException {
+    if(!Files.exists(path)){
+      return null;
+    }
+    try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+      ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(CivilizationJournal.BYTE_ORDER);
+      if(buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getShort() != VERSION){
+        throw new IOException("Snapshot inválido: " + path);
+      }
+      buffer.getShort();
+      long generation = buffer.getLong();
+      int count = buffer.getInt();
+      buffer.getInt();
+      List<Civilization> civilizations = new ArrayList<>(count);
+      for(int i = 0; i < count; i++){
+        int resources = buffer.getInt();
+        String name = readString(buffer);
+        String strategy = readString(buffer);
+        civilizations.add(new Civilization(name, resources, strategies.get(strategy)));
+      }
+      return new CivilizationSnapshot(generation, civilizations);
+    }
+  }
+
+  private static String readString(ByteBuffer buffer){
+    byte[] bytes = new byte[buffer.getShort()];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void drain(ByteBuffer buffer, FileChannel channel) throws IOException {
+    buffer.flip();
+    while(buffer.hasRemaining()){
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+}
@@ -0,0 +1,244 @@
+package patterns.persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import patterns.strategy.AttackStrategy;
+import patterns.strategy.Civilization;
+import patterns.strategy.StrategyRegistry;
+
+/**
+ * Conjunto de civilizacoes cujas mudancas de estado sao registradas em um
+ * CivilizationJournal, com snapshots periodicos.
+ *
+ * O journal guarda o efeito de cada comando (recursos debitados ou
+ * creditados, estrategia escolhida), nao o comando em si: assim o replay
+ * chega ao mesmo estado mesmo quando threads diferentes intercalaram
+ * ataques e depositos em outra ordem.
+ *
+ * Arquivos no diretorio: snapshot.bin e journal-&lt;geracao&gt;.bin.
+ */
+public class JournaledCivilizations implements AutoCloseable {
+  private static final String SNAPSHOT_FILE = "snapshot.bin";
+
+  private final Path directory;
+  private final StrategyRegistry strategies;
+  private final long syncIntervalMillis;
+  private final List<Civilization> civilizations;
+  //comandos usam a leitura (compartilhada); o snapshot usa a escrita para ver um estado estavel
+  private final ReentrantReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+  private CivilizationJournal journal;
+
+  private JournaledCivilizations(Path directory, StrategyRegistry strategies, long syncIntervalMillis,
+                                 List<Civilization> civilizations, CivilizationJournal journal){
+    this.directory = directory;
+    this.strategies = strategies;
+    this.syncIntervalMillis = syncIntervalMillis;
+    this.civilizations = new CopyOnWriteArrayList<>(civilizations);
+    this.journal = journal;
+  }
+
+  /**
+   * Recupera o estado do diretorio (ultimo snapshot + replay do journal)
+   * ou comeca vazio se nao houver nada gravado.
+   * @param syncIntervalMillis intervalo do group commit automatico; 0 para apenas sync() manual
+   */
+  public static JournaledCivilizations open(Path directory, StrategyRegistry strategies, long syncIntervalMillis) throws IOException {
+    Files.createDirectories(directory);
+    CivilizationSnapshot snapshot = CivilizationSnapshot.read(directory.resolve(SNAPSHOT_FILE), strategies);
+    long generation = snapshot == null ? 0 : snapshot.getGeneration();
+    List<Civilization> civilizations = snapshot == null ? new ArrayList<>() : new ArrayList<>(snapshot.getCivilizations());
+
+    Path journalPath = journalPath(directory, generation);
+    long valid = CivilizationJournal.replay(journalPath, generation, new Replayer(civilizations, strategies));
+    if(valid > 0 && Files.size(journalPath) > valid){
+      //descarta o final de uma escrita interrompida
+      try(FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.WRITE)){
+        channel.truncate(valid);
+      }
+    }
+    CivilizationJournal journal = new CivilizationJournal(journalPath, generation, syncIntervalMillis);
+    return new JournaledCivilizations(directory, strategies, syncIntervalMillis, civilizations, journal);
+  }
+
+  //Cria uma civilizacao com a estrategia padrao; retorna o seu id
+  public int create(String name, int resources) throws IOException {
+    snapshotLock.readLock().lock();
+    try {
+      synchronized(civilizations){
+        int id = civilizations.size();
+        Civilization civilization = new Civilization(name, resources);
+        journal.appendCreate(id, name, resources);
+        civilizations.add(civilization);
+        return id;
+      }
+    } finally {
+      snapshotLock.readLock().unlock();
+    }
+  }
+
+  //Apenas leitura: as mudancas passam por attack, addResources e setStrategy, que as registram no journal
+  public String getName(int id){
+    return civilizations.get(id).getName();
+  }
+
+  public int getResources(int id){
+    return civilizations.get(id).getResources();
+  }
+
+  public AttackStrategy getStrategy(int id){
+    return civilizations.get(id).getStrategy();
+  }
+
+  public int size(){
+    return civilizations.size();
+  }
+
+  //Executa o ataque e, se aceito, registra o debito
+  public int attack(int id) throws IOException {
+    Civilization civilization = civilizations.get(id);
+    snapshotLock.readLock().lock();
+    try {
+      int power = civilization.attack();
+      if(power != Civilization.ATTACK_REJECTED){
+        journal.append(CivilizationJournal.SPEND, id, Civilization.ATTACK_COST);
+      }
+      return power;
+    } finally {
+      snapshotLock.readLock().unlock();
+    }
+  }
+
+  public void addResources(int id, int amount) throws IOException {
+    Civilization civilization = civilizations.get(id);
+    snapshotLock.readLock().lock();
+    try {
+      civilization.addResources(amount);
+      journal.append(CivilizationJournal.DEPOSIT, id, amount);
+    } finally {
+      snapshotLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @throws IllegalArgumentException se a estrategia nao estiver no StrategyRegistry
+   */
+  public void setStrategy(int id, AttackStrategy strategy) throws IOException {
+    if(!strategies.contains(strategy.getName())){
+      throw new IllegalArgumentException("Estratégia não registrada: " + strategy.getName());
+    }
+    Civilization civilization = civilizations.get(id);
+    snapshotLock.readLock().lock();
+    try {
+      //a troca e o registro ficam juntos para que o journal siga a mesma ordem das trocas
+      synchronized(civilization){
+        civilization.setStrategy(strategy);
+        journal.appendStrategy(id, strategy.getName());
+      }
+    } finally {
+      snapshotLock.readLock().unlock();
+    }
+  }
+
+  //Group commit: grava e forca para o disco os registros acumulados
+  public void sync() throws IOException {
+    journal.sync();
+  }
+
+  /**
+   * Grava um snapshot do estado atual e inicia um novo journal, apagando o
+   * anterior. Os comandos ficam pausados durante a gravacao.
+   *
+   * O journal novo e aberto e o snapshot gravado antes de qualquer troca:
+   * se algum dos dois falhar, o journal atual continua em uso e os
+   * comandos seguintes funcionam normalmente.
+   */
+  public void snapshot() throws IOException {
+    snapshotLock.writeLock().lock();
+    try {
+      long next = journal.getGeneration() + 1;
+      Path nextPath = journalPath(directory, next);
+      //sobra de uma tentativa que falhou; nenhum snapshot aponta para ela
+      Files.deleteIfExists(nextPath);
+      CivilizationJournal nextJournal = new CivilizationJournal(nextPath, next, syncIntervalMillis);
+      try {
+        CivilizationSnapshot.write(directory.resolve(SNAPSHOT_FILE), next, new ArrayList<>(civilizations));
+      } catch(IOException | RuntimeException e){
+        discard(nextJournal, nextPath, e);
+        throw e;
+      }
+      CivilizationJournal previous = journal;
+      journal = nextJournal;
+      //o snapshot ja contem tudo o que o journal anterior registrou
+      previous.close();
+      Files.deleteIfExists(journalPath(directory, previous.getGeneration()));
+    } finally {
+      snapshotLock.writeLock().unlock();
+    }
+  }
+
+  private static void discard(CivilizationJournal journal, Path path, Exception cause){
+    try {
+      journal.close();
+      Files.deleteIfExists(path);
+    } catch(IOException | RuntimeException e){
+      cause.addSuppressed(e);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    snapshotLock.writeLock().lock();
+    try {
+      journal.close();
+    } finally {
+      snapshotLock.writeLock().unlock();
+    }
+  }
+
+  private static Path journalPath(Path directory, long generation){
+    return directory.resolve("journal-" + generation + ".bin");
+  }
+
+  //Aplica os registros do journal sem passar pelos eventos nem pelas verificacoes
+  private static final class Replayer implements CivilizationJournal.Handler {
+    private final List<Civilization> civilizations;
+    private final StrategyRegistry strategies;
+
+    Replayer(List<Civilization> civilizations, StrategyRegistry strategies){
+      this.civilizations = civilizations;
+      this.strategies = strategies;
+    }
+
+    @Override
+    public void create(int civilizationId, String name, int resources){
+      if(civilizationId != civilizations.size()){
+        throw new UncheckedIOException(new IOException("Journal fora de ordem: civilização " + civilizationId));
+      }
+      civilizations.add(new Civilization(name, resources));
+    }
+
+    @Override
+    public void spend(int civilizationId, int amount){
+      civilizations.get(civilizationId).deposit(-amount);
+    }
+
+    @Override
+    public void deposit(int civilizationId, int amount){
+      civilizations.get(civilizationId).deposit(amount);
+    }
+
+    @Override
+    public void strategy(int civilizationId, String strategyName){
+      civilizations.get(civilizationId).replaceStrategy(strategies.get(strategyName));
+    }
+  }
+}
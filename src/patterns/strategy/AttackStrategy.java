@@ -3,11 +3,44 @@ package patterns.strategy;
 public interface AttackStrategy {
   /**
    * Executa a estrategia de ataque
+   * Civilization.attack usa este texto nos eventos; o poder devolvido pelo
+   * ataque vem sempre de attackPower.
    * @parem basePower poder base da civilização
    * @return Descricao do resultado do ataque
    */
 
-  String execute(int basePower);
+  default String execute(int basePower){
+    return describe(attackPower(basePower));
+  }
+
+  /**
+   * Calcula o poder de ataque sem alocar nenhum objeto
+   * @param basePower poder base da civilização
+   * @return poder de ataque com o modificador aplicado
+   */
+  default int attackPower(int basePower){
+    return (int)(basePower * getAttackModifier());
+  }
+
+  /**
+   * Calcula o poder de defesa sem alocar nenhum objeto
+   * @param basePower poder base da civilização
+   * @return poder de defesa com o modificador aplicado
+   */
+  default int defensePower(int basePower){
+    return (int)(basePower * getDefenseModifier());
+  }
+
+  /**
+   * Monta o texto do ataque; so deve ser chamado quando alguem for ler.
+   * Estrategias que so sobrescrevem execute continuam compilando e nao
+   * passam por aqui: o texto delas e o do proprio execute.
+   * @param attackPower poder ja calculado por attackPower
+   * @return Descricao do resultado do ataque
+   */
+  default String describe(int attackPower){
+    return String.format("Ataque %s com poder %d!", getName(), attackPower);
+  }
 
   /**
    * Calcula o modificador de ataque da estrategia
@@ -1,56 +1,145 @@
 package patterns.strategy;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
+import patterns.events.EventSink;
+import patterns.events.Events;
+import patterns.metrics.Metrics;
 import patterns.strategy.strategies.BalancedStrategy;
 
 public class Civilization {
+  public static final int ATTACK_COST = 50;
+  //Retornado por attack() quando nao ha recursos para atacar
+  public static final int ATTACK_REJECTED = -1;
+
   private final String name;
   private final int militaryPower;
-  private int resources;
-  private AttackStrategy strategy;
+  private final AtomicInteger resources;
+  private volatile AttackStrategy strategy;
+  //Sink fixo desta civilizacao; null usa o global de Events
+  private final EventSink events;
   /**
   * Classe Civilization (Contexto do padrão Strategy).
   * 
   * Esta classe usa uma estratégia de ataque que pode ser trocada
   * dinamicamente durante o jogo, permitindo que a civilização
   * adapte sua forma de combate conforme necessário.
+  *
+  * E segura para uso por varias threads sem locks: os recursos sao
+  * gastos com compare-and-set e a estrategia e publicada via volatile.
   */
   public Civilization(String name, int resources){
+    this(name, resources, new BalancedStrategy());
+  }
+
+  public Civilization(String name, int resources, AttackStrategy strategy){
+    this(name, resources, strategy, null);
+  }
+
+  /**
+   * Civilizacao que publica seus eventos sempre em events, sem consultar
+   * Events. Usada por quem executa simulacoes com um sink proprio sem
+   * trocar o global, que e compartilhado pelo processo inteiro.
+   * @param events sink desta civilizacao, ou null para usar o de Events
+   */
+  public Civilization(String name, int resources, AttackStrategy strategy, EventSink events){
     this.name = name;
     this.militaryPower = 100;
-    this.resources = resources;
-    this.strategy = new BalancedStrategy();
+    this.resources = new AtomicInteger(resources);
+    this.strategy = strategy;
+    this.events = events;
   }
 
   //Trocar a estrategia em tempo de execução
   public void setStrategy(AttackStrategy strategy){
+    replaceStrategy(strategy);
+    EventSink events = events();
+    if(events.isEnabled()){
+      events.info(name + "mudou de estratégia: " + strategy.getName());
+    }
+  }
+
+  //Troca a estrategia sem publicar evento; retorna a anterior
+  public AttackStrategy replaceStrategy(AttackStrategy strategy){
+    AttackStrategy previous = this.strategy;
     this.strategy = strategy;
-    System.out.println(name + "mudou de estratégia: " + strategy.getName());
+    return previous;
   }
 
-  //executa um ataque usando a estrategia atual
-  public void attack(){
-    if(resources < 50){
-      System.err.println("Rescursos insuficientes para atacar!");
-      return;
+  //executa um ataque usando a estrategia atual; retorna o poder do ataque (ATTACK_REJECTED se nao houve ataque)
+  public int attack(){
+    int remaining = trySpend(ATTACK_COST);
+    EventSink events = events();
+    Metrics metrics = Metrics.get();
+    if(remaining < 0){
+      if(metrics.isEnabled()){
+        metrics.attackRejected();
+      }
+      if(events.isEnabled()){
+        events.error("Rescursos insuficientes para atacar!");
+      }
+      return ATTACK_REJECTED;
+    }
+    AttackStrategy current = strategy;
+    //o relogio so e lido com as metricas ligadas; o trecho medido e todo o trabalho da estrategia
+    long start = metrics.isEnabled() ? System.nanoTime() : 0;
+    int power = current.attackPower(militaryPower);
+    //execute, e nao describe, para que estrategias que so sobrescrevem execute mantenham o seu texto
+    String description = events.isEnabled() ? current.execute(militaryPower) : null;
+    if(metrics.isEnabled()){
+      metrics.strategyTime(current.getClass(), System.nanoTime() - start);
+      metrics.attackExecuted();
+    }
+    if(description != null){
+      events.info(name + "->" + description);
+      events.info(" Rescursos restantes: " + remaining);
     }
-    resources -=50;
-    String result = strategy.execute(militaryPower);
-    System.out.println(name + "->" + result );
-    System.out.println(" Rescursos restantes: " + resources);
+    return power;
+  }
+
+  //Gasta recursos atomicamente; retorna o saldo restante ou -1 se nao houver o suficiente
+  public int trySpend(int amount){
+    int current = resources.get();
+    while(current >= amount){
+      int next = current - amount;
+      if(resources.compareAndSet(current, next)){
+        return next;
+      }
+      current = resources.get();
+    }
+    return -1;
   }
 
   public void displayInfo(){
-    System.out.println("CIVILIZAÇÃO: " + String.format("%-24s", name)  );
-    System.out.println("Poder Militar: " + String.format("%-20d", militaryPower) );
-    System.out.println("Recursos: " + String.format("%-25d", resources));
-    System.out.println("Estratégia: " + String.format("%-23s", strategy.getName()));
-    System.out.println("Modificador Ataque: " + String.format("%-15.0f%%", (strategy.getAttackModifier() * 100)) );
-    System.out.println("Modificador Defesa: " + String.format("%-15.0f%%", (strategy.getDefenseModifier() * 100)) );
+    EventSink events = events();
+    if(!events.isEnabled()){
+      return;
+    }
+    AttackStrategy strategy = this.strategy;
+    events.info("CIVILIZAÇÃO: " + String.format("%-24s", name)  );
+    events.info("Poder Militar: " + String.format("%-20d", militaryPower) );
+    events.info("Recursos: " + String.format("%-25d", resources.get()));
+    events.info("Estratégia: " + String.format("%-23s", strategy.getName()));
+    events.info("Modificador Ataque: " + String.format("%-15.0f%%", (strategy.getAttackModifier() * 100)) );
+    events.info("Modificador Defesa: " + String.format("%-15.0f%%", (strategy.getDefenseModifier() * 100)) );
   }
 
   public void addResources(int amount){
-    resources += amount;
-    System.out.println(name + " ganhou " + amount + " recursos!");
+    deposit(amount);
+    EventSink events = events();
+    if(events.isEnabled()){
+      events.info(name + " ganhou " + amount + " recursos!");
+    }
+  }
+
+  //Ajusta o saldo sem verificacao nem evento (valores negativos debitam)
+  public void deposit(int amount){
+    resources.getAndAdd(amount);
+  }
+
+  private EventSink events(){
+    EventSink own = events;
+    return own != null ? own : Events.sink();
   }
 
   public String getName(){
@@ -61,5 +150,13 @@ public class Civilization {
     return strategy;
   }
 
+  public int getResources(){
+    return resources.get();
+  }
+
+  public int getMilitaryPower(){
+    return militaryPower;
+  }
+
 
 }
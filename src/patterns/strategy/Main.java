@@ -1,5 +1,15 @@
 package patterns.strategy;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import patterns.events.EventSink;
+import patterns.events.Events;
+import patterns.events.NoOpEventSink;
+import patterns.strategy.actor.ActorRuntime;
+import patterns.strategy.actor.CivilizationActor;
+import patterns.strategy.simulation.TickSimulation;
 import patterns.strategy.strategies.AggressiveStrategy;
 import patterns.strategy.strategies.BalancedStrategy;
 import patterns.strategy.strategies.DefensiveStrategy;
@@ -48,5 +58,42 @@ public class Main {
         System.out.println("\nAtaques simultâneos:");
         vikings.attack();
         byzantines.attack();
+
+        // Milhares de civilizações simuladas em ticks, divididas entre as threads
+        System.out.println("\n\n=== Simulação em Ticks ===");
+        List<Civilization> world = new ArrayList<>();
+        AttackStrategy[] strategies = {new AggressiveStrategy(), new BalancedStrategy(), new DefensiveStrategy()};
+        for (int i = 0; i < 5000; i++) {
+            world.add(new Civilization("Civilização " + i, 500, strategies[i % strategies.length]));
+        }
+        EventSink previous = Events.install(NoOpEventSink.INSTANCE);
+        try {
+            TickSimulation simulation = new TickSimulation(world, Runtime.getRuntime().availableProcessors(), 42);
+            System.out.println(simulation.run(500));
+            System.out.println("Estado final: " + simulation.stateHash());
+        } finally {
+            Events.install(previous);
+        }
+
+        // Civilizações como atores: comandos por mensagem, sem locks
+        System.out.println("\n\n=== Civilizações como Atores ===");
+        previous = Events.install(NoOpEventSink.INSTANCE);
+        try (ActorRuntime runtime = new ActorRuntime(Runtime.getRuntime().availableProcessors())) {
+            List<CivilizationActor> actors = new ArrayList<>();
+            for (Civilization civilization : world) {
+                actors.add(runtime.spawn(civilization));
+            }
+            for (int round = 0; round < 100; round++) {
+                for (CivilizationActor actor : actors) {
+                    actor.tell(civilization -> civilization.addResources(10));
+                    actor.tell(Civilization::attack);
+                }
+            }
+            CompletableFuture<Integer> resources = actors.get(0).getResources();
+            System.out.println(actors.get(0).getName() + ": " + resources.join() + " recursos");
+            System.out.println(runtime.getStats());
+        } finally {
+            Events.install(previous);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,62 @@
+package patterns.strategy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import patterns.strategy.strategies.AggressiveStrategy;
+import patterns.strategy.strategies.BalancedStrategy;
+import patterns.strategy.strategies.DefensiveStrategy;
+
+/**
+ * Catalogo de estrategias conhecidas, indexado pelo nome (getName()).
+ *
+ * Usado quando uma estrategia precisa ser referenciada fora da memoria,
+ * por exemplo em arquivos de journal ou de cenario. Ja vem com as tres
+ * estrategias padrao; estrategias do usuario devem ser registradas antes
+ * de serem lidas de volta.
+ */
+public class StrategyRegistry {
+  private final Map<String, AttackStrategy> byName = new ConcurrentHashMap<>();
+  private final List<AttackStrategy> ordered = Collections.synchronizedList(new ArrayList<>());
+
+  public StrategyRegistry(){
+    register(new AggressiveStrategy());
+    register(new BalancedStrategy());
+    register(new DefensiveStrategy());
+  }
+
+  public void register(AttackStrategy strategy){
+    if(byName.putIfAbsent(strategy.getName(), strategy) == null){
+      ordered.add(strategy);
+    }
+  }
+
+  /**
+   * @throws IllegalArgumentException se nenhuma estrategia com esse nome foi registrada
+   */
+  public AttackStrategy get(String name){
+    AttackStrategy strategy = byName.get(name);
+    if(strategy == null){
+      throw new IllegalArgumentException("Estratégia desconhecida: " + name);
+    }
+    return strategy;
+  }
+
+  public boolean contains(String name){
+    return byName.containsKey(name);
+  }
+
+  public int size(){
+    return ordered.size();
+  }
+
+  //Estrategias na ordem de registro
+  public List<AttackStrategy> all(){
+    synchronized(ordered){
+      return List.copyOf(ordered);
+    }
+  }
+}
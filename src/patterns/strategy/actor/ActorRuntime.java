@@ -0,0 +1,129 @@
+package patterns.strategy.actor;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import patterns.metrics.Histogram;
+import patterns.strategy.Civilization;
+
+/**
+ * Executa civilizacoes como atores.
+ *
+ * Cada CivilizationActor tem a sua caixa de mensagens e processa uma
+ * mensagem por vez; os atores com mensagens pendentes sao agendados em um
+ * ForkJoinPool em modo FIFO com poucas threads, entao centenas de milhares
+ * de atores custam apenas a memoria das suas caixas. Um ator processa no
+ * maximo throughput mensagens por vez antes de devolver a thread, para que
+ * uma caixa cheia nao monopolize o pool.
+ */
+public class ActorRuntime implements AutoCloseable {
+  private final ForkJoinPool pool;
+  private final int throughput;
+  private final AtomicInteger actors = new AtomicInteger();
+  private final LongAdder queued = new LongAdder();
+  private final LongAdder processed = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  //Envios entre a checagem de closed e o agendamento do ator; close espera por eles
+  private final LongAdder sending = new LongAdder();
+  //Tempo entre o envio e o fim do processamento de cada mensagem, em nanossegundos
+  private final Histogram latency = new Histogram();
+  private volatile boolean closed;
+
+  public ActorRuntime(int threads, int throughput){
+    if(threads <= 0 || throughput <= 0){
+      throw new IllegalArgumentException("Threads e throughput devem ser positivos");
+    }
+    this.pool = new ForkJoinPool(threads, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+    this.throughput = throughput;
+  }
+
+  public ActorRuntime(int threads){
+    this(threads, 64);
+  }
+
+  public CivilizationActor spawn(Civilization civilization){
+    if(closed){
+      throw new RejectedExecutionException("Runtime de atores encerrado");
+    }
+    actors.incrementAndGet();
+    return new CivilizationActor(this, civilization);
+  }
+
+  //Lanca RejectedExecutionException se o pool ja foi encerrado
+  void schedule(CivilizationActor actor){
+    pool.execute(actor);
+  }
+
+  /**
+   * Registra um envio em andamento; false se o runtime ja foi fechado. O
+   * contador e incrementado antes de ler closed e close escreve closed
+   * antes de somar o contador, entao ou o envio ve o runtime fechado ou
+   * close espera o envio terminar.
+   */
+  boolean beginSend(){
+    sending.increment();
+    if(closed){
+      sending.decrement();
+      return false;
+    }
+    return true;
+  }
+
+  void endSend(){
+    sending.decrement();
+  }
+
+  int getThroughput(){
+    return throughput;
+  }
+
+  void enqueued(){
+    queued.increment();
+  }
+
+  void processed(long latencyNanos, boolean success){
+    queued.decrement();
+    processed.increment();
+    if(!success){
+      failed.increment();
+    }
+    latency.record(latencyNanos);
+  }
+
+  public ActorStats getStats(){
+    return new ActorStats(actors.get(), queued.sum(), processed.sum(), failed.sum(),
+      latency.getMean(), latency.getPercentile(0.5), latency.getPercentile(0.99), latency.getMax());
+  }
+
+  /**
+   * Recusa novas mensagens e espera as pendentes serem processadas.
+   * Mensagens enviadas depois do fechamento falham com
+   * RejectedExecutionException.
+   *
+   * O pool so e encerrado quando nao ha envios em andamento nem mensagens
+   * na fila: um ator agendado logo antes de shutdown() pode ser descartado
+   * pelo ForkJoinPool se ele parecer quiescente, entao isQuiescent() sozinho
+   * nao basta.
+   */
+  @Override
+  public void close(){
+    closed = true;
+    while(sending.sum() > 0 || queued.sum() > 0){
+      if(pool.isQuiescent()){
+        //mensagem entre a caixa e o agendamento do ator
+        Thread.yield();
+      } else {
+        pool.awaitQuiescence(100, TimeUnit.MILLISECONDS);
+      }
+    }
+    pool.shutdown();
+    try {
+      pool.awaitTermination(1, TimeUnit.MINUTES);
+    } catch(InterruptedException e){
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package patterns.strategy.actor;
+
+/**
+ * Estado de um ActorRuntime em um instante. Latencias em nanossegundos,
+ * do envio da mensagem ao fim do seu processamento.
+ */
+public class ActorStats {
+  private final int actors;
+  private final long mailboxDepth;
+  private final long processed;
+  private final long failed;
+  private final double meanLatency;
+  private final long medianLatency;
+  private final long p99Latency;
+  private final long maxLatency;
+
+  ActorStats(int actors, long mailboxDepth, long processed, long failed,
+             double meanLatency, long medianLatency, long p99Latency, long maxLatency){
+    this.actors = actors;
+    this.mailboxDepth = mailboxDepth;
+    this.processed = processed;
+    this.failed = failed;
+    this.meanLatency = meanLatency;
+    this.medianLatency = medianLatency;
+    this.p99Latency = p99Latency;
+    this.maxLatency = maxLatency;
+  }
+
+  public int getActors(){
+    return actors;
+  }
+
+  //Total de mensagens aguardando em todas as caixas
+  public long getMailboxDepth(){
+    return mailboxDepth;
+  }
+
+  public long getProcessed(){
+    return processed;
+  }
+
+  public long getFailed(){
+    return failed;
+  }
+
+  public double getMeanLatency(){
+    return meanLatency;
+  }
+
+  public long getMedianLatency(){
+    return medianLatency;
+  }
+
+  public long getP99Latency(){
+    return p99Latency;
+  }
+
+  public long getMaxLatency(){
+    return maxLatency;
+  }
+
+  @Override
+  public String toString(){
+    return String.format("%d atores, %d mensagens processadas (%d com erro), %d na fila; latência média %.1f µs, p50 %.1f µs, p99 %.1f µs, máx %.1f µs",
+      actors, processed, failed, mailboxDepth, meanLatency / 1000, medianLatency / 1000.0, p99Latency / 1000.0, maxLatency / 1000.0);
+  }
+}
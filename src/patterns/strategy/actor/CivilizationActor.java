@@ -0,0 +1,187 @@
+package patterns.strategy.actor;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import patterns.strategy.AttackStrategy;
+import patterns.strategy.Civilization;
+
+/**
+ * Civilizacao acessada apenas por mensagens.
+ *
+ * As mensagens entram numa fila sem lock e sao processadas uma por vez, na
+ * ordem de chegada, por uma thread do ActorRuntime; a civilizacao nunca e
+ * tocada por duas threads ao mesmo tempo. ask devolve um CompletableFuture
+ * com a resposta; tell nao tem resposta e e o caminho mais barato.
+ */
+public final class CivilizationActor implements Runnable {
+  private final ActorRuntime runtime;
+  private final Civilization civilization;
+  private final Queue<Message> mailbox = new ConcurrentLinkedQueue<>();
+  //Mensagens na caixa; quem a leva de 0 para 1 agenda o ator
+  private final AtomicInteger depth = new AtomicInteger();
+
+  CivilizationActor(ActorRuntime runtime, Civilization civilization){
+    this.runtime = runtime;
+    this.civilization = civilization;
+  }
+
+  public String getName(){
+    return civilization.getName();
+  }
+
+  //Poder do ataque, ou Civilization.ATTACK_REJECTED sem recursos
+  public CompletableFuture<Integer> attack(){
+    return ask(Civilization::attack);
+  }
+
+  public CompletableFuture<Integer> addResources(int amount){
+    return ask(civilization -> {
+      civilization.addResources(amount);
+      return civilization.getResources();
+    });
+  }
+
+  public CompletableFuture<AttackStrategy> setStrategy(AttackStrategy strategy){
+    return ask(civilization -> {
+      AttackStrategy previous = civilization.getStrategy();
+      civilization.setStrategy(strategy);
+      return previous;
+    });
+  }
+
+  public CompletableFuture<Integer> getResources(){
+    return ask(Civilization::getResources);
+  }
+
+  //Envia um comando com resposta
+  public <T> CompletableFuture<T> ask(Function<? super Civilization, ? extends T> command){
+    CompletableFuture<T> future = new CompletableFuture<>();
+    send(new Message(command, future));
+    return future;
+  }
+
+  //Envia um comando sem resposta; erros so aparecem na contagem de falhas do runtime
+  public void tell(Consumer<? super Civilization> command){
+    send(new Message(civilization -> {
+      command.accept(civilization);
+      return null;
+    }, null));
+  }
+
+  //Mensagens aguardando processamento
+  public int getMailboxDepth(){
+    return depth.get();
+  }
+
+  private void send(Message message){
+    if(!runtime.beginSend()){
+      message.fail(new RejectedExecutionException("Runtime de atores encerrado"));
+      return;
+    }
+    try {
+      mailbox.offer(message);
+      runtime.enqueued();
+      if(depth.getAndIncrement() == 0){
+        schedule();
+      }
+    } finally {
+      runtime.endSend();
+    }
+  }
+
+  //Agenda o ator; se o runtime fechou no meio do envio, falha as mensagens da caixa
+  private void schedule(){
+    try {
+      runtime.schedule(this);
+    } catch(RejectedExecutionException e){
+      reject(e);
+    }
+  }
+
+  /**
+   * Esvazia a caixa falhando cada mensagem. Chamado por quem deveria
+   * agendar o ator, entao nenhuma outra thread esta processando a caixa;
+   * mensagens que chegarem enquanto isso tambem sao falhadas, ate depth
+   * voltar a 0.
+   */
+  private void reject(RejectedExecutionException cause){
+    do {
+      Message message = mailbox.poll();
+      message.fail(cause);
+      runtime.processed(System.nanoTime() - message.sentNanos, false);
+    } while(depth.decrementAndGet() > 0);
+  }
+
+  /**
+   * Processa ate throughput mensagens e, se ainda houver mais, volta para
+   * o final da fila do pool. Um VirtualMachineError relancado por uma
+   * mensagem sobe para a thread do pool, mas so depois de a mensagem ser
+   * contada e de o ator ser reagendado se a caixa nao ficou vazia.
+   */
+  @Override
+  public void run(){
+    int limit = runtime.getThroughput();
+    for(int i = 0; i < limit; i++){
+      //depth > 0 garante que a mensagem ja esta na fila
+      Message message = mailbox.poll();
+      boolean success;
+      try {
+        success = message.process(civilization);
+      } catch(VirtualMachineError e){
+        runtime.processed(System.nanoTime() - message.sentNanos, false);
+        if(depth.decrementAndGet() > 0){
+          schedule();
+        }
+        throw e;
+      }
+      runtime.processed(System.nanoTime() - message.sentNanos, success);
+      if(depth.decrementAndGet() == 0){
+        return;
+      }
+    }
+    schedule();
+  }
+
+  private static final class Message {
+    final Function<? super Civilization, ?> command;
+    @SuppressWarnings("rawtypes")
+    final CompletableFuture future;
+    final long sentNanos = System.nanoTime();
+
+    Message(Function<? super Civilization, ?> command, CompletableFuture<?> future){
+      this.command = command;
+      this.future = future;
+    }
+
+    @SuppressWarnings("unchecked")
+    boolean process(Civilization civilization){
+      try {
+        Object result = command.apply(civilization);
+        if(future != null){
+          future.complete(result);
+        }
+        return true;
+      } catch(Throwable e){
+        //inclusive Errors: a falha fica na resposta e o ator continua processando a caixa
+        fail(e);
+        //erros da propria JVM (falta de memoria, pilha estourada) sao relancados, como no CommandLogIngester
+        if(e instanceof VirtualMachineError){
+          throw (VirtualMachineError) e;
+        }
+        return false;
+      }
+    }
+
+    void fail(Throwable cause){
+      if(future != null){
+        future.completeExceptionally(cause);
+      }
+    }
+  }
+}
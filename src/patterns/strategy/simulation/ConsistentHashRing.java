@@ -0,0 +1,89 @@
+package patterns.strategy.simulation;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Anel de hashing consistente.
+ *
+ * Cada no ocupa virtualNodes pontos do anel e uma chave pertence ao
+ * primeiro ponto igual ou seguinte ao seu hash. Ao adicionar ou remover um
+ * no, so as chaves dos pontos dele mudam de dono (cerca de 1/n do total).
+ */
+public final class ConsistentHashRing {
+  private final int virtualNodes;
+  private final TreeMap<Long, String> points = new TreeMap<>();
+  private final List<String> nodes = new ArrayList<>();
+
+  public ConsistentHashRing(int virtualNodes){
+    if(virtualNodes <= 0){
+      throw new IllegalArgumentException("Número de nós virtuais deve ser positivo: " + virtualNodes);
+    }
+    this.virtualNodes = virtualNodes;
+  }
+
+  public void add(String node){
+    if(nodes.contains(node)){
+      throw new IllegalArgumentException("Nó já está no anel: " + node);
+    }
+    nodes.add(node);
+    for(int replica = 0; replica < virtualNodes; replica++){
+      //colisoes (rarissimas) ficam com o no que entrou primeiro
+      points.putIfAbsent(hash(node, replica), node);
+    }
+  }
+
+  public boolean remove(String node){
+    if(!nodes.remove(node)){
+      return false;
+    }
+    points.values().removeIf(node::equals);
+    //pontos que colidiam com o no removido passam para o dono seguinte
+    for(String other : nodes){
+      for(int replica = 0; replica < virtualNodes; replica++){
+        points.putIfAbsent(hash(other, replica), other);
+      }
+    }
+    return true;
+  }
+
+  //No responsavel pela chave
+  public String nodeFor(long key){
+    if(points.isEmpty()){
+      throw new IllegalStateException("Anel de hashing vazio");
+    }
+    Map.Entry<Long, String> entry = points.ceilingEntry(mix(key));
+    return entry != null ? entry.getValue() : points.firstEntry().getValue();
+  }
+
+  //Nos na ordem em que foram adicionados
+  public List<String> nodes(){
+    return List.copyOf(nodes);
+  }
+
+  public int size(){
+    return nodes.size();
+  }
+
+  //FNV-1a de 64 bits do nome seguido da replica
+  private static long hash(String node, int replica){
+    long hash = 0xCBF29CE484222325L;
+    for(byte b : node.getBytes(StandardCharsets.UTF_8)){
+      hash = (hash ^ (b & 0xFF)) * 0x100000001B3L;
+    }
+    for(int shift = 0; shift < Integer.SIZE; shift += Byte.SIZE){
+      hash = (hash ^ ((replica >>> shift) & 0xFF)) * 0x100000001B3L;
+    }
+    return mix(hash);
+  }
+
+  //Finalizador do SplitMix64, para espalhar chaves sequenciais pelo anel
+  private static long mix(long z){
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+}
@@ -0,0 +1,65 @@
+package patterns.strategy.simulation;
+
+import java.util.SplittableRandom;
+
+import patterns.strategy.AttackStrategy;
+import patterns.strategy.Civilization;
+
+/**
+ * Modelo simplificado de um confronto entre duas civilizacoes, usado nas
+ * simulacoes. Cada rodada os dois lados recebem uma renda aleatoria e,
+ * havendo recursos, atacam; o dano e o poder de ataque (com variacao de
+ * +-25%) menos parte do poder de defesa do adversario.
+ */
+public final class Engagement {
+  public static final int STARTING_HEALTH = 1000;
+  public static final int MAX_ROUNDS = 30;
+  public static final int MAX_INCOME = 40;
+
+  public static final int WIN = 2;
+  public static final int DRAW = 1;
+  public static final int LOSS = 0;
+
+  private Engagement(){
+  }
+
+  /**
+   * Simula um confronto e retorna o resultado do ponto de vista do primeiro lado
+   * @return WIN, DRAW ou LOSS
+   */
+  public static int simulate(int basePower, int resources, AttackStrategy strategy,
+                             int opponentPower, int opponentResources, AttackStrategy opponentStrategy,
+                             SplittableRandom random){
+    int health = STARTING_HEALTH;
+    int opponentHealth = STARTING_HEALTH;
+    int attack = strategy.attackPower(basePower);
+    int defense = strategy.defensePower(basePower);
+    int opponentAttack = opponentStrategy.attackPower(opponentPower);
+    int opponentDefense = opponentStrategy.defensePower(opponentPower);
+    for(int round = 0; round < MAX_ROUNDS && health > 0 && opponentHealth > 0; round++){
+      resources += random.nextInt(MAX_INCOME + 1);
+      opponentResources += random.nextInt(MAX_INCOME + 1);
+      if(resources >= Civilization.ATTACK_COST){
+        resources -= Civilization.ATTACK_COST;
+        opponentHealth -= damage(attack, opponentDefense, random);
+      }
+      if(opponentResources >= Civilization.ATTACK_COST){
+        opponentResources -= Civilization.ATTACK_COST;
+        health -= damage(opponentAttack, defense, random);
+      }
+    }
+    if(health > 0 && opponentHealth <= 0){
+      return WIN;
+    }
+    if(opponentHealth > 0 && health <= 0){
+      return LOSS;
+    }
+    //sem nocaute (ou nocaute duplo): vence quem tiver mais vida
+    return health > opponentHealth ? WIN : health == opponentHealth ? DRAW : LOSS;
+  }
+
+  private static int damage(int attack, int defense, SplittableRandom random){
+    int rolled = attack * (75 + random.nextInt(51)) / 100;
+    return Math.max(1, rolled - defense * 3 / 10);
+  }
+}
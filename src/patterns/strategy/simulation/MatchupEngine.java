@@ -0,0 +1,172 @@
+package patterns.strategy.simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import patterns.factory.UnitType;
+import patterns.factory.registry.UnitRegistry;
+import patterns.factory.registry.UnitTable;
+import patterns.strategy.AttackStrategy;
+import patterns.strategy.StrategyRegistry;
+
+/**
+ * Mantem o MatchupTable atualizado com os templates do UnitRegistry e as
+ * estrategias do StrategyRegistry.
+ *
+ * As chamadas virtuais (atributos das tropas e modificadores das
+ * estrategias) acontecem apenas na montagem: depois disso cada confronto
+ * e resolvido por uma leitura de array. Numa atualizacao, cada lado e
+ * casado com o lado de mesma civilizacao, tipo de unidade e estrategia do
+ * snapshot anterior, e so os confrontos que envolvem lados novos ou cujos
+ * poderes mudaram sao recalculados; os demais sao copiados. Se a
+ * disposicao dos lados nao muda, a matriz anterior e clonada e so as
+ * linhas e colunas desses lados sao refeitas. Quando civilizacoes ou
+ * estrategias sao acrescentadas os indices mudam, entao a matriz nova
+ * ainda e preenchida inteira (O(lados^2) escritas), mas as celulas antigas
+ * sao copiadas em vez de recalculadas. Cada atualizacao publica um
+ * snapshot novo, entao leitores nunca veem uma tabela pela metade.
+ */
+public class MatchupEngine {
+  private final UnitRegistry units;
+  private final StrategyRegistry strategies;
+  private volatile MatchupTable table;
+
+  public MatchupEngine(UnitRegistry units, StrategyRegistry strategies){
+    this.units = units;
+    this.strategies = strategies;
+    this.table = build(null, units.table(), strategies.all());
+  }
+
+  /**
+   * Snapshot atual, atualizado antes se a tabela de unidades foi trocada
+   * ou novas estrategias foram registradas.
+   */
+  public MatchupTable table(){
+    MatchupTable current = table;
+    if(current.getUnits() != units.table() || current.getStrategies().size() != strategies.size()){
+      return refresh();
+    }
+    return current;
+  }
+
+  //Recalcula os poderes de todos os lados e atualiza as celulas dos que mudaram
+  public synchronized MatchupTable refresh(){
+    table = build(table, units.table(), strategies.all());
+    return table;
+  }
+
+  private static MatchupTable build(MatchupTable previous, UnitTable units, List<AttackStrategy> strategyList){
+    List<String> names = new ArrayList<>(strategyList.size());
+    for(AttackStrategy strategy : strategyList){
+      names.add(strategy.getName());
+    }
+    int sides = units.civilizationCount() * UnitType.count() * strategyList.size();
+    int[] attackPower = new int[sides];
+    int[] defensePower = new int[sides];
+    int side = 0;
+    for(int civilization = 0; civilization < units.civilizationCount(); civilization++){
+      for(UnitType type : UnitType.values()){
+        boolean present = units.contains(civilization, type);
+        int attack = present ? units.getAttack(civilization, type) : 0;
+        int defense = present ? units.getDefense(civilization, type) : 0;
+        for(AttackStrategy strategy : strategyList){
+          attackPower[side] = strategy.attackPower(attack);
+          defensePower[side] = strategy.defensePower(defense);
+          side++;
+        }
+      }
+    }
+
+    if(previous == null){
+      int[] cells = new int[sides * sides];
+      for(int attacker = 0; attacker < sides; attacker++){
+        for(int defender = 0; defender < sides; defender++){
+          cells[attacker * sides + defender] = cell(attackPower, defensePower, attacker, defender);
+        }
+      }
+      return new MatchupTable(units, List.copyOf(names), attackPower, defensePower, cells, sides);
+    }
+
+    //lado equivalente no snapshot anterior, ou -1 se o lado e novo ou seus poderes mudaram
+    int[] previousSide = previousSides(previous, units, names);
+    int recomputed = 0;
+    for(int changed = 0; changed < sides; changed++){
+      int old = previousSide[changed];
+      if(old >= 0 && (attackPower[changed] != previous.attackPower(old) || defensePower[changed] != previous.defensePower(old))){
+        previousSide[changed] = -1;
+      }
+      if(previousSide[changed] < 0){
+        recomputed++;
+      }
+    }
+
+    int[] cells;
+    if(sides == previous.sideCount() && isIdentity(previousSide)){
+      //mesma disposicao: copia a matriz e refaz linha e coluna dos lados que mudaram
+      cells = previous.cells().clone();
+      for(int changed = 0; changed < sides; changed++){
+        if(previousSide[changed] >= 0){
+          continue;
+        }
+        //o resultado depende do dano nos dois sentidos: linha e coluna do lado
+        for(int other = 0; other < sides; other++){
+          cells[changed * sides + other] = cell(attackPower, defensePower, changed, other);
+          cells[other * sides + changed] = cell(attackPower, defensePower, other, changed);
+        }
+      }
+    } else {
+      //civilizacoes ou estrategias acrescentadas mudam os indices dos lados:
+      //as celulas entre lados que ja existiam sao copiadas da posicao antiga
+      int[] previousCells = previous.cells();
+      int previousSides = previous.sideCount();
+      cells = new int[sides * sides];
+      for(int attacker = 0; attacker < sides; attacker++){
+        int oldAttacker = previousSide[attacker];
+        for(int defender = 0; defender < sides; defender++){
+          int oldDefender = previousSide[defender];
+          cells[attacker * sides + defender] = oldAttacker >= 0 && oldDefender >= 0
+            ? previousCells[oldAttacker * previousSides + oldDefender]
+            : cell(attackPower, defensePower, attacker, defender);
+        }
+      }
+    }
+    return new MatchupTable(units, List.copyOf(names), attackPower, defensePower, cells, recomputed);
+  }
+
+  //Casa cada lado com o lado de mesma civilizacao, tipo e estrategia (por nome) no snapshot anterior
+  private static int[] previousSides(MatchupTable previous, UnitTable units, List<String> names){
+    UnitTable previousUnits = previous.getUnits();
+    List<String> previousStrategies = previous.getStrategies();
+    int[] strategyMap = new int[names.size()];
+    for(int strategy = 0; strategy < names.size(); strategy++){
+      strategyMap[strategy] = previousStrategies.indexOf(names.get(strategy));
+    }
+    int[] previousSide = new int[units.civilizationCount() * UnitType.count() * names.size()];
+    int side = 0;
+    for(int civilization = 0; civilization < units.civilizationCount(); civilization++){
+      int oldCivilization = previousUnits.civilizationId(units.civilizationName(civilization));
+      for(UnitType type : UnitType.values()){
+        for(int strategy = 0; strategy < names.size(); strategy++){
+          int oldStrategy = strategyMap[strategy];
+          previousSide[side++] = oldCivilization < 0 || oldStrategy < 0 ? -1
+            : (oldCivilization * UnitType.count() + type.ordinal()) * previousStrategies.size() + oldStrategy;
+        }
+      }
+    }
+    return previousSide;
+  }
+
+  private static boolean isIdentity(int[] previousSide){
+    for(int side = 0; side < previousSide.length; side++){
+      if(previousSide[side] >= 0 && previousSide[side] != side){
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int cell(int[] attackPower, int[] defensePower, int attacker, int defender){
+    return MatchupTable.pack(MatchupTable.hitDamage(attackPower[attacker], defensePower[defender]),
+      MatchupTable.hitDamage(attackPower[defender], defensePower[attacker]));
+  }
+}
@@ -0,0 +1,122 @@
+package patterns.strategy.simulation;
+
+import java.util.List;
+
+import patterns.factory.UnitType;
+import patterns.factory.registry.UnitTable;
+
+/**
+ * Snapshot imutavel dos confrontos entre lados, onde um lado e uma
+ * combinacao (civilizacao, tipo de unidade, estrategia).
+ *
+ * Cada celula da matriz lados x lados guarda, empacotados em um int, o
+ * dano que o atacante causa ao defensor e o resultado do confronto do
+ * ponto de vista do atacante (Engagement.WIN, DRAW ou LOSS, comparando o
+ * dano causado com o recebido). O dano segue a regra de Engagement sem a
+ * variacao aleatoria: ataque efetivo menos 30% da defesa efetiva, no
+ * minimo 1. Montado e atualizado pelo MatchupEngine.
+ */
+public final class MatchupTable {
+  private static final int OUTCOME_BITS = 2;
+  private static final int OUTCOME_MASK = (1 << OUTCOME_BITS) - 1;
+
+  private final UnitTable units;
+  private final List<String> strategies;
+  private final int[] attackPower;
+  private final int[] defensePower;
+  private final int[] cells;
+  private final int recomputedSides;
+
+  MatchupTable(UnitTable units, List<String> strategies, int[] attackPower, int[] defensePower, int[] cells, int recomputedSides){
+    this.units = units;
+    this.strategies = strategies;
+    this.attackPower = attackPower;
+    this.defensePower = defensePower;
+    this.cells = cells;
+    this.recomputedSides = recomputedSides;
+  }
+
+  static int hitDamage(int attackPower, int defensePower){
+    return Math.max(1, attackPower - defensePower * 3 / 10);
+  }
+
+  static int pack(int damage, int counterDamage){
+    int outcome = damage > counterDamage ? Engagement.WIN : damage == counterDamage ? Engagement.DRAW : Engagement.LOSS;
+    return damage << OUTCOME_BITS | outcome;
+  }
+
+  /**
+   * Indice do lado; a estrategia e a posicao dela em StrategyRegistry.all().
+   * Rejeita civilizacoes sem template para o tipo de unidade, cujas
+   * celulas nao representam nenhuma tropa.
+   */
+  public int side(int civilizationId, UnitType type, int strategyId){
+    if(civilizationId < 0 || civilizationId >= units.civilizationCount() || strategyId < 0 || strategyId >= strategies.size()){
+      throw new IllegalArgumentException("Lado inválido: civilização " + civilizationId + ", estratégia " + strategyId);
+    }
+    if(!units.contains(civilizationId, type)){
+      throw new IllegalArgumentException(units.civilizationName(civilizationId) + " não tem a unidade " + type.getLabel());
+    }
+    return (civilizationId * UnitType.count() + type.ordinal()) * strategies.size() + strategyId;
+  }
+
+  public int side(String civilization, UnitType type, String strategy){
+    return side(units.civilizationId(civilization), type, strategies.indexOf(strategy));
+  }
+
+  public int sideCount(){
+    return attackPower.length;
+  }
+
+  //Celula empacotada do confronto: uma unica leitura de array
+  public int resolve(int attacker, int defender){
+    return cells[attacker * attackPower.length + defender];
+  }
+
+  public static int damageOf(int cell){
+    return cell >>> OUTCOME_BITS;
+  }
+
+  public static int outcomeOf(int cell){
+    return cell & OUTCOME_MASK;
+  }
+
+  public int damage(int attacker, int defender){
+    return damageOf(resolve(attacker, defender));
+  }
+
+  //Engagement.WIN, DRAW ou LOSS do ponto de vista do atacante
+  public int outcome(int attacker, int defender){
+    return outcomeOf(resolve(attacker, defender));
+  }
+
+  public UnitTable getUnits(){
+    return units;
+  }
+
+  public List<String> getStrategies(){
+    return strategies;
+  }
+
+  //Lados cujas linhas e colunas foram recalculadas na montagem deste snapshot
+  public int getRecomputedSides(){
+    return recomputedSides;
+  }
+
+  int attackPower(int side){
+    return attackPower[side];
+  }
+
+  int defensePower(int side){
+    return defensePower[side];
+  }
+
+  int[] cells(){
+    return cells;
+  }
+
+  @Override
+  public String toString(){
+    return "MatchupTable[" + sideCount() + " lados, " + recomputedSides + " recalculados]";
+  }
+}
@@ -0,0 +1,202 @@
+package patterns.strategy.simulation;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Canal de mensagens binarias entre o ShardedSimulation e um ShardServer.
+ *
+ * Cada mensagem e [int tamanho][byte tipo][dados], com tamanho contando o
+ * tipo e os dados. Os enderecos sao "unix:/caminho" (Unix domain socket)
+ * ou "porta" / "host:porta" (TCP, por padrao em loopback).
+ */
+final class ShardConnection implements AutoCloseable {
+  //Pedidos do coordenador
+  static final byte ACT = 1;
+  static final byte RESOLVE = 2;
+  static final byte ASSIGN = 3;
+  static final byte EVICT = 4;
+  static final byte STATE = 5;
+  static final byte SHUTDOWN = 6;
+  //Respostas do shard
+  static final byte OK = 10;
+  static final byte ATTACKS = 11;
+  static final byte CIVILIZATIONS = 12;
+  static final byte ERROR = 13;
+
+  private static final String UNIX_PREFIX = "unix:";
+  private static final int INITIAL_BUFFER = 1 << 16;
+
+  private final SocketChannel channel;
+  private ByteBuffer out = ByteBuffer.allocateDirect(INITIAL_BUFFER);
+  private ByteBuffer in = ByteBuffer.allocateDirect(INITIAL_BUFFER);
+
+  ShardConnection(SocketChannel channel) throws IOException {
+    this.channel = channel;
+    if(!(channel.getRemoteAddress() instanceof UnixDomainSocketAddress)){
+      channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+    }
+  }
+
+  static ShardConnection connect(String address) throws IOException {
+    return new ShardConnection(SocketChannel.open(address(address)));
+  }
+
+  //Abre o socket de escuta; um arquivo de socket antigo no mesmo caminho e removido
+  static ServerSocketChannel listen(String address) throws IOException {
+    SocketAddress socketAddress = address(address);
+    ServerSocketChannel server;
+    if(socketAddress instanceof UnixDomainSocketAddress){
+      Files.deleteIfExists(((UnixDomainSocketAddress) socketAddress).getPath());
+      server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+    } else {
+      server = ServerSocketChannel.open();
+      server.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+    }
+    return server.bind(socketAddress);
+  }
+
+  static SocketAddress address(String address){
+    if(address.startsWith(UNIX_PREFIX)){
+      return UnixDomainSocketAddress.of(Path.of(address.substring(UNIX_PREFIX.length())));
+    }
+    int colon = address.lastIndexOf(':');
+    try {
+      if(colon < 0){
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(address));
+      }
+      return new InetSocketAddress(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+    } catch(NumberFormatException e){
+      throw new IllegalArgumentException("Endereço de shard inválido: " + address);
+    }
+  }
+
+  //Comeca uma mensagem; os dados sao escritos com os put* e enviados com send()
+  void begin(byte type){
+    out.clear();
+    out.putInt(0);
+    out.put(type);
+  }
+
+  void putInt(int value){
+    ensure(Integer.BYTES);
+    out.putInt(value);
+  }
+
+  void putLong(long value){
+    ensure(Long.BYTES);
+    out.putLong(value);
+  }
+
+  void putString(String value){
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    ensure(Short.BYTES + bytes.length);
+    out.putShort((short) bytes.length);
+    out.put(bytes);
+  }
+
+  //Reserva um int a ser preenchido depois com setInt (ex.: quantidade de registros)
+  int reserveInt(){
+    int position = out.position();
+    putInt(0);
+    return position;
+  }
+
+  void setInt(int position, int value){
+    out.putInt(position, value);
+  }
+
+  void send() throws IOException {
+    out.putInt(0, out.position() - Integer.BYTES);
+    out.flip();
+    while(out.hasRemaining()){
+      channel.write(out);
+    }
+  }
+
+  /**
+   * Le a proxima mensagem inteira; os dados ficam disponiveis pelos get*.
+   * @return tipo da mensagem
+   * @throws EOFException se o outro lado fechou a conexao
+   */
+  byte receive() throws IOException {
+    in.clear().limit(Integer.BYTES);
+    readFully();
+    int length = in.getInt(0);
+    if(length <= 0){
+      throw new IOException("Mensagem de shard com tamanho inválido: " + length);
+    }
+    if(in.capacity() < length){
+      in = ByteBuffer.allocateDirect(Integer.highestOneBit(length) << 1);
+    }
+    in.clear().limit(length);
+    readFully();
+    in.flip();
+    return in.get();
+  }
+
+  //Le a resposta e falha com a mensagem do shard se ela for ERROR ou de outro tipo
+  void expect(byte type) throws IOException {
+    byte received = receive();
+    if(received == ERROR){
+      throw new IOException("Erro no shard: " + getString());
+    }
+    if(received != type){
+      throw new IOException("Resposta inesperada do shard: " + received + " (esperado " + type + ")");
+    }
+  }
+
+  //Bytes ainda nao lidos da mensagem recebida
+  int remaining(){
+    return in.remaining();
+  }
+
+  int getInt(){
+    return in.getInt();
+  }
+
+  long getLong(){
+    return in.getLong();
+  }
+
+  String getString(){
+    byte[] bytes = new byte[in.getShort() & 0xFFFF];
+    in.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  private void readFully() throws IOException {
+    while(in.hasRemaining()){
+      if(channel.read(in) < 0){
+        throw new EOFException("Conexão com o shard encerrada");
+      }
+    }
+  }
+
+  private void ensure(int bytes){
+    if(out.remaining() >= bytes){
+      return;
+    }
+    ByteBuffer bigger = ByteBuffer.allocateDirect(Math.max(out.capacity() * 2, out.position() + bytes));
+    out.flip();
+    bigger.put(out);
+    out = bigger;
+  }
+}
@@ -0,0 +1,326 @@
+package patterns.strategy.simulation;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import patterns.strategy.Civilization;
+import patterns.strategy.StrategyRegistry;
+
+/**
+ * Processo de um shard da simulacao distribuida (ver ShardedSimulation).
+ *
+ * Guarda as civilizacoes que o coordenador lhe atribui e executa as duas
+ * fases de cada tick da mesma forma que TickSimulation. Ataques entre
+ * civilizacoes do proprio shard sao resolvidos localmente; os demais saem
+ * em um unico lote por tick, com o alvo e o poder sorteado, e o dano e
+ * calculado pelo shard do defensor.
+ *
+ * Atende um coordenador por vez, ate receber SHUTDOWN ou ser fechado.
+ * Cada conexao comeca com o shard vazio: as civilizacoes de um coordenador
+ * que desconectou sao descartadas, ja que so ele sabia onde estavam as
+ * demais. Um pedido que falha e respondido com ERROR sem alterar o estado
+ * do shard.
+ */
+public class ShardServer implements AutoCloseable {
+  private final ServerSocketChannel server;
+  private final String address;
+  private final StrategyRegistry strategies;
+  private final Map<Integer, Integer> slots = new HashMap<>();
+  private int[] ids = new int[64];
+  private Civilization[] civilizations = new Civilization[64];
+  private long[] received = new long[64];
+  //Recursos antes da fase 1, para desfaze-la se um ataque falhar
+  private int[] saved = new int[64];
+  private int size;
+
+  public ShardServer(String address, StrategyRegistry strategies) throws IOException {
+    this.server = ShardConnection.listen(address);
+    this.address = address;
+    this.strategies = strategies;
+  }
+
+  public String getAddress(){
+    return address;
+  }
+
+  //Civilizacoes atualmente neste shard; consistente apenas quando nenhum coordenador esta conectado
+  public int size(){
+    return size;
+  }
+
+  /**
+   * Atende coordenadores ate receber SHUTDOWN; retorna sem erro se o
+   * servidor for fechado por outra thread. Qualquer falha de IO de uma
+   * conexao (desconexao, conexao resetada por um coordenador que caiu,
+   * mensagem malformada) encerra so aquela conexao; falhas do socket de
+   * escuta sao relancadas.
+   */
+  public void serve() throws IOException {
+    try {
+      while(true){
+        SocketChannel channel = server.accept();
+        try(channel; ShardConnection connection = new ShardConnection(channel)){
+          reset();
+          if(!handle(connection)){
+            return;
+          }
+        } catch(IOException e){
+          //coordenador desconectou ou caiu; espera o proximo
+        }
+      }
+    } catch(ClosedChannelException e){
+      //fechado por close()
+    } finally {
+      server.close();
+    }
+  }
+
+  //Processa os pedidos de uma conexao; false se recebeu SHUTDOWN
+  private boolean handle(ShardConnection connection) throws IOException {
+    while(true){
+      byte type = connection.receive();
+      try {
+        switch(type){
+          case ShardConnection.ACT -> act(connection);
+          case ShardConnection.RESOLVE -> resolve(connection);
+          case ShardConnection.ASSIGN -> assign(connection);
+          case ShardConnection.EVICT -> evict(connection);
+          case ShardConnection.STATE -> state(connection);
+          case ShardConnection.SHUTDOWN -> {
+            connection.begin(ShardConnection.OK);
+            connection.send();
+            return false;
+          }
+          default -> throw new IllegalArgumentException("Tipo de mensagem desconhecido: " + type);
+        }
+      } catch(RuntimeException e){
+        connection.begin(ShardConnection.ERROR);
+        connection.putString(address + ": " + e.getMessage());
+        connection.send();
+      }
+    }
+  }
+
+  /**
+   * Fase 1: renda e ataques; responde com os ataques a civilizacoes de
+   * outros shards. Uma estrategia que falha no meio da fase nao pode ser
+   * prevista, entao os recursos sao guardados antes e restaurados se algum
+   * ataque lancar excecao.
+   */
+  private void act(ShardConnection connection) throws IOException {
+    long tick = connection.getLong();
+    long seed = connection.getLong();
+    int count = connection.getInt();
+    for(int slot = 0; slot < size; slot++){
+      if(ids[slot] >= count){
+        throw new IllegalArgumentException("Civilização " + ids[slot] + " fora das " + count + " do tick");
+      }
+      saved[slot] = civilizations[slot].getResources();
+    }
+    try {
+      attack(connection, tick, seed, count);
+    } catch(RuntimeException e){
+      for(int slot = 0; slot < size; slot++){
+        Civilization civilization = civilizations[slot];
+        civilization.deposit(saved[slot] - civilization.getResources());
+        received[slot] = 0;
+      }
+      throw e;
+    }
+    connection.send();
+  }
+
+  private void attack(ShardConnection connection, long tick, long seed, int count){
+    connection.begin(ShardConnection.ATTACKS);
+    int countPosition = connection.reserveInt();
+    int remote = 0;
+    for(int slot = 0; slot < size; slot++){
+      int id = ids[slot];
+      Civilization civilization = civilizations[slot];
+      long random = TickSimulation.mix(seed, tick, id);
+      civilization.deposit(TickSimulation.income(random));
+      if(!TickSimulation.triesToAttack(random, count)){
+        continue;
+      }
+      int power = civilization.attack();
+      if(power == Civilization.ATTACK_REJECTED){
+        continue;
+      }
+      int target = TickSimulation.target(random, id, count);
+      int rolled = TickSimulation.rolled(random, power);
+      Integer local = slots.get(target);
+      if(local != null){
+        received[local] += TickSimulation.damage(rolled, civilizations[local]);
+      } else {
+        connection.putInt(target);
+        connection.putInt(rolled);
+        remote++;
+      }
+    }
+    connection.setInt(countPosition, remote);
+  }
+
+  //Fase 2: soma os ataques vindos de outros shards aos locais e debita de uma vez
+  private void resolve(ShardConnection connection) throws IOException {
+    int count = checkCount(connection, connection.getInt());
+    //valida o lote inteiro antes de somar qualquer dano
+    int[] targets = new int[count];
+    int[] rolled = new int[count];
+    for(int i = 0; i < count; i++){
+      targets[i] = slot(connection.getInt());
+      rolled[i] = connection.getInt();
+    }
+    int[] damages = new int[count];
+    for(int i = 0; i < count; i++){
+      damages[i] = TickSimulation.damage(rolled[i], civilizations[targets[i]]);
+    }
+    for(int i = 0; i < count; i++){
+      received[targets[i]] += damages[i];
+    }
+    for(int slot = 0; slot < size; slot++){
+      long damage = received[slot];
+      if(damage > 0){
+        Civilization civilization = civilizations[slot];
+        civilization.deposit(-(int) Math.min(damage, civilization.getResources()));
+        received[slot] = 0;
+      }
+    }
+    ok(connection);
+  }
+
+  //Valida o lote inteiro (ids repetidos, estrategias desconhecidas) antes de adicionar qualquer civilizacao
+  private void assign(ShardConnection connection) throws IOException {
+    int count = checkCount(connection, connection.getInt());
+    int[] assigned = new int[count];
+    Civilization[] batch = new Civilization[count];
+    Set<Integer> seen = new HashSet<>();
+    for(int i = 0; i < count; i++){
+      int id = connection.getInt();
+      int resources = connection.getInt();
+      String name = connection.getString();
+      String strategy = connection.getString();
+      if(id < 0){
+        throw new IllegalArgumentException("Id de civilização negativo: " + id);
+      }
+      if(slots.containsKey(id) || !seen.add(id)){
+        throw new IllegalArgumentException("Civilização " + id + " já está neste shard");
+      }
+      assigned[i] = id;
+      batch[i] = new Civilization(name, resources, strategies.get(strategy));
+    }
+    for(int i = 0; i < count; i++){
+      add(assigned[i], batch[i]);
+    }
+    ok(connection);
+  }
+
+  //Remove as civilizacoes pedidas e devolve o estado delas
+  private void evict(ShardConnection connection) throws IOException {
+    int count = checkCount(connection, connection.getInt());
+    int[] evicted = new int[count];
+    Set<Integer> seen = new HashSet<>();
+    for(int i = 0; i < count; i++){
+      int id = connection.getInt();
+      if(!seen.add(id)){
+        throw new IllegalArgumentException("Civilização " + id + " repetida no pedido");
+      }
+      evicted[i] = slot(id);
+    }
+    connection.begin(ShardConnection.CIVILIZATIONS);
+    connection.putInt(count);
+    for(int slot : evicted){
+      putCivilization(connection, slot);
+    }
+    //remove dos maiores slots para os menores para que a troca com o ultimo nao mova um slot ainda pendente
+    Arrays.sort(evicted);
+    for(int i = count - 1; i >= 0; i--){
+      remove(evicted[i]);
+    }
+    connection.send();
+  }
+
+  private void state(ShardConnection connection) throws IOException {
+    connection.begin(ShardConnection.CIVILIZATIONS);
+    connection.putInt(size);
+    for(int slot = 0; slot < size; slot++){
+      putCivilization(connection, slot);
+    }
+    connection.send();
+  }
+
+  private void putCivilization(ShardConnection connection, int slot){
+    Civilization civilization = civilizations[slot];
+    connection.putInt(ids[slot]);
+    connection.putInt(civilization.getResources());
+    connection.putString(civilization.getName());
+    connection.putString(civilization.getStrategy().getName());
+  }
+
+  //Descarta as civilizacoes de uma conexao anterior
+  private void reset(){
+    slots.clear();
+    Arrays.fill(civilizations, 0, size, null);
+    Arrays.fill(received, 0, size, 0);
+    size = 0;
+  }
+
+  private void add(int id, Civilization civilization){
+    if(size == ids.length){
+      ids = Arrays.copyOf(ids, size * 2);
+      civilizations = Arrays.copyOf(civilizations, size * 2);
+      received = Arrays.copyOf(received, size * 2);
+      saved = Arrays.copyOf(saved, size * 2);
+    }
+    ids[size] = id;
+    civilizations[size] = civilization;
+    received[size] = 0;
+    slots.put(id, size);
+    size++;
+  }
+
+  //Remove em O(1) trazendo a ultima civilizacao para o slot
+  private void remove(int slot){
+    slots.remove(ids[slot]);
+    int last = --size;
+    if(slot != last){
+      ids[slot] = ids[last];
+      civilizations[slot] = civilizations[last];
+      received[slot] = received[last];
+      slots.put(ids[slot], slot);
+    }
+    civilizations[last] = null;
+  }
+
+  //Quantidade de registros de um pedido; cada registro ocupa ao menos um int da mensagem
+  private static int checkCount(ShardConnection connection, int count){
+    if(count < 0 || count > connection.remaining() / Integer.BYTES){
+      throw new IllegalArgumentException("Quantidade inválida no pedido: " + count);
+    }
+    return count;
+  }
+
+  private int slot(int id){
+    Integer slot = slots.get(id);
+    if(slot == null){
+      throw new IllegalArgumentException("Civilização " + id + " não está neste shard");
+    }
+    return slot;
+  }
+
+  private static void ok(ShardConnection connection) throws IOException {
+    connection.begin(ShardConnection.OK);
+    connection.send();
+  }
+
+  @Override
+  public void close() throws IOException {
+    server.close();
+  }
+}
@@ -0,0 +1,289 @@
+package patterns.strategy.simulation;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import patterns.strategy.Civilization;
+
+/**
+ * Coordenador da simulacao em ticks distribuida entre varios processos
+ * (ShardServer), possivelmente em JVMs diferentes na mesma maquina.
+ *
+ * Cada civilizacao recebe um id global (a ordem em que foi adicionada) e
+ * pertence ao shard escolhido por hashing consistente sobre esse id. A
+ * cada tick o coordenador pede a fase de ataques a todos os shards ao
+ * mesmo tempo, recebe de cada um o lote de ataques a civilizacoes de
+ * outros shards, encaminha os lotes aos shards dos alvos e pede a fase de
+ * resolucao. Com a mesma semente e as mesmas civilizacoes o estado final e
+ * o mesmo de TickSimulation, com qualquer numero de shards.
+ *
+ * Adicionar ou remover um shard move apenas as civilizacoes cujo dono
+ * mudou no anel, entre ticks.
+ */
+public class ShardedSimulation implements AutoCloseable {
+  private static final int VIRTUAL_NODES = 128;
+
+  private final long seed;
+  private final ConsistentHashRing ring = new ConsistentHashRing(VIRTUAL_NODES);
+  private final List<String> addresses = new ArrayList<>();
+  private final List<ShardConnection> shards = new ArrayList<>();
+  //Indice (em shards) do dono de cada civilizacao
+  private int[] owner = new int[0];
+  private int civilizationCount;
+  private int lastMoved;
+  private long tick;
+
+  public ShardedSimulation(long seed){
+    this.seed = seed;
+  }
+
+  /**
+   * Conecta um ShardServer e move para ele as civilizacoes que passam a
+   * ser suas no anel.
+   */
+  public void addShard(String address) throws IOException {
+    ShardConnection connection = ShardConnection.connect(address);
+    ring.add(address);
+    addresses.add(address);
+    shards.add(connection);
+    rebalance(-1);
+  }
+
+  /**
+   * Move as civilizacoes do shard para os demais, encerra o processo dele
+   * e o desconecta.
+   */
+  public void removeShard(String address) throws IOException {
+    int leaving = addresses.indexOf(address);
+    if(leaving < 0){
+      throw new IllegalArgumentException("Shard desconhecido: " + address);
+    }
+    if(shards.size() == 1 && civilizationCount > 0){
+      throw new IllegalStateException("Não é possível remover o último shard com civilizações");
+    }
+    ring.remove(address);
+    rebalance(leaving);
+    ShardConnection connection = shards.get(leaving);
+    connection.begin(ShardConnection.SHUTDOWN);
+    connection.send();
+    connection.expect(ShardConnection.OK);
+    connection.close();
+    shards.remove(leaving);
+    addresses.remove(leaving);
+    for(int id = 0; id < civilizationCount; id++){
+      if(owner[id] > leaving){
+        owner[id]--;
+      }
+    }
+  }
+
+  /**
+   * Distribui novas civilizacoes pelos shards; os ids continuam a partir
+   * das ja adicionadas.
+   */
+  public void addCivilizations(List<Civilization> civilizations) throws IOException {
+    if(shards.isEmpty()){
+      throw new IllegalStateException("Nenhum shard conectado");
+    }
+    int first = civilizationCount;
+    owner = Arrays.copyOf(owner, first + civilizations.size());
+    List<List<CivilizationState>> assigned = perShard();
+    for(int i = 0; i < civilizations.size(); i++){
+      Civilization civilization = civilizations.get(i);
+      int id = first + i;
+      owner[id] = shardFor(id);
+      assigned.get(owner[id]).add(new CivilizationState(id, civilization.getResources(),
+        civilization.getName(), civilization.getStrategy().getName()));
+    }
+    civilizationCount = owner.length;
+    assign(assigned);
+  }
+
+  public TickReport run(int ticks) throws IOException {
+    if(ticks < 0){
+      throw new IllegalArgumentException("Número de ticks não pode ser negativo: " + ticks);
+    }
+    long[] latencies = new long[ticks];
+    int[][] batches = new int[shards.size()][16];
+    int[] batchSizes = new int[shards.size()];
+    long start = System.nanoTime();
+    for(int i = 0; i < ticks; i++){
+      long tickStart = System.nanoTime();
+      //fase 1 em todos os shards ao mesmo tempo
+      for(ShardConnection shard : shards){
+        shard.begin(ShardConnection.ACT);
+        shard.putLong(tick);
+        shard.putLong(seed);
+        shard.putInt(civilizationCount);
+        shard.send();
+      }
+      for(ShardConnection shard : shards){
+        shard.expect(ShardConnection.ATTACKS);
+        int count = shard.getInt();
+        for(int attack = 0; attack < count; attack++){
+          int target = shard.getInt();
+          int rolled = shard.getInt();
+          int destination = owner[target];
+          int size = batchSizes[destination];
+          if(size + 2 > batches[destination].length){
+            batches[destination] = Arrays.copyOf(batches[destination], batches[destination].length * 2);
+          }
+          batches[destination][size] = target;
+          batches[destination][size + 1] = rolled;
+          batchSizes[destination] = size + 2;
+        }
+      }
+      //fase 2: cada shard recebe o lote de ataques as suas civilizacoes
+      for(int s = 0; s < shards.size(); s++){
+        ShardConnection shard = shards.get(s);
+        shard.begin(ShardConnection.RESOLVE);
+        shard.putInt(batchSizes[s] / 2);
+        for(int j = 0; j < batchSizes[s]; j++){
+          shard.putInt(batches[s][j]);
+        }
+        shard.send();
+        batchSizes[s] = 0;
+      }
+      for(ShardConnection shard : shards){
+        shard.expect(ShardConnection.OK);
+      }
+      tick++;
+      latencies[i] = System.nanoTime() - tickStart;
+    }
+    return new TickReport(ticks, shards.size(), "shards", System.nanoTime() - start, latencies);
+  }
+
+  /**
+   * Resumo do estado na mesma forma de TickSimulation.stateHash(), para
+   * comparar execucoes distribuidas e locais.
+   */
+  public long stateHash() throws IOException {
+    int[] resources = new int[civilizationCount];
+    for(ShardConnection shard : shards){
+      shard.begin(ShardConnection.STATE);
+      shard.send();
+      for(CivilizationState state : readCivilizations(shard)){
+        resources[state.id()] = state.resources();
+      }
+    }
+    long hash = 1;
+    for(int value : resources){
+      hash = 31 * hash + value;
+    }
+    return hash;
+  }
+
+  public long getTick(){
+    return tick;
+  }
+
+  public int getCivilizationCount(){
+    return civilizationCount;
+  }
+
+  public List<String> getShards(){
+    return List.copyOf(addresses);
+  }
+
+  //Civilizacoes que mudaram de shard no ultimo addShard/removeShard
+  public int getLastMoved(){
+    return lastMoved;
+  }
+
+  //Desconecta dos shards sem encerra-los
+  @Override
+  public void close() throws IOException {
+    for(ShardConnection shard : shards){
+      shard.close();
+    }
+    shards.clear();
+    addresses.clear();
+  }
+
+  //Recalcula os donos e move as civilizacoes que mudaram; leaving e o shard que esta saindo (ou -1)
+  private void rebalance(int leaving) throws IOException {
+    List<List<Integer>> evicted = new ArrayList<>(shards.size());
+    for(int s = 0; s < shards.size(); s++){
+      evicted.add(new ArrayList<>());
+    }
+    int moved = 0;
+    for(int id = 0; id < civilizationCount; id++){
+      int next = shardFor(id);
+      if(next != owner[id]){
+        evicted.get(owner[id]).add(id);
+        moved++;
+      }
+    }
+    List<List<CivilizationState>> assigned = perShard();
+    for(int s = 0; s < shards.size(); s++){
+      List<Integer> ids = evicted.get(s);
+      if(ids.isEmpty()){
+        continue;
+      }
+      ShardConnection shard = shards.get(s);
+      shard.begin(ShardConnection.EVICT);
+      shard.putInt(ids.size());
+      for(int id : ids){
+        shard.putInt(id);
+      }
+      shard.send();
+      for(CivilizationState state : readCivilizations(shard)){
+        int next = shardFor(state.id());
+        owner[state.id()] = next;
+        assigned.get(next).add(state);
+      }
+    }
+    if(leaving >= 0 && !assigned.get(leaving).isEmpty()){
+      throw new IllegalStateException("Civilizações atribuídas ao shard que está saindo");
+    }
+    assign(assigned);
+    lastMoved = moved;
+  }
+
+  private void assign(List<List<CivilizationState>> assigned) throws IOException {
+    for(int s = 0; s < shards.size(); s++){
+      List<CivilizationState> states = assigned.get(s);
+      if(states.isEmpty()){
+        continue;
+      }
+      ShardConnection shard = shards.get(s);
+      shard.begin(ShardConnection.ASSIGN);
+      shard.putInt(states.size());
+      for(CivilizationState state : states){
+        shard.putInt(state.id());
+        shard.putInt(state.resources());
+        shard.putString(state.name());
+        shard.putString(state.strategy());
+      }
+      shard.send();
+      shard.expect(ShardConnection.OK);
+    }
+  }
+
+  private static List<CivilizationState> readCivilizations(ShardConnection shard) throws IOException {
+    shard.expect(ShardConnection.CIVILIZATIONS);
+    int count = shard.getInt();
+    List<CivilizationState> states = new ArrayList<>(count);
+    for(int i = 0; i < count; i++){
+      states.add(new CivilizationState(shard.getInt(), shard.getInt(), shard.getString(), shard.getString()));
+    }
+    return states;
+  }
+
+  private List<List<CivilizationState>> perShard(){
+    List<List<CivilizationState>> lists = new ArrayList<>(shards.size());
+    for(int s = 0; s < shards.size(); s++){
+      lists.add(new ArrayList<>());
+    }
+    return lists;
+  }
+
+  private int shardFor(int id){
+    return addresses.indexOf(ring.nodeFor(id));
+  }
+
+  private record CivilizationState(int id, int resources, String name, String strategy){
+  }
+}
@@ -0,0 +1,131 @@
+package patterns.strategy.simulation;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import patterns.strategy.AttackStrategy;
+import patterns.strategy.Civilization;
+
+/**
+ * Avalia estrategias candidatas por simulacao de Monte Carlo.
+ *
+ * Para cada candidata sao simulados varios confrontos (Engagement) contra
+ * um adversario espelho (mesmo poder e recursos) que usa uma das
+ * estrategias adversarias, sorteada a cada confronto. As simulacoes rodam
+ * em paralelo num ForkJoinPool; o ganho depende dos nucleos disponiveis, e
+ * com um unico nucleo mais threads nao tornam a avaliacao mais rapida.
+ *
+ * Os numeros aleatorios vem de SplittableRandom divididos segundo uma
+ * arvore fixa de intervalos de simulacoes, e as contagens sao inteiras,
+ * entao o ranking e identico para a mesma semente com qualquer paralelismo.
+ */
+public class StrategyEvaluator {
+  //Tamanho fixo das folhas: a arvore de divisao nao depende do numero de threads
+  private static final int ROLLOUTS_PER_LEAF = 256;
+
+  private final ForkJoinPool pool;
+  private final int rolloutsPerStrategy;
+  private final long seed;
+
+  public StrategyEvaluator(ForkJoinPool pool, int rolloutsPerStrategy, long seed){
+    if(rolloutsPerStrategy <= 0){
+      throw new IllegalArgumentException("Número de simulações deve ser positivo: " + rolloutsPerStrategy);
+    }
+    this.pool = pool;
+    this.rolloutsPerStrategy = rolloutsPerStrategy;
+    this.seed = seed;
+  }
+
+  public StrategyEvaluator(int rolloutsPerStrategy, long seed){
+    this(ForkJoinPool.commonPool(), rolloutsPerStrategy, seed);
+  }
+
+  //Adversario usa as proprias candidatas
+  public List<StrategyScore> rank(Civilization civilization, List<? extends AttackStrategy> candidates){
+    return rank(civilization, candidates, candidates);
+  }
+
+  /**
+   * Ordena as candidatas pelo resultado esperado, da melhor para a pior.
+   * Empates mantem a ordem em que as candidatas foram informadas.
+   */
+  public List<StrategyScore> rank(Civilization civilization, List<? extends AttackStrategy> candidates,
+                                  List<? extends AttackStrategy> opponents){
+    if(candidates.isEmpty() || opponents.isEmpty()){
+      throw new IllegalArgumentException("É preciso pelo menos uma estratégia candidata e uma adversária");
+    }
+    AttackStrategy[] opponentArray = opponents.toArray(new AttackStrategy[0]);
+    int power = civilization.getMilitaryPower();
+    int resources = civilization.getResources();
+
+    SplittableRandom root = new SplittableRandom(seed);
+    List<Rollouts> tasks = new ArrayList<>(candidates.size());
+    for(AttackStrategy candidate : candidates){
+      tasks.add(new Rollouts(candidate, opponentArray, power, resources, 0, rolloutsPerStrategy, root.split()));
+    }
+    List<StrategyScore> scores = new ArrayList<>(candidates.size());
+    pool.invoke(new RecursiveTask<Void>(){
+      @Override
+      protected Void compute(){
+        ForkJoinTask.invokeAll(tasks);
+        return null;
+      }
+    });
+    for(int i = 0; i < tasks.size(); i++){
+      long[] result = tasks.get(i).join();
+      scores.add(new StrategyScore(candidates.get(i), result[Engagement.WIN], result[Engagement.DRAW], result[Engagement.LOSS]));
+    }
+    scores.sort(Comparator.comparingDouble(StrategyScore::getExpectedOutcome).reversed());
+    return scores;
+  }
+
+  //Executa as simulacoes [from, to) de uma candidata; retorna contagens indexadas por WIN/DRAW/LOSS
+  private static final class Rollouts extends RecursiveTask<long[]> {
+    private static final long serialVersionUID = 1L;
+
+    private final AttackStrategy candidate;
+    private final AttackStrategy[] opponents;
+    private final int power;
+    private final int resources;
+    private final int from;
+    private final int to;
+    private final SplittableRandom random;
+
+    Rollouts(AttackStrategy candidate, AttackStrategy[] opponents, int power, int resources, int from, int to, SplittableRandom random){
+      this.candidate = candidate;
+      this.opponents = opponents;
+      this.power = power;
+      this.resources = resources;
+      this.from = from;
+      this.to = to;
+      this.random = random;
+    }
+
+    @Override
+    protected long[] compute(){
+      if(to - from <= ROLLOUTS_PER_LEAF){
+        long[] counts = new long[3];
+        for(int i = from; i < to; i++){
+          AttackStrategy opponent = opponents[random.nextInt(opponents.length)];
+          counts[Engagement.simulate(power, resources, candidate, power, resources, opponent, random)]++;
+        }
+        return counts;
+      }
+      int middle = (from + to) >>> 1;
+      Rollouts left = new Rollouts(candidate, opponents, power, resources, from, middle, random.split());
+      Rollouts right = new Rollouts(candidate, opponents, power, resources, middle, to, random);
+      left.fork();
+      long[] counts = right.compute();
+      long[] other = left.join();
+      for(int i = 0; i < counts.length; i++){
+        counts[i] += other[i];
+      }
+      return counts;
+    }
+  }
+}
@@ -0,0 +1,49 @@
+package patterns.strategy.simulation;
+
+import patterns.strategy.AttackStrategy;
+
+//Resultado agregado das simulacoes de uma estrategia candidata
+public final class StrategyScore {
+  private final AttackStrategy strategy;
+  private final long wins;
+  private final long draws;
+  private final long losses;
+
+  StrategyScore(AttackStrategy strategy, long wins, long draws, long losses){
+    this.strategy = strategy;
+    this.wins = wins;
+    this.draws = draws;
+    this.losses = losses;
+  }
+
+  public AttackStrategy getStrategy(){
+    return strategy;
+  }
+
+  public long getWins(){
+    return wins;
+  }
+
+  public long getDraws(){
+    return draws;
+  }
+
+  public long getLosses(){
+    return losses;
+  }
+
+  public long getRollouts(){
+    return wins + draws + losses;
+  }
+
+  //Resultado esperado: 1 vitoria, 0.5 empate, 0 derrota
+  public double getExpectedOutcome(){
+    long rollouts = getRollouts();
+    return rollouts == 0 ? 0 : (wins + draws * 0.5) / rollouts;
+  }
+
+  @Override
+  public String toString(){
+    return String.format("%s: %.1f%% (V %d / E %d / D %d)", strategy.getName(), getExpectedOutcome() * 100, wins, draws, losses);
+  }
+}
@@ -0,0 +1,58 @@
+package patterns.strategy.simulation;
+
+import java.util.Arrays;
+
+//Vazao e latencia por tick de uma execucao de TickSimulation ou ShardedSimulation
+public final class TickReport {
+  private final int ticks;
+  private final int threads;
+  //O que threads conta no texto do relatorio: "threads" ou "shards"
+  private final String unit;
+  private final long elapsedNanos;
+  private final long[] sortedLatencies;
+
+  TickReport(int ticks, int threads, String unit, long elapsedNanos, long[] latencies){
+    this.ticks = ticks;
+    this.threads = threads;
+    this.unit = unit;
+    this.elapsedNanos = elapsedNanos;
+    this.sortedLatencies = latencies.clone();
+    Arrays.sort(sortedLatencies);
+  }
+
+  public int getTicks(){
+    return ticks;
+  }
+
+  //Threads de TickSimulation ou shards de ShardedSimulation
+  public int getThreads(){
+    return threads;
+  }
+
+  public long getElapsedNanos(){
+    return elapsedNanos;
+  }
+
+  public double getTicksPerSecond(){
+    return elapsedNanos == 0 ? 0 : ticks * 1e9 / elapsedNanos;
+  }
+
+  /**
+   * @param quantile entre 0 e 1 (0.99 para p99)
+   * @return latencia do tick nesse percentil, em nanossegundos
+   */
+  public long getLatencyPercentile(double quantile){
+    if(sortedLatencies.length == 0){
+      return 0;
+    }
+    int index = (int) Math.ceil(quantile * sortedLatencies.length) - 1;
+    return sortedLatencies[Math.max(0, Math.min(index, sortedLatencies.length - 1))];
+  }
+
+  @Override
+  public String toString(){
+    return String.format("%d ticks em %d %s: %.1f ticks/s, p50 %.3f ms, p99 %.3f ms, max %.3f ms",
+      ticks, threads, unit, getTicksPerSecond(), getLatencyPercentile(0.50) / 1e6,
+      getLatencyPercentile(0.99) / 1e6, getLatencyPercentile(1.0) / 1e6);
+  }
+}
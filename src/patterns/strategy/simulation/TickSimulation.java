@@ -0,0 +1,263 @@
+package patterns.strategy.simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.locks.LockSupport;
+
+import patterns.strategy.AttackStrategy;
+import patterns.strategy.Civilization;
+
+/**
+ * Simulacao em passos fixos (ticks) de muitas civilizacoes em paralelo.
+ *
+ * As civilizacoes sao divididas em faixas contiguas (shards), uma por
+ * thread. Cada tick tem duas fases separadas por uma barreira:
+ * <ol>
+ * <li>cada shard aplica a renda das suas civilizacoes e executa os ataques
+ * delas, anotando o alvo e o dano de cada atacante;</li>
+ * <li>cada shard soma o dano recebido pelas suas civilizacoes (de atacantes
+ * de qualquer shard) e debita os recursos.</li>
+ * </ol>
+ * Os sorteios dependem apenas de (semente, tick, civilizacao) e o dano
+ * recebido e somado em inteiros antes de ser aplicado, entao o estado final
+ * e identico para qualquer numero de threads.
+ *
+ * Se um shard falhar, os demais param na proxima barreira e run() relanca
+ * a excecao original; os ticks em andamento ficam pela metade.
+ *
+ * As civilizacoes publicam eventos a cada ataque; para simulacoes grandes
+ * instale o NoOpEventSink antes de rodar.
+ */
+public class TickSimulation {
+  //Probabilidade de uma civilizacao tentar atacar num tick, em 1/256
+  private static final int ATTACK_CHANCE = 128;
+  private static final int NO_TARGET = -1;
+
+  private final Civilization[] civilizations;
+  private final int threads;
+  private final long seed;
+  private final long tickNanos;
+  private final int[] targets;
+  private final int[] damages;
+  private long tick;
+
+  /**
+   * @param threads numero de shards (e de threads) usados em cada tick
+   * @param tickNanos duracao minima de um tick em tempo real; 0 roda o mais rapido possivel
+   */
+  public TickSimulation(List<Civilization> civilizations, int threads, long seed, long tickNanos){
+    if(threads <= 0){
+      throw new IllegalArgumentException("Número de threads deve ser positivo: " + threads);
+    }
+    if(tickNanos < 0){
+      throw new IllegalArgumentException("Duração do tick não pode ser negativa: " + tickNanos);
+    }
+    this.civilizations = civilizations.toArray(new Civilization[0]);
+    this.threads = Math.min(threads, Math.max(1, this.civilizations.length));
+    this.seed = seed;
+    this.tickNanos = tickNanos;
+    this.targets = new int[this.civilizations.length];
+    this.damages = new int[this.civilizations.length];
+  }
+
+  public TickSimulation(List<Civilization> civilizations, int threads, long seed){
+    this(civilizations, threads, seed, 0);
+  }
+
+  //Ticks ja executados desde a criacao
+  public long getTick(){
+    return tick;
+  }
+
+  /**
+   * Executa mais ticks a partir do estado atual.
+   * @return vazao e latencia por tick desta execucao
+   */
+  public TickReport run(int ticks){
+    if(ticks < 0){
+      throw new IllegalArgumentException("Número de ticks não pode ser negativo: " + ticks);
+    }
+    long firstTick = tick;
+    long[] latencies = new long[ticks];
+    Throwable[] failure = new Throwable[1];
+    //Com uma falha registrada a acao da barreira lanca excecao, o que quebra a barreira para todos os shards
+    CyclicBarrier barrier = new CyclicBarrier(threads, () -> {
+      synchronized(failure){
+        if(failure[0] != null){
+          throw new IllegalStateException("Simulação interrompida por falha em um shard");
+        }
+      }
+    });
+    List<Thread> workers = new ArrayList<>(threads - 1);
+    for(int shard = 1; shard < threads; shard++){
+      int current = shard;
+      Thread worker = new Thread(() -> runShard(current, firstTick, ticks, barrier, failure, null), "tick-shard-" + shard);
+      worker.setDaemon(true);
+      workers.add(worker);
+      worker.start();
+    }
+    long start = System.nanoTime();
+    runShard(0, firstTick, ticks, barrier, failure, latencies);
+    long elapsed = System.nanoTime() - start;
+    for(Thread worker : workers){
+      try {
+        worker.join();
+      } catch(InterruptedException e){
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrompido aguardando os shards", e);
+      }
+    }
+    Throwable cause;
+    synchronized(failure){
+      cause = failure[0];
+    }
+    if(cause instanceof RuntimeException){
+      throw (RuntimeException) cause;
+    }
+    if(cause instanceof Error){
+      throw (Error) cause;
+    }
+    if(cause != null){
+      throw new IllegalStateException("Falha em um shard da simulação", cause);
+    }
+    tick = firstTick + ticks;
+    return new TickReport(ticks, threads, "threads", elapsed, latencies);
+  }
+
+  //O shard 0 roda na thread de quem chamou run() e mede a latencia de cada tick
+  private void runShard(int shard, long firstTick, int ticks, CyclicBarrier barrier, Throwable[] failure, long[] latencies){
+    int from = bound(shard);
+    int to = bound(shard + 1);
+    long[] received = new long[to - from];
+    long deadline = System.nanoTime();
+    try {
+      for(int i = 0; i < ticks; i++){
+        long tickStart = System.nanoTime();
+        long current = firstTick + i;
+        act(current, from, to);
+        barrier.await();
+        resolve(from, to, received);
+        barrier.await();
+        if(latencies != null){
+          latencies[i] = System.nanoTime() - tickStart;
+          if(tickNanos > 0){
+            //passo fixo: os outros shards esperam na proxima barreira
+            deadline += tickNanos;
+            LockSupport.parkNanos(deadline - System.nanoTime());
+          }
+        }
+      }
+    } catch(BrokenBarrierException e){
+      //outro shard falhou e ja registrou a causa
+    } catch(InterruptedException | RuntimeException | Error e){
+      synchronized(failure){
+        if(failure[0] == null){
+          failure[0] = e;
+        }
+      }
+      if(!barrier.isBroken()){
+        //os outros shards vao para a mesma barreira; ao chegarmos nela a acao a quebra
+        awaitBroken(barrier);
+      }
+    }
+  }
+
+  private static void awaitBroken(CyclicBarrier barrier){
+    try {
+      barrier.await();
+    } catch(InterruptedException e){
+      Thread.currentThread().interrupt();
+    } catch(BrokenBarrierException | IllegalStateException e){
+      //esperado: a barreira foi quebrada pela acao
+    }
+  }
+
+  //Fase 1: renda e ataques das civilizacoes do shard
+  private void act(long currentTick, int from, int to){
+    int count = civilizations.length;
+    for(int i = from; i < to; i++){
+      Civilization civilization = civilizations[i];
+      long random = mix(seed, currentTick, i);
+      civilization.deposit(income(random));
+      targets[i] = NO_TARGET;
+      if(!triesToAttack(random, count)){
+        continue;
+      }
+      int power = civilization.attack();
+      if(power == Civilization.ATTACK_REJECTED){
+        continue;
+      }
+      int target = target(random, i, count);
+      targets[i] = target;
+      damages[i] = damage(rolled(random, power), civilizations[target]);
+    }
+  }
+
+  //Sorteios de um tick, compartilhados com ShardServer para que as duas simulacoes cheguem ao mesmo estado
+  static int income(long random){
+    return (int) ((random & 0xFFFF) % (Engagement.MAX_INCOME + 1));
+  }
+
+  static boolean triesToAttack(long random, int count){
+    return count >= 2 && ((random >>> 16) & 0xFF) < ATTACK_CHANCE;
+  }
+
+  //Alvo diferente do proprio atacante
+  static int target(long random, int attacker, int count){
+    return (int) ((attacker + 1 + ((random >>> 24) & 0x7FFFFFFFL) % (count - 1)) % count);
+  }
+
+  //Poder do ataque com a variacao de +-25%
+  static int rolled(long random, int power){
+    return power * (75 + (int) ((random >>> 56) % 51)) / 100;
+  }
+
+  static int damage(int rolled, Civilization defender){
+    AttackStrategy defense = defender.getStrategy();
+    return Math.max(1, rolled - defense.defensePower(defender.getMilitaryPower()) * 3 / 10);
+  }
+
+  //Fase 2: cada shard soma o dano recebido pelas suas civilizacoes e debita de uma vez
+  private void resolve(int from, int to, long[] received){
+    for(int attacker = 0; attacker < targets.length; attacker++){
+      int target = targets[attacker];
+      if(target >= from && target < to){
+        received[target - from] += damages[attacker];
+      }
+    }
+    for(int i = from; i < to; i++){
+      long damage = received[i - from];
+      if(damage > 0){
+        Civilization civilization = civilizations[i];
+        civilization.deposit(-(int) Math.min(damage, civilization.getResources()));
+        received[i - from] = 0;
+      }
+    }
+  }
+
+  /**
+   * Resumo deterministico do estado (recursos de todas as civilizacoes),
+   * util para comparar execucoes com numeros diferentes de threads.
+   */
+  public long stateHash(){
+    long hash = 1;
+    for(Civilization civilization : civilizations){
+      hash = 31 * hash + civilization.getResources();
+    }
+    return hash;
+  }
+
+  private int bound(int shard){
+    return (int) ((long) civilizations.length * shard / threads);
+  }
+
+  //SplitMix64 sobre (semente, tick, civilizacao)
+  static long mix(long seed, long tick, int civilization){
+    long z = seed + tick * 0x9E3779B97F4A7C15L + civilization * 0xC2B2AE3D27D4EB4FL;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+}
@@ -3,8 +3,7 @@ import patterns.strategy.AttackStrategy;
 
 public class AggressiveStrategy implements AttackStrategy {
     @Override
-    public String execute(int basePower){
-      int attackPower = (int)(basePower * getAttackModifier());
+    public String describe(int attackPower){
       return String.format("Ataque AGRESSIVO com poder %d! (+50%% ataque, -30%% defesa)", attackPower);
     }
 
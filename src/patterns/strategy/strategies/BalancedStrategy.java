@@ -3,8 +3,7 @@ import patterns.strategy.AttackStrategy;
 
 public class BalancedStrategy implements AttackStrategy {
   @Override
-    public String execute(int basePower){
-      int attackPower = (int)(basePower * getAttackModifier());
+    public String describe(int attackPower){
       return String.format("Ataque BALANCEADO com poder %d! (ataque e defesa equilibrados)", attackPower);
     }
 
@@ -3,8 +3,7 @@ import patterns.strategy.AttackStrategy;
 
 public class DefensiveStrategy implements AttackStrategy {
     @Override
-    public String execute(int basePower){
-      int attackPower = (int)(basePower * getAttackModifier());
+    public String describe(int attackPower){
       return String.format("Ataque DEFENSIVO com poder %d! (-30%% ataque, +50%% defesa)", attackPower);
     }
 
@@ -0,0 +1,137 @@
+package patterns.batch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import patterns.events.EventSink;
+import patterns.events.Events;
+import patterns.factory.registry.UnitRegistry;
+import patterns.strategy.AttackStrategy;
+import patterns.strategy.StrategyRegistry;
+
+class CommandLogIngesterTest {
+  //Estrategia que derruba a thread do shard com um Error no primeiro ataque
+  private static final class FatalStrategy implements AttackStrategy {
+    static final Error FAILURE = new OutOfMemoryError("simulado");
+
+    @Override
+    public int attackPower(int basePower){
+      throw FAILURE;
+    }
+
+    @Override
+    public double getAttackModifier(){
+      return 1;
+    }
+
+    @Override
+    public double getDefenseModifier(){
+      return 1;
+    }
+
+    @Override
+    public String getName(){
+      return "Fatal";
+    }
+  }
+
+  //Guarda as linhas publicadas no sink global durante a ingestao
+  private static final class RecordingEventSink implements EventSink {
+    final List<String> lines = Collections.synchronizedList(new ArrayList<>());
+
+    @Override
+    public boolean isEnabled(){
+      return true;
+    }
+
+    @Override
+    public void info(String line){
+      lines.add(line);
+    }
+
+    @Override
+    public void error(String line){
+      lines.add(line);
+    }
+  }
+
+  @TempDir
+  Path directory;
+
+  private UnitRegistry units;
+  private StrategyRegistry strategies;
+
+  @BeforeEach
+  void load() throws IOException {
+    units = UnitRegistry.load(Path.of("data", "units.csv"));
+    strategies = new StrategyRegistry();
+    strategies.register(new FatalStrategy());
+  }
+
+  private Path log(String... lines) throws IOException {
+    return Files.write(directory.resolve("comandos.log"), String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void keywordsIgnoreCaseLikeScenarioRunner() throws IOException {
+    CommandLogIngester ingester = new CommandLogIngester(units, strategies, 2, 2);
+    IngestionSummary summary = ingester.ingest(log(
+      "CIV Inglaterra Britanico 1000 Agressiva",
+      "Train Inglaterra ARCHER 200000000",
+      "train Inglaterra ARCHER 5",
+      "ATTACK Inglaterra"));
+    assertEquals(0, summary.getErrors());
+    assertEquals(1, summary.getAttacksExecuted());
+    assertEquals(200_000_005L, ingester.getTroopCount("Inglaterra"));
+  }
+
+  @Test
+  void fatalShardErrorIsRethrownWithoutHanging() throws IOException {
+    StringBuilder lines = new StringBuilder("civ A Britanico 1000000 Fatal\nattack A\n");
+    for(int i = 0; i < 50_000; i++){
+      lines.append("resources A 1\n");
+    }
+    Path file = Files.writeString(directory.resolve("comandos.log"), lines);
+    for(int batchesPerShard : new int[]{1, 4}){
+      CommandLogIngester ingester = new CommandLogIngester(units, strategies, 1, batchesPerShard);
+      assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+        Error e = assertThrows(Error.class, () -> ingester.ingest(file));
+        assertSame(FatalStrategy.FAILURE, e);
+      });
+    }
+  }
+
+  @Test
+  void ingestionLeavesGlobalEventsAlone() throws IOException {
+    RecordingEventSink global = new RecordingEventSink();
+    EventSink previous = Events.install(global);
+    try {
+      IngestionSummary summary = new CommandLogIngester(units, strategies, 2, 2).ingest(log(
+        "civ Inglaterra Britanico 1000 Agressiva",
+        "civ Franca Frances 10",
+        "resources Inglaterra 50",
+        "attack Inglaterra",
+        "attack Franca"));
+      assertEquals(1, summary.getAttacksExecuted());
+      assertSame(global, Events.sink());
+      assertEquals(List.of(), global.lines);
+    } finally {
+      Events.install(previous);
+    }
+  }
+}
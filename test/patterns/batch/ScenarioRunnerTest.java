@@ -0,0 +1,129 @@
+package patterns.batch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import patterns.events.EventSink;
+import patterns.events.Events;
+import patterns.factory.registry.UnitRegistry;
+import patterns.strategy.StrategyRegistry;
+
+class ScenarioRunnerTest {
+  //Guarda as linhas publicadas; as civilizacoes de cenarios diferentes publicam de threads diferentes
+  private static final class RecordingEventSink implements EventSink {
+    final List<String> lines = Collections.synchronizedList(new ArrayList<>());
+
+    @Override
+    public boolean isEnabled(){
+      return true;
+    }
+
+    @Override
+    public void info(String line){
+      lines.add(line);
+    }
+
+    @Override
+    public void error(String line){
+      lines.add(line);
+    }
+  }
+
+  @TempDir
+  Path directory;
+
+  private final RecordingEventSink global = new RecordingEventSink();
+  private EventSink previous;
+  private ScenarioRunner runner;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    previous = Events.install(global);
+    runner = new ScenarioRunner(UnitRegistry.load(Path.of("data", "units.csv")), new StrategyRegistry(), ResultFormat.CSV, 2);
+  }
+
+  @AfterEach
+  void restore(){
+    Events.install(previous);
+  }
+
+  private Path scenario(String name, String... lines) throws IOException {
+    return Files.write(directory.resolve(name), String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static List<String> linesOf(String output, Path scenario){
+    return output.lines().filter(line -> line.startsWith(scenario + ",")).collect(Collectors.toList());
+  }
+
+  @Test
+  void writesOneResultPerCommand() throws IOException {
+    Path first = scenario("a.txt",
+      "# comentario",
+      "civ Inglaterra Britanico 60 Agressiva",
+      "train Inglaterra ARCHER 10",
+      "attack Inglaterra",
+      "",
+      "attack Inglaterra",
+      "marchar Inglaterra");
+    Path second = scenario("b.txt",
+      "civ Franca Frances 100",
+      "attack Ninguem");
+    StringWriter out = new StringWriter();
+
+    BatchSummary summary = runner.run(List.of(first, second), out);
+
+    assertEquals(2, summary.getScenarios());
+    assertEquals(7, summary.getCommands());
+    assertEquals(2, summary.getErrors());
+    String output = out.toString();
+    assertTrue(output.startsWith(ResultFormat.CSV.header()));
+    assertEquals(List.of(
+      first + ",2,civ,Inglaterra,ok,Agressiva,60",
+      first + ",3,train,Inglaterra,ok,10,60",
+      //150 da civilizacao (100 * 1.5) mais 10 arqueiros de 52 (35 * 1.5)
+      first + ",4,attack,Inglaterra,ok,670,10",
+      first + ",6,attack,Inglaterra,rejeitado,0,10",
+      first + ",7,marchar,Inglaterra,erro,Comando desconhecido: marchar,0"), linesOf(output, first));
+    assertEquals(List.of(
+      second + ",1,civ,Franca,ok,Balanceada,100",
+      second + ",2,attack,Ninguem,erro,Civilização não declarada: Ninguem,0"), linesOf(output, second));
+  }
+
+  @Test
+  void eventsGoToRunnerSinkWithoutTouchingGlobal() throws IOException {
+    RecordingEventSink events = new RecordingEventSink();
+    runner.setEventSink(events);
+    Path first = scenario("a.txt", "civ Inglaterra Britanico 100 Agressiva", "attack Inglaterra");
+    Path second = scenario("b.txt", "civ Franca Frances 100", "resources Franca 50");
+
+    runner.run(List.of(first, second), new StringWriter());
+
+    assertSame(global, Events.sink());
+    assertEquals(List.of(), global.lines);
+    assertTrue(events.lines.contains("Inglaterra->Ataque AGRESSIVO com poder 150! (+50% ataque, -30% defesa)"), events.lines.toString());
+    assertTrue(events.lines.contains("Franca ganhou 50 recursos!"), events.lines.toString());
+  }
+
+  @Test
+  void eventsAreOffByDefault() throws IOException {
+    runner.run(List.of(scenario("a.txt", "civ Inglaterra Britanico 100", "attack Inglaterra")), new StringWriter());
+
+    assertEquals(List.of(), global.lines);
+  }
+}
@@ -0,0 +1,45 @@
+package patterns.decorator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import patterns.decorator.upgrades.ArmorUpgrade;
+import patterns.decorator.upgrades.WeaponUpgrade;
+
+class TroopDecoratorTest {
+  //Decorador escrito antes de getDescriptionSuffix: sobrescreve getDescription
+  private static final class Banner extends TroopDecorator {
+    Banner(TroopComponent troop){
+      super(troop);
+    }
+
+    @Override
+    public String getDescription(){
+      return wrappedTroop.getDescription() + " + Estandarte";
+    }
+  }
+
+  private static TroopComponent soldier(){
+    return new BasicTroop("Soldado", 10, 10, 100);
+  }
+
+  @Test
+  void chainDescriptionConcatenatesSuffixes(){
+    TroopComponent troop = new WeaponUpgrade(new ArmorUpgrade(soldier()));
+    assertEquals("Soldado + Armadura Reforçada + Arma Aprimorada", troop.getDescription());
+  }
+
+  @Test
+  void legacyDecoratorKeepsItsDescriptionInsideAChain(){
+    TroopComponent troop = new WeaponUpgrade(new Banner(new ArmorUpgrade(soldier())));
+    assertEquals("Soldado + Armadura Reforçada + Estandarte + Arma Aprimorada", troop.getDescription());
+  }
+
+  @Test
+  void legacyDecoratorOnTopOfAChain(){
+    TroopComponent troop = new Banner(new WeaponUpgrade(soldier()));
+    assertEquals("Soldado + Arma Aprimorada + Estandarte", troop.getDescription());
+    assertEquals("Soldado + Arma Aprimorada + Estandarte", troop.compile().getDescription());
+  }
+}
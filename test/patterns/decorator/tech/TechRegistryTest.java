@@ -0,0 +1,98 @@
+package patterns.decorator.tech;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import patterns.decorator.upgrades.Upgrade;
+import patterns.factory.Troop;
+import patterns.factory.UnitType;
+import patterns.factory.army.Army;
+import patterns.factory.army.CombatKernel;
+import patterns.factory.civilizations.BritishFactory;
+import patterns.factory.civilizations.FrenchFactory;
+import patterns.strategy.AttackStrategy;
+import patterns.strategy.strategies.AggressiveStrategy;
+
+class TechRegistryTest {
+  @Test
+  void researchIsIdempotent(){
+    TechRegistry registry = new TechRegistry();
+    assertTrue(registry.research("Britanico", UnitType.ARCHER, Upgrade.WEAPON));
+    ModifierTable researched = registry.table();
+
+    assertFalse(registry.research("Britanico", UnitType.ARCHER, Upgrade.WEAPON));
+
+    //a repeticao nao troca o snapshot nem soma o bonus de novo
+    assertSame(researched, registry.table());
+    assertEquals(1, registry.getVersion());
+    int id = researched.civilizationId("Britanico");
+    assertEquals(Upgrade.WEAPON.getAttackBonus(), researched.attackBonus(id, UnitType.ARCHER));
+    assertEquals(Upgrade.WEAPON.bit(), researched.upgrades(id, UnitType.ARCHER));
+  }
+
+  @Test
+  void existingTechTroopSeesLaterResearch(){
+    TechRegistry registry = new TechRegistry();
+    Troop archer = new BritishFactory().createArcher();
+    TechTroop troop = registry.apply(archer);
+    assertEquals(archer.getAttack(), troop.getAttack());
+
+    registry.research("Britanico", UnitType.ARCHER, Upgrade.WEAPON);
+    registry.research("Britanico", UnitType.ARCHER, Upgrade.ARMOR);
+    //pesquisa de outro tipo de unidade nao vale para o arqueiro
+    registry.research("Britanico", UnitType.KNIGHT, Upgrade.ELITE);
+
+    assertEquals(archer.getAttack() + Upgrade.WEAPON.getAttackBonus() + Upgrade.ARMOR.getAttackBonus(), troop.getAttack());
+    assertEquals(archer.getDefense() + Upgrade.WEAPON.getDefenseBonus() + Upgrade.ARMOR.getDefenseBonus(), troop.getDefense());
+    assertEquals(archer.getGoldCost() + Upgrade.WEAPON.getCostBonus() + Upgrade.ARMOR.getCostBonus(), troop.getGoldCost());
+    assertEquals(archer.getWoodCost(), troop.getWoodCost());
+  }
+
+  @Test
+  void civilizationWithoutResearchHasNoBonus(){
+    TechRegistry registry = new TechRegistry();
+    registry.research("Britanico", UnitType.ARCHER, Upgrade.WEAPON);
+    ModifierTable table = registry.table();
+
+    assertEquals(-1, table.civilizationId("Frances"));
+    assertEquals(0, table.attackBonus(-1, UnitType.ARCHER));
+    assertEquals(0, table.defenseBonus(-1, UnitType.ARCHER));
+    assertEquals(0, table.costBonus(-1, UnitType.ARCHER));
+    assertEquals(0, table.upgrades(-1, UnitType.ARCHER));
+    assertFalse(table.isResearched("Frances", UnitType.ARCHER, Upgrade.WEAPON));
+
+    Troop archer = new FrenchFactory().createArcher();
+    TechTroop troop = registry.apply(archer);
+    assertEquals(archer.getAttack(), troop.getAttack());
+    assertEquals(archer.getDescription(), troop.getDescription());
+  }
+
+  @Test
+  void kernelTotalAttackMatchesNaiveSum(){
+    Army army = new Army();
+    army.add(new BritishFactory().train(UnitType.ARCHER, 1_000));
+    army.add(new BritishFactory().train(UnitType.KNIGHT, 300));
+    army.add(new FrenchFactory().train(UnitType.KNIGHT, 500));
+    army.add(new FrenchFactory().train(UnitType.SWORDSMAN, 200));
+    TechRegistry registry = new TechRegistry();
+    registry.research("Britanico", UnitType.ARCHER, Upgrade.WEAPON);
+    registry.research("Britanico", UnitType.ARCHER, Upgrade.VETERAN);
+    registry.research("Britanico", UnitType.KNIGHT, Upgrade.ELITE);
+    //Frances fica sem pesquisa (id -1 na tabela)
+    ModifierTable table = registry.table();
+    AttackStrategy strategy = new AggressiveStrategy();
+
+    long[] expected = new long[1];
+    army.forEach(troop -> {
+      int bonus = table.attackBonus(table.civilizationId(troop.getCivilization()), troop.getUnitType());
+      expected[0] += strategy.attackPower(troop.getAttack() + bonus);
+    });
+
+    assertEquals(expected[0], CombatKernel.totalAttack(army, strategy, table));
+    assertEquals(CombatKernel.totalAttack(army, strategy), CombatKernel.totalAttack(army, strategy, new TechRegistry().table()));
+  }
+}
@@ -0,0 +1,60 @@
+package patterns.events;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+class AsyncEventSinkTest {
+  //Canal que falha em toda escrita, como um disco cheio
+  private static final class FailingChannel implements WritableByteChannel {
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+      throw new IOException("disco cheio");
+    }
+
+    @Override
+    public boolean isOpen(){
+      return true;
+    }
+
+    @Override
+    public void close(){
+    }
+  }
+
+  @Test
+  void flushWritesPublishedMessages(){
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ByteArrayOutputStream err = new ByteArrayOutputStream();
+    try(AsyncEventSink sink = new AsyncEventSink(Channels.newChannel(out), Channels.newChannel(err), 16)){
+      sink.info("ataque");
+      sink.error("sem recursos");
+      sink.flush();
+      assertEquals("ataque" + System.lineSeparator(), out.toString(StandardCharsets.UTF_8));
+      assertEquals("sem recursos" + System.lineSeparator(), err.toString(StandardCharsets.UTF_8));
+    }
+  }
+
+  @Test
+  void writeFailureIsSurfacedByFlushAndClose(){
+    FailingChannel channel = new FailingChannel();
+    AsyncEventSink sink = new AsyncEventSink(channel, channel, 16);
+    sink.info("ataque");
+    assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+      UncheckedIOException e = assertThrows(UncheckedIOException.class, sink::flush);
+      assertEquals("disco cheio", e.getCause().getMessage());
+      assertThrows(UncheckedIOException.class, sink::close);
+    });
+  }
+}
@@ -0,0 +1,43 @@
+package patterns.factory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import patterns.factory.civilizations.BritishFactory;
+import patterns.metrics.Metrics;
+import patterns.metrics.MetricsRegistry;
+import patterns.metrics.SimpleMetricsRegistry;
+
+class TroopFactoryTest {
+  private final SimpleMetricsRegistry registry = new SimpleMetricsRegistry();
+  private MetricsRegistry previous;
+
+  @BeforeEach
+  void install(){
+    previous = Metrics.install(registry);
+  }
+
+  @AfterEach
+  void restore(){
+    if(previous == null){
+      Metrics.disable();
+    } else {
+      Metrics.install(previous);
+    }
+  }
+
+  @Test
+  void templatePrototypeIsNotCountedAsCreated(){
+    TroopFactory factory = new BritishFactory();
+    Squad squad = factory.train(UnitType.ARCHER, 10);
+    factory.createArcher();
+
+    assertEquals(11, registry.counter("factory.BritishFactory.ARCHER.created").get());
+    assertSame(squad.getTemplate(), factory.template(UnitType.ARCHER));
+    assertEquals(35, squad.getTemplate().getAttack());
+  }
+}
@@ -0,0 +1,77 @@
+package patterns.factory.army;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import patterns.factory.Troop;
+import patterns.factory.UnitType;
+import patterns.factory.civilizations.BritishFactory;
+
+class ArmyTest {
+  //Implementacao anterior a getUnitType/getCivilization
+  private static final class LegacyTroop implements Troop {
+    @Override
+    public int getAttack(){
+      return 10;
+    }
+
+    @Override
+    public int getDefense(){
+      return 5;
+    }
+
+    @Override
+    public int getGoldCost(){
+      return 30;
+    }
+
+    @Override
+    public int getWoodCost(){
+      return 0;
+    }
+
+    @Override
+    public String getDescription(){
+      return "Tropa antiga";
+    }
+
+    @Override
+    public void display(){
+    }
+  }
+
+  @Test
+  void addCopiesKeepsAttributesAndRemoveMovesLast(){
+    Army army = new Army(1);
+    Troop archer = new BritishFactory().createArcher();
+    Troop knight = new BritishFactory().createKnight();
+    assertEquals(0, army.add(archer, 3));
+    assertEquals(3, army.add(knight));
+
+    army.remove(0);
+    assertEquals(3, army.size());
+    assertEquals(UnitType.KNIGHT, army.getUnitType(0));
+    assertEquals(2L * archer.getAttack() + knight.getAttack(), army.totalAttack());
+    assertEquals("Britanico", army.view().moveTo(0).getCivilization());
+  }
+
+  @Test
+  void addRejectsNegativeAndOverflowingCounts(){
+    Army army = new Army();
+    Troop archer = new BritishFactory().createArcher();
+    army.add(archer, 2);
+
+    assertThrows(IllegalArgumentException.class, () -> army.add(archer, -1));
+    assertThrows(IllegalStateException.class, () -> army.add(archer, Integer.MAX_VALUE));
+    assertEquals(2, army.size());
+  }
+
+  @Test
+  void legacyTroopsCompileButCannotBeStored(){
+    Troop legacy = new LegacyTroop();
+    assertEquals(10, legacy.getAttack());
+    assertThrows(UnsupportedOperationException.class, () -> new Army().add(legacy));
+  }
+}
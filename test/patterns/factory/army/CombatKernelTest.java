@@ -0,0 +1,38 @@
+package patterns.factory.army;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import patterns.factory.UnitType;
+import patterns.factory.civilizations.BritishFactory;
+import patterns.factory.civilizations.FrenchFactory;
+import patterns.strategy.AttackStrategy;
+import patterns.strategy.strategies.AggressiveStrategy;
+import patterns.strategy.strategies.DefensiveStrategy;
+
+class CombatKernelTest {
+  @Test
+  void parallelScoreMatchesSequentialScore(){
+    //tamanhos que nao sao multiplos das folhas da divisao paralela
+    Army army = new Army();
+    army.add(new BritishFactory().train(UnitType.ARCHER, 700_001));
+    army.add(new BritishFactory().train(UnitType.KNIGHT, 300_003));
+    Army opponent = new Army();
+    opponent.add(new FrenchFactory().train(UnitType.SWORDSMAN, 1_200_007));
+    AttackStrategy aggressive = new AggressiveStrategy();
+    AttackStrategy defensive = new DefensiveStrategy();
+
+    ForkJoinPool pool = new ForkJoinPool(3);
+    try {
+      assertEquals(CombatKernel.score(army, aggressive, opponent, defensive),
+        CombatKernel.score(army, aggressive, opponent, defensive, pool));
+      assertEquals(CombatKernel.score(opponent, defensive, army, aggressive),
+        CombatKernel.score(opponent, defensive, army, aggressive, pool));
+    } finally {
+      pool.shutdown();
+    }
+  }
+}
@@ -0,0 +1,41 @@
+package patterns.factory.army;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import patterns.factory.Troop;
+import patterns.factory.UnitType;
+import patterns.factory.civilizations.BritishFactory;
+
+class OffHeapTroopStoreTest {
+  @Test
+  void everyAccessorRejectsAClosedStore(){
+    Troop archer = new BritishFactory().createArcher();
+    OffHeapTroopStore store = new OffHeapTroopStore();
+    store.add(archer, 3);
+    OffHeapTroopStore.View view = store.view().moveTo(1);
+    assertEquals(3, store.size());
+
+    store.close();
+    assertTrue(store.isClosed());
+    assertThrows(IllegalStateException.class, store::size);
+    assertThrows(IllegalStateException.class, store::getReservedBytes);
+    assertThrows(IllegalStateException.class, () -> store.civilizationId("Britanico"));
+    assertThrows(IllegalStateException.class, () -> store.civilizationName(0));
+    assertThrows(IllegalStateException.class, () -> store.add(archer));
+    assertThrows(IllegalStateException.class, () -> store.add(archer, 2));
+    assertThrows(IllegalStateException.class, () -> store.add(UnitType.ARCHER, 0, 1, 1, 1, 1, 0));
+    assertThrows(IllegalStateException.class, () -> store.getAttack(0));
+    assertThrows(IllegalStateException.class, () -> store.remove(0));
+    assertThrows(IllegalStateException.class, store::totalAttack);
+    assertThrows(IllegalStateException.class, store::clear);
+    assertThrows(IllegalStateException.class, store::view);
+    assertThrows(IllegalStateException.class, () -> store.forEach(troop -> { }));
+    //cursores criados antes do close tambem falham
+    assertThrows(IllegalStateException.class, view::getAttack);
+    assertThrows(IllegalStateException.class, view::getCivilization);
+  }
+}
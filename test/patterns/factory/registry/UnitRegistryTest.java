@@ -0,0 +1,145 @@
+package patterns.factory.registry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import patterns.factory.Troop;
+import patterns.factory.TroopFactory;
+import patterns.factory.UnitType;
+
+class UnitRegistryTest {
+  private static final String UNITS =
+    "# civilizacao,tipo,ataque,defesa,ouro,madeira\n"
+    + "Britanico,ARCHER,35,10,40,20\n"
+    + "\n"
+    + "Britanico, KNIGHT ,60,40,120,0  # cavalaria\n"
+    + "Frances,ARCHER,30,15,35,25\n";
+
+  @TempDir
+  Path dir;
+
+  private static UnitTable parse(String text) throws IOException {
+    return UnitTable.parse(new StringReader(text), "unidades.csv");
+  }
+
+  private Path write(String text) throws IOException {
+    return Files.writeString(dir.resolve("unidades.csv"), text, StandardCharsets.UTF_8);
+  }
+
+  @Test
+  void parsesUnitsSkippingCommentsAndBlankLines() throws IOException {
+    UnitTable table = parse(UNITS);
+
+    assertEquals(List.of("Britanico", "Frances"), table.civilizations());
+    int british = table.civilizationId("Britanico");
+    assertEquals(0, british);
+    assertEquals(-1, table.civilizationId("Espanhol"));
+    assertTrue(table.contains(british, UnitType.KNIGHT));
+    assertFalse(table.contains(british, UnitType.SWORDSMAN));
+    assertEquals(60, table.getAttack(british, UnitType.KNIGHT));
+    assertEquals(40, table.getDefense(british, UnitType.KNIGHT));
+    assertEquals(120, table.getGoldCost(british, UnitType.KNIGHT));
+    assertEquals(0, table.getWoodCost(british, UnitType.KNIGHT));
+
+    Troop archer = table.create(table.civilizationId("Frances"), UnitType.ARCHER);
+    assertEquals(UnitType.ARCHER, archer.getUnitType());
+    assertEquals("Frances", archer.getCivilization());
+    assertEquals(30, archer.getAttack());
+    assertEquals(25, archer.getWoodCost());
+    assertThrows(IllegalArgumentException.class, () -> table.create(british, UnitType.SWORDSMAN));
+  }
+
+  @Test
+  void malformedTableIsRejectedWithLine(){
+    String[] malformed = {
+      "Britanico,ARCHER,35,10,40\n",
+      "Britanico,ARCHER,35,dez,40,20\n",
+      "Britanico,CATAPULT,35,10,40,20\n",
+      "Britanico,ARCHER,35,10,40,20\nBritanico,ARCHER,30,10,40,20\n",
+    };
+    int[] lines = {1, 1, 1, 2};
+    for(int i = 0; i < malformed.length; i++){
+      String text = malformed[i];
+      IOException e = assertThrows(IOException.class, () -> parse(text));
+      assertTrue(e.getMessage().startsWith("unidades.csv:" + lines[i] + ":"), e.getMessage());
+    }
+  }
+
+  @Test
+  void reloadIsVisibleToExistingFactory() throws IOException {
+    Path file = write(UNITS);
+    UnitRegistry registry = UnitRegistry.load(file);
+    TroopFactory factory = registry.factory("Britanico");
+    assertEquals(35, factory.createArcher().getAttack());
+    assertEquals(35, factory.template(UnitType.ARCHER).getAttack());
+
+    //Britanico passa a ser o segundo da tabela: o id resolvido antes nao vale mais
+    write("Frances,ARCHER,30,15,35,25\nBritanico,ARCHER,50,10,40,20\n");
+    registry.reload(file);
+
+    assertEquals(2, registry.getVersion());
+    assertEquals(50, factory.createArcher().getAttack());
+    assertEquals(50, factory.template(UnitType.ARCHER).getAttack());
+    assertThrows(IllegalArgumentException.class, factory::createKnight);
+  }
+
+  @Test
+  void failedReloadKeepsCurrentTable() throws IOException {
+    Path file = write(UNITS);
+    UnitRegistry registry = UnitRegistry.load(file);
+    UnitTable loaded = registry.table();
+    TroopFactory factory = registry.factory("Britanico");
+
+    write("Britanico,ARCHER,50,10\n");
+    assertThrows(IOException.class, () -> registry.reload(file));
+
+    assertSame(loaded, registry.table());
+    assertEquals(1, registry.getVersion());
+    assertEquals(35, factory.createArcher().getAttack());
+  }
+
+  @Test
+  void removedCivilizationFailsExistingFactory() throws IOException {
+    UnitRegistry registry = new UnitRegistry(parse(UNITS));
+    TroopFactory factory = registry.factory("Frances");
+
+    registry.replace(parse("Britanico,ARCHER,35,10,40,20\n"));
+
+    assertThrows(IllegalStateException.class, factory::createArcher);
+    assertThrows(IllegalArgumentException.class, () -> registry.factory("Frances"));
+  }
+
+  @Test
+  void replacedTableIsSeenByFactoryOnAnotherThread() throws Exception {
+    UnitRegistry registry = new UnitRegistry(parse(UNITS));
+    TroopFactory factory = registry.factory("Britanico");
+    UnitTable stronger = parse("Britanico,ARCHER,99,10,40,20\n");
+
+    //Sem a escrita volatile o laco poderia nunca ver a tabela nova
+    CompletableFuture<Integer> reader = CompletableFuture.supplyAsync(() -> {
+      int attack;
+      do {
+        attack = factory.createArcher().getAttack();
+      } while(attack != 99);
+      return attack;
+    });
+    registry.replace(stronger);
+
+    assertEquals(99, reader.get(10, TimeUnit.SECONDS));
+  }
+}
@@ -0,0 +1,99 @@
+package patterns.factory.training;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import patterns.factory.Squad;
+import patterns.factory.TroopTemplate;
+import patterns.factory.UnitType;
+import patterns.factory.civilizations.BritishFactory;
+import patterns.factory.registry.UnitRegistry;
+
+class TrainingQueueTest {
+  //Fabrica cujo template funciona no submit e lanca um Error quando o worker o busca
+  private static final class FailingFactory extends BritishFactory {
+    static final Error FAILURE = new AssertionError("simulado");
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Override
+    public TroopTemplate template(UnitType type){
+      if(calls.incrementAndGet() > 1){
+        throw FAILURE;
+      }
+      return super.template(type);
+    }
+  }
+
+  @Test
+  void everySubmittedFutureCompletesWhenCloseRacesWithSubmit() throws IOException, InterruptedException {
+    UnitRegistry registry = UnitRegistry.load(Path.of("data", "units.csv"));
+    for(int round = 0; round < 20; round++){
+      TrainingQueue queue = new TrainingQueue(2, 64, OverflowPolicy.BLOCK);
+      ConcurrentLinkedQueue<CompletableFuture<Squad>> futures = new ConcurrentLinkedQueue<>();
+      Thread[] producers = new Thread[3];
+      for(int i = 0; i < producers.length; i++){
+        String civilization = i % 2 == 0 ? "Britanico" : "Frances";
+        producers[i] = new Thread(() -> {
+          for(int j = 0; j < 2_000; j++){
+            //uma fabrica nova por pedido, como quem chama registry.factory a cada vez
+            futures.add(registry.factory(civilization).trainAsync(queue, UnitType.ARCHER, 1));
+          }
+        });
+        producers[i].start();
+      }
+      Thread.sleep(1);
+      queue.close();
+      for(Thread producer : producers){
+        producer.join();
+      }
+      for(CompletableFuture<Squad> future : futures){
+        assertTrue(future.isDone(), "pedido perdido na rodada " + round);
+      }
+      assertEquals(0, queue.getPending());
+    }
+  }
+
+  @Test
+  void freshRegistryFactoriesAreServed() throws IOException {
+    UnitRegistry registry = UnitRegistry.load(Path.of("data", "units.csv"));
+    try(TrainingQueue queue = new TrainingQueue(1, 4, OverflowPolicy.REJECT)){
+      List<CompletableFuture<Squad>> futures = List.of(
+        registry.factory("Britanico").trainAsync(queue, UnitType.ARCHER, 3),
+        registry.factory("Britanico").trainAsync(queue, UnitType.KNIGHT, 2));
+      assertEquals(3, futures.get(0).join().size());
+      assertEquals(2, futures.get(1).join().size());
+      assertEquals(40, futures.get(1).join().getTemplate().getAttack());
+    }
+  }
+
+  @Test
+  void errorInFactoryFailsOnlyItsRequest(){
+    assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+      TrainingQueue queue = new TrainingQueue(1, 4, OverflowPolicy.REJECT);
+      CompletableFuture<Squad> failed = new FailingFactory().trainAsync(queue, UnitType.ARCHER, 3);
+      ExecutionException e = assertThrows(ExecutionException.class, failed::get);
+      assertSame(FailingFactory.FAILURE, e.getCause());
+
+      //o mesmo worker e a mesma fila continuam atendendo
+      CompletableFuture<Squad> next = new BritishFactory().trainAsync(queue, UnitType.ARCHER, 2);
+      assertEquals(2, next.get().size());
+      queue.close();
+      assertEquals(0, queue.getPending());
+      assertEquals(2, queue.getCompleted());
+    });
+  }
+}
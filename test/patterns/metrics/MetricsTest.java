@@ -0,0 +1,94 @@
+package patterns.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import javax.management.ReflectionException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import patterns.decorator.BasicTroop;
+import patterns.decorator.TroopComponent;
+import patterns.decorator.UpgradeCache;
+import patterns.decorator.upgrades.Upgrade;
+import patterns.events.EventSink;
+import patterns.events.Events;
+import patterns.events.NoOpEventSink;
+import patterns.strategy.Civilization;
+import patterns.strategy.strategies.AggressiveStrategy;
+import patterns.strategy.strategies.DefensiveStrategy;
+
+class MetricsTest {
+  private final SimpleMetricsRegistry registry = new SimpleMetricsRegistry();
+  private MetricsRegistry previous;
+  private EventSink previousSink;
+
+  @BeforeEach
+  void install(){
+    previous = Metrics.install(registry);
+    previousSink = Events.install(NoOpEventSink.INSTANCE);
+  }
+
+  @AfterEach
+  void restore(){
+    Events.install(previousSink);
+    if(previous == null){
+      Metrics.disable();
+    } else {
+      Metrics.install(previous);
+    }
+  }
+
+  @Test
+  void decoratorDepthIsRecordedOncePerCompiledChain(){
+    TroopComponent troop = new BasicTroop("Espadachim", 25, 20, 60);
+    for(Upgrade upgrade : new Upgrade[]{Upgrade.ARMOR, Upgrade.WEAPON, Upgrade.ELITE}){
+      troop = upgrade.applyTo(troop);
+    }
+    troop.compile();
+    troop.compile();
+    new UpgradeCache(16).resolve("Arqueiro", 30, 10, 40, Upgrade.WEAPON, Upgrade.VETERAN);
+
+    Histogram depth = registry.histogram(Metrics.DECORATOR_DEPTH);
+    assertEquals(2, depth.getCount());
+    assertEquals(2.5, depth.getMean());
+  }
+
+  @Test
+  void decoratorDepthIsRecordedForChainThatIsNeverCompiled(){
+    TroopComponent troop = Upgrade.ELITE.applyTo(Upgrade.ARMOR.applyTo(new BasicTroop("Lanceiro", 20, 25, 50)));
+    troop.getDescription();
+    troop.getDescription();
+    troop.display();
+
+    Histogram depth = registry.histogram(Metrics.DECORATOR_DEPTH);
+    assertEquals(1, depth.getCount());
+    assertEquals(2, depth.getMax());
+  }
+
+  @Test
+  void strategyTimeIsRecordedPerExecutedAttack(){
+    Civilization civilization = new Civilization("Medida", 3 * Civilization.ATTACK_COST, new AggressiveStrategy());
+    civilization.attack();
+    civilization.attack();
+    civilization.setStrategy(new DefensiveStrategy());
+    civilization.attack();
+    //sem recursos: rejeitado, nao entra no tempo de nenhuma estrategia
+    civilization.attack();
+
+    assertEquals(2, registry.histogram("strategy.AggressiveStrategy.nanos").getCount());
+    assertEquals(1, registry.histogram("strategy.DefensiveStrategy.nanos").getCount());
+    assertEquals(3, registry.counter(Metrics.ATTACKS_EXECUTED).get());
+    assertEquals(1, registry.counter(Metrics.ATTACKS_REJECTED).get());
+  }
+
+  @Test
+  void unknownOperationIsReflectionException(){
+    ReflectionException e = assertThrows(ReflectionException.class,
+      () -> new MetricsMBean(registry).invoke("reset", new Object[0], new String[0]));
+    assertInstanceOf(NoSuchMethodException.class, e.getTargetException());
+  }
+}
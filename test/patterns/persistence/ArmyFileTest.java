@@ -0,0 +1,98 @@
+package patterns.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import patterns.decorator.BasicTroop;
+import patterns.decorator.TroopComponent;
+import patterns.decorator.UpgradedTroop;
+import patterns.decorator.upgrades.Upgrade;
+import patterns.factory.Troop;
+import patterns.factory.UnitType;
+import patterns.factory.army.Army;
+import patterns.factory.civilizations.BritishFactory;
+import patterns.factory.civilizations.FrenchFactory;
+
+class ArmyFileTest {
+  @TempDir
+  Path directory;
+
+  @Test
+  void upgradesSurviveRoundTrip() throws IOException {
+    Path file = directory.resolve("exercito.bin");
+    TroopComponent troop = Upgrade.WEAPON.applyTo(Upgrade.ARMOR.applyTo(new BasicTroop("Arqueiro", 10, 5, 50)));
+    ArmyFileWriter.write(file, List.of(troop));
+    try(ArmyFileReader reader = new ArmyFileReader(file)){
+      UpgradedTroop read = reader.component(0);
+      assertEquals(troop.getAttack(), read.getAttack());
+      assertEquals(troop.getDefense(), read.getDefense());
+      assertEquals(troop.getCost(), read.getCost());
+      assertEquals("Arqueiro", read.getName());
+      assertEquals(2, read.getUpgradeCount());
+      assertEquals(Upgrade.ARMOR, read.getUpgrade(0));
+      assertEquals(Upgrade.WEAPON, read.getUpgrade(1));
+      assertEquals(troop.getDescription(), read.getDescription());
+    }
+  }
+
+  @Test
+  void factoryArmySurvivesRoundTrip() throws IOException {
+    Path file = directory.resolve("exercito.bin");
+    Army army = new Army();
+    army.add(new BritishFactory().train(UnitType.ARCHER, 3));
+    army.add(new FrenchFactory().createKnight());
+    ArmyFileWriter.write(file, army);
+
+    try(ArmyFileReader reader = new ArmyFileReader(file)){
+      assertEquals(4, reader.size());
+      Army read = reader.toArmy();
+      assertEquals(army.size(), read.size());
+      ArmyFileReader.View view = reader.view();
+      for(int i = 0; i < army.size(); i++){
+        Troop expected = army.view().moveTo(i);
+        view.moveTo(i);
+        assertEquals(expected.getUnitType(), read.getUnitType(i));
+        assertEquals(expected.getCivilization(), read.civilizationName(read.getCivilizationId(i)));
+        assertEquals(expected.getAttack(), read.getAttack(i));
+        assertEquals(expected.getGoldCost(), read.getGoldCost(i));
+        assertEquals(expected.getWoodCost(), read.getWoodCost(i));
+        assertEquals(expected.getUnitType(), view.getUnitType());
+        assertEquals(expected.getCivilization(), view.getCivilization());
+        assertEquals(expected.getDefense(), view.getDefense());
+        assertEquals(expected.getGoldCost(), view.getGoldCost());
+        assertEquals(expected.getDescription(), view.getDescription());
+      }
+      assertEquals(army.totalAttack(), read.totalAttack());
+    }
+  }
+
+  @Test
+  void nameLongerThanFormatLimitIsRejected(){
+    String name = "x".repeat(ArmyFormat.MAX_NAME_BYTES + 1);
+    assertThrows(IOException.class,
+      () -> ArmyFileWriter.write(directory.resolve("exercito.bin"), List.of(new BasicTroop(name, 1, 1, 1))));
+  }
+
+  @Test
+  void corruptUpgradeIsReportedAsIOException() throws IOException {
+    Path file = directory.resolve("exercito.bin");
+    ArmyFileWriter.write(file, List.of(Upgrade.ARMOR.applyTo(new BasicTroop("Arqueiro", 10, 5, 50))));
+    try(FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)){
+      ByteBuffer nibble = ByteBuffer.allocate(Long.BYTES).order(ArmyFormat.BYTE_ORDER).putLong(0xFL).flip();
+      channel.write(nibble, ArmyFormat.HEADER_SIZE + ArmyFormat.UPGRADES);
+    }
+    try(ArmyFileReader reader = new ArmyFileReader(file)){
+      assertThrows(IOException.class, () -> reader.component(0));
+    }
+  }
+}
@@ -0,0 +1,139 @@
+package patterns.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import patterns.events.EventSink;
+import patterns.events.Events;
+import patterns.events.NoOpEventSink;
+import patterns.strategy.Civilization;
+import patterns.strategy.StrategyRegistry;
+
+class JournaledCivilizationsTest {
+  @TempDir
+  Path directory;
+
+  private final StrategyRegistry strategies = new StrategyRegistry();
+  private EventSink previous;
+
+  @BeforeEach
+  void silenceEvents(){
+    previous = Events.install(NoOpEventSink.INSTANCE);
+  }
+
+  @AfterEach
+  void restoreEvents(){
+    Events.install(previous);
+  }
+
+  @Test
+  void stateIsRecoveredFromSnapshotAndJournal() throws IOException {
+    try(JournaledCivilizations civilizations = JournaledCivilizations.open(directory, strategies, 0)){
+      int england = civilizations.create("Inglaterra", 500);
+      int france = civilizations.create("Franca", 200);
+      civilizations.attack(england);
+      civilizations.snapshot();
+      civilizations.setStrategy(france, strategies.get("Agressiva"));
+      civilizations.addResources(france, 75);
+      civilizations.attack(france);
+    }
+    try(JournaledCivilizations civilizations = JournaledCivilizations.open(directory, strategies, 0)){
+      assertEquals(2, civilizations.size());
+      assertEquals("Inglaterra", civilizations.getName(0));
+      assertEquals(500 - Civilization.ATTACK_COST, civilizations.getResources(0));
+      assertEquals(200 + 75 - Civilization.ATTACK_COST, civilizations.getResources(1));
+      assertEquals("Agressiva", civilizations.getStrategy(1).getName());
+    }
+  }
+
+  @Test
+  void closeOnInterruptedThreadStillWritesPendingRecords() throws IOException {
+    JournaledCivilizations civilizations = JournaledCivilizations.open(directory, strategies, 1);
+    for(int i = 0; i < 1_000; i++){
+      civilizations.create("Civ" + i, i);
+    }
+    Thread.currentThread().interrupt();
+    try {
+      civilizations.close();
+    } finally {
+      assertTrue(Thread.interrupted());
+    }
+    try(JournaledCivilizations recovered = JournaledCivilizations.open(directory, strategies, 0)){
+      assertEquals(1_000, recovered.size());
+      assertEquals(999, recovered.getResources(999));
+    }
+  }
+
+  @Test
+  void failedSnapshotKeepsJournalInUse() throws IOException {
+    Path blocker = directory.resolve("snapshot.bin");
+    try(JournaledCivilizations civilizations = JournaledCivilizations.open(directory, strategies, 0)){
+      int england = civilizations.create("Inglaterra", 500);
+      //um diretorio nao vazio no lugar do snapshot faz a troca atomica falhar
+      Files.createDirectories(blocker);
+      Files.createFile(blocker.resolve("ocupado"));
+      assertThrows(IOException.class, civilizations::snapshot);
+      civilizations.addResources(england, 25);
+      civilizations.attack(england);
+    }
+    assertFalse(Files.exists(directory.resolve("journal-1.bin")));
+    Files.delete(blocker.resolve("ocupado"));
+    Files.delete(blocker);
+    try(JournaledCivilizations civilizations = JournaledCivilizations.open(directory, strategies, 0)){
+      assertEquals(500 + 25 - Civilization.ATTACK_COST, civilizations.getResources(0));
+    }
+  }
+
+  @Test
+  void tornTailRecordIsDiscardedOnReplay() throws IOException {
+    try(JournaledCivilizations civilizations = JournaledCivilizations.open(directory, strategies, 0)){
+      int france = civilizations.create("Franca", 200);
+      civilizations.addResources(france, 50);
+    }
+    Path journal = directory.resolve("journal-0.bin");
+    long valid = Files.size(journal);
+    //registro de deposito escrito pela metade
+    Files.write(journal, new byte[]{0, 0, 0, 0, CivilizationJournal.DEPOSIT, 0, 0}, StandardOpenOption.APPEND);
+
+    try(JournaledCivilizations civilizations = JournaledCivilizations.open(directory, strategies, 0)){
+      assertEquals(250, civilizations.getResources(0));
+      assertEquals(valid, Files.size(journal));
+      civilizations.addResources(0, 10);
+    }
+    try(JournaledCivilizations civilizations = JournaledCivilizations.open(directory, strategies, 0)){
+      assertEquals(260, civilizations.getResources(0));
+    }
+  }
+
+  @Test
+  void snapshotRejectsNamesOverTheFormatLimit(){
+    Path file = directory.resolve("snapshot.bin");
+    String name = "x".repeat(CivilizationSnapshot.MAX_NAME_BYTES + 1);
+    assertThrows(IOException.class,
+      () -> CivilizationSnapshot.write(file, 1, List.of(new Civilization(name, 100))));
+    assertFalse(Files.exists(file));
+    assertFalse(Files.exists(directory.resolve("snapshot.bin.tmp")));
+  }
+
+  @Test
+  void snapshotFitsTheLargestRecord() throws IOException {
+    Path file = directory.resolve("snapshot.bin");
+    String name = "x".repeat(CivilizationSnapshot.MAX_NAME_BYTES);
+    CivilizationSnapshot.write(file, 1, List.of(new Civilization("a", 1), new Civilization(name, 100)));
+    CivilizationSnapshot snapshot = CivilizationSnapshot.read(file, strategies);
+    assertEquals(name, snapshot.getCivilizations().get(1).getName());
+  }
+}
@@ -0,0 +1,80 @@
+package patterns.strategy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import patterns.events.EventSink;
+import patterns.events.Events;
+
+class AttackStrategyTest {
+  //Estrategia escrita antes de describe/attackPower existirem: so sobrescreve execute
+  private static final class LegacyStrategy implements AttackStrategy {
+    @Override
+    public String execute(int basePower){
+      return "Ataque legado com poder " + (int) (basePower * getAttackModifier());
+    }
+
+    @Override
+    public double getAttackModifier(){
+      return 1.2;
+    }
+
+    @Override
+    public double getDefenseModifier(){
+      return 0.8;
+    }
+
+    @Override
+    public String getName(){
+      return "Legada";
+    }
+  }
+
+  //Guarda as linhas publicadas para conferir o texto dos eventos
+  private static final class RecordingEventSink implements EventSink {
+    final List<String> lines = new ArrayList<>();
+
+    @Override
+    public boolean isEnabled(){
+      return true;
+    }
+
+    @Override
+    public void info(String line){
+      lines.add(line);
+    }
+
+    @Override
+    public void error(String line){
+      lines.add(line);
+    }
+  }
+
+  @Test
+  void legacyStrategyStillWorks(){
+    AttackStrategy strategy = new LegacyStrategy();
+    assertEquals("Ataque legado com poder 120", strategy.execute(100));
+    assertEquals(120, strategy.attackPower(100));
+    assertEquals(80, strategy.defensePower(100));
+    assertEquals("Ataque Legada com poder 120!", strategy.describe(120));
+  }
+
+  @Test
+  void civilizationAttacksWithLegacyStrategy(){
+    Civilization civilization = new Civilization("Teste", 100, new LegacyStrategy());
+    RecordingEventSink events = new RecordingEventSink();
+    EventSink previous = Events.install(events);
+    try {
+      assertEquals(120, civilization.attack());
+    } finally {
+      Events.install(previous);
+    }
+    assertEquals(100 - Civilization.ATTACK_COST, civilization.getResources());
+    //o texto e o do execute da estrategia, nao o describe generico
+    assertEquals("Teste->Ataque legado com poder 120", events.lines.get(0));
+  }
+}
@@ -0,0 +1,120 @@
+package patterns.strategy.actor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import patterns.events.EventSink;
+import patterns.events.Events;
+import patterns.events.NoOpEventSink;
+import patterns.strategy.Civilization;
+
+class CivilizationActorTest {
+  private EventSink previous;
+
+  @BeforeEach
+  void silenceEvents(){
+    previous = Events.install(NoOpEventSink.INSTANCE);
+  }
+
+  @AfterEach
+  void restoreEvents(){
+    Events.install(previous);
+  }
+
+  @Test
+  void errorFailsOnlyItsMessage(){
+    try(ActorRuntime runtime = new ActorRuntime(1)){
+      CivilizationActor actor = runtime.spawn(new Civilization("Teste", 100));
+      CompletableFuture<Object> broken = actor.ask(civilization -> {
+        throw new AssertionError("comando com defeito");
+      });
+      CompletableFuture<Integer> resources = actor.addResources(50);
+
+      CompletionException failure = assertThrows(CompletionException.class, broken::join);
+      assertInstanceOf(AssertionError.class, failure.getCause());
+      //o ator continua processando a caixa
+      assertEquals(150, assertTimeoutPreemptively(Duration.ofSeconds(10), resources::join));
+      assertEquals(1, runtime.getStats().getFailed());
+    }
+  }
+
+  @Test
+  void virtualMachineErrorFailsItsMessageAndKeepsActorScheduled(){
+    //sem pilha: a thread do pool que o recebe so imprime uma linha
+    StackOverflowError fatal = new StackOverflowError("simulado"){
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      public synchronized Throwable fillInStackTrace(){
+        return this;
+      }
+    };
+    try(ActorRuntime runtime = new ActorRuntime(1)){
+      CivilizationActor actor = runtime.spawn(new Civilization("Teste", 100));
+      //o primeiro comando segura o ator ate os outros estarem na caixa
+      CompletableFuture<Void> release = new CompletableFuture<>();
+      CompletableFuture<Object> blocked = actor.ask(civilization -> release.join());
+      CompletableFuture<Object> broken = actor.ask(civilization -> {
+        throw fatal;
+      });
+      CompletableFuture<Integer> resources = actor.addResources(50);
+      release.complete(null);
+
+      CompletionException failure = assertThrows(CompletionException.class, broken::join);
+      assertSame(fatal, failure.getCause());
+      //a thread do pool recebeu o erro, mas o ator foi reagendado e a caixa continua andando
+      assertEquals(150, assertTimeoutPreemptively(Duration.ofSeconds(10), resources::join));
+      assertTrue(blocked.isDone());
+      assertEquals(1, runtime.getStats().getFailed());
+    }
+  }
+
+  @Test
+  void messagesRacingWithCloseAreAnsweredOrRejected(){
+    for(int attempt = 0; attempt < 20; attempt++){
+      ActorRuntime runtime = new ActorRuntime(2, 4);
+      List<CivilizationActor> actors = new ArrayList<>();
+      for(int i = 0; i < 50; i++){
+        actors.add(runtime.spawn(new Civilization("Civilização " + i, 0)));
+      }
+      List<CompletableFuture<Integer>> replies = new ArrayList<>();
+      Thread closer = new Thread(runtime::close);
+      closer.start();
+      for(int round = 0; round < 200; round++){
+        for(CivilizationActor actor : actors){
+          replies.add(actor.addResources(1));
+        }
+      }
+      assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+        closer.join();
+        for(CompletableFuture<Integer> reply : replies){
+          try {
+            reply.join();
+          } catch(CompletionException e){
+            assertInstanceOf(RejectedExecutionException.class, e.getCause());
+          }
+        }
+      });
+      assertEquals(0, runtime.getStats().getMailboxDepth());
+      for(CivilizationActor actor : actors){
+        assertEquals(0, actor.getMailboxDepth());
+      }
+      assertTrue(replies.stream().allMatch(CompletableFuture::isDone));
+    }
+  }
+}
@@ -0,0 +1,90 @@
+package patterns.strategy.simulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.jupiter.api.Test;
+
+import patterns.factory.UnitType;
+import patterns.factory.registry.UnitRegistry;
+import patterns.factory.registry.UnitTable;
+import patterns.strategy.AttackStrategy;
+import patterns.strategy.StrategyRegistry;
+
+class MatchupEngineTest {
+  private static final String BRITISH = "Britanico,ARCHER,35,10,40,20\nBritanico,SWORDSMAN,25,20,60,10\nBritanico,KNIGHT,40,30,120,0\n";
+  private static final String FRENCH = "Frances,ARCHER,30,10,40,20\nFrances,SWORDSMAN,30,25,60,10\n";
+
+  private static final class Berserk implements AttackStrategy {
+    @Override
+    public double getAttackModifier(){
+      return 1.7;
+    }
+
+    @Override
+    public double getDefenseModifier(){
+      return 0.4;
+    }
+
+    @Override
+    public String getName(){
+      return "Furiosa";
+    }
+  }
+
+  private static UnitTable units(String csv) throws IOException {
+    return UnitTable.parse(new StringReader(csv), "teste");
+  }
+
+  private static void assertSameCells(MatchupTable expected, MatchupTable actual){
+    assertEquals(expected.sideCount(), actual.sideCount());
+    for(int attacker = 0; attacker < expected.sideCount(); attacker++){
+      for(int defender = 0; defender < expected.sideCount(); defender++){
+        assertEquals(expected.resolve(attacker, defender), actual.resolve(attacker, defender));
+      }
+    }
+  }
+
+  @Test
+  void appendedCivilizationsAndStrategiesMatchAFreshTable() throws IOException {
+    UnitRegistry units = new UnitRegistry(units(BRITISH));
+    StrategyRegistry strategies = new StrategyRegistry();
+    MatchupEngine engine = new MatchupEngine(units, strategies);
+    int before = engine.table().sideCount();
+
+    //civilizacao e estrategia novas mudam os indices de todos os lados
+    units.replace(units(BRITISH + FRENCH));
+    strategies.register(new Berserk());
+    MatchupTable extended = engine.table();
+    MatchupTable fresh = new MatchupEngine(units, strategies).table();
+
+    assertEquals(extended.sideCount() - before, extended.getRecomputedSides());
+    assertSameCells(fresh, extended);
+  }
+
+  @Test
+  void changedUnitOnlyRecomputesItsSides() throws IOException {
+    UnitRegistry units = new UnitRegistry(units(BRITISH + FRENCH));
+    StrategyRegistry strategies = new StrategyRegistry();
+    MatchupEngine engine = new MatchupEngine(units, strategies);
+
+    units.replace(units(BRITISH.replace("KNIGHT,40,30", "KNIGHT,45,30") + FRENCH));
+    MatchupTable updated = engine.table();
+
+    assertEquals(strategies.size(), updated.getRecomputedSides());
+    assertSameCells(new MatchupEngine(units, strategies).table(), updated);
+  }
+
+  @Test
+  void sideRejectsUnitsWithoutTemplate() throws IOException {
+    MatchupTable table = new MatchupEngine(new UnitRegistry(units(BRITISH + FRENCH)), new StrategyRegistry()).table();
+    int french = table.getUnits().civilizationId("Frances");
+
+    assertThrows(IllegalArgumentException.class, () -> table.side(french, UnitType.KNIGHT, 0));
+    assertThrows(IllegalArgumentException.class, () -> table.side("Frances", UnitType.KNIGHT, "Agressiva"));
+    table.side(french, UnitType.ARCHER, 0);
+  }
+}
@@ -0,0 +1,222 @@
+package patterns.strategy.simulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import patterns.events.EventSink;
+import patterns.events.Events;
+import patterns.events.NoOpEventSink;
+import patterns.strategy.AttackStrategy;
+import patterns.strategy.Civilization;
+import patterns.strategy.StrategyRegistry;
+
+class ShardedSimulationTest {
+  //Conhecida apenas pelos shards que a registram; falha ao atacar
+  private static final class BrokenStrategy implements AttackStrategy {
+    @Override
+    public int attackPower(int basePower){
+      throw new ArithmeticException("estratégia com defeito");
+    }
+
+    @Override
+    public double getAttackModifier(){
+      return 1;
+    }
+
+    @Override
+    public double getDefenseModifier(){
+      return 1;
+    }
+
+    @Override
+    public String getName(){
+      return "Quebrada";
+    }
+  }
+
+  @TempDir
+  Path directory;
+
+  private EventSink previous;
+  private final List<ShardServer> servers = new ArrayList<>();
+  private final List<Thread> threads = new ArrayList<>();
+
+  @BeforeEach
+  void silenceEvents(){
+    previous = Events.install(NoOpEventSink.INSTANCE);
+  }
+
+  @AfterEach
+  void stopShards() throws Exception {
+    for(ShardServer server : servers){
+      server.close();
+    }
+    for(Thread thread : threads){
+      thread.join(10_000);
+    }
+    Events.install(previous);
+  }
+
+  //Shard no mesmo processo, servindo numa thread propria
+  private ShardServer shard(String name, StrategyRegistry strategies) throws IOException {
+    return serve(new ShardServer("unix:" + directory.resolve(name + ".sock"), strategies), name);
+  }
+
+  private ShardServer serve(ShardServer server, String name){
+    Thread thread = new Thread(() -> {
+      try {
+        server.serve();
+      } catch(IOException e){
+        throw new UncheckedIOException(e);
+      }
+    }, name);
+    thread.start();
+    servers.add(server);
+    threads.add(thread);
+    return server;
+  }
+
+  private static long localHash(int civilizations, int ticks){
+    TickSimulation local = new TickSimulation(TickSimulationTest.civilizations(civilizations), 1, 42);
+    local.run(ticks);
+    return local.stateHash();
+  }
+
+  @Test
+  void shardedStateMatchesLocalSimulation() throws IOException {
+    ShardServer first = shard("a", new StrategyRegistry());
+    ShardServer second = shard("b", new StrategyRegistry());
+    ShardServer third = shard("c", new StrategyRegistry());
+
+    try(ShardedSimulation simulation = new ShardedSimulation(42)){
+      simulation.addShard(first.getAddress());
+      simulation.addShard(second.getAddress());
+      simulation.addCivilizations(TickSimulationTest.civilizations(600));
+      simulation.run(10);
+      //civilizacoes mudam de shard entre ticks sem mudar o resultado
+      simulation.addShard(third.getAddress());
+      assertTrue(simulation.getLastMoved() > 0);
+      simulation.run(10);
+      simulation.removeShard(second.getAddress());
+      simulation.run(10);
+
+      assertEquals(localHash(600, 30), simulation.stateHash());
+    }
+  }
+
+  @Test
+  void reconnectedShardsStartEmpty() throws IOException {
+    ShardServer first = shard("a", new StrategyRegistry());
+    ShardServer second = shard("b", new StrategyRegistry());
+
+    for(int run = 0; run < 2; run++){
+      try(ShardedSimulation simulation = new ShardedSimulation(42)){
+        simulation.addShard(first.getAddress());
+        simulation.addShard(second.getAddress());
+        simulation.addCivilizations(TickSimulationTest.civilizations(300));
+        simulation.run(20);
+        assertEquals(localHash(300, 20), simulation.stateHash());
+      }
+    }
+  }
+
+  @Test
+  void rejectedAssignLeavesShardUnchanged() throws Exception {
+    ShardServer server = shard("a", new StrategyRegistry());
+    List<Civilization> batch = TickSimulationTest.civilizations(10);
+    //o shard nao conhece a estrategia da ultima civilizacao do lote
+    batch.add(new Civilization("Quebrada", 1_000, new BrokenStrategy()));
+
+    try(ShardedSimulation simulation = new ShardedSimulation(42)){
+      simulation.addShard(server.getAddress());
+      IOException e = assertThrows(IOException.class, () -> simulation.addCivilizations(batch));
+      assertTrue(e.getMessage().contains("Quebrada"), e.getMessage());
+    }
+    server.close();
+    threads.get(0).join(10_000);
+    assertEquals(0, server.size());
+  }
+
+  @Test
+  void failedTickLeavesShardUnchanged() throws IOException {
+    StrategyRegistry strategies = new StrategyRegistry();
+    strategies.register(new BrokenStrategy());
+    ShardServer server = shard("a", strategies);
+    List<Civilization> civilizations = TickSimulationTest.civilizations(200);
+    //por ultimo, para que as demais ja tenham recebido renda e atacado quando ela falhar
+    civilizations.add(new Civilization("Quebrada", 1_000, new BrokenStrategy()));
+
+    try(ShardedSimulation simulation = new ShardedSimulation(42)){
+      simulation.addShard(server.getAddress());
+      simulation.addCivilizations(civilizations);
+      long before = simulation.stateHash();
+      IOException failure = null;
+      for(int tick = 0; tick < 100 && failure == null; tick++){
+        before = simulation.stateHash();
+        try {
+          simulation.run(1);
+        } catch(IOException e){
+          failure = e;
+        }
+      }
+      assertTrue(failure != null && failure.getMessage().contains("estratégia com defeito"));
+      assertEquals(before, simulation.stateHash());
+    }
+  }
+
+  //Um coordenador de verdade depois da conexao com defeito: o shard tem que continuar atendendo
+  private static void assertShardStillServes(ShardServer server) throws IOException {
+    try(ShardedSimulation simulation = new ShardedSimulation(42)){
+      simulation.addShard(server.getAddress());
+      simulation.addCivilizations(TickSimulationTest.civilizations(100));
+      simulation.run(5);
+      assertEquals(localHash(100, 5), simulation.stateHash());
+    }
+  }
+
+  @Test
+  void malformedMessageOnlyDropsItsConnection() throws IOException {
+    ShardServer server = shard("a", new StrategyRegistry());
+
+    try(SocketChannel channel = SocketChannel.open(ShardConnection.address(server.getAddress()))){
+      channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, -1));
+      //o shard fecha a conexao ao recusar o tamanho
+      assertEquals(-1, channel.read(ByteBuffer.allocate(1)));
+    }
+
+    assertShardStillServes(server);
+  }
+
+  @Test
+  void resetConnectionOnlyDropsItsConnection() throws IOException {
+    int port;
+    try(ServerSocket probe = new ServerSocket(0)){
+      port = probe.getLocalPort();
+    }
+    ShardServer server = serve(new ShardServer(String.valueOf(port), new StrategyRegistry()), "tcp");
+
+    try(SocketChannel channel = SocketChannel.open(ShardConnection.address(server.getAddress()))){
+      //mensagem pela metade, e o fechamento com linger 0 manda RST: o shard ve "Connection reset", nao EOF
+      channel.write(ByteBuffer.allocate(Integer.BYTES + 2).putInt(0, 64));
+      channel.setOption(StandardSocketOptions.SO_LINGER, 0);
+    }
+
+    assertShardStillServes(server);
+  }
+}
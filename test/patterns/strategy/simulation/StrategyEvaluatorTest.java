@@ -0,0 +1,45 @@
+package patterns.strategy.simulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import patterns.strategy.AttackStrategy;
+import patterns.strategy.Civilization;
+import patterns.strategy.strategies.AggressiveStrategy;
+import patterns.strategy.strategies.BalancedStrategy;
+import patterns.strategy.strategies.DefensiveStrategy;
+
+class StrategyEvaluatorTest {
+  private static List<StrategyScore> rank(int parallelism, List<AttackStrategy> candidates){
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      //quantidade que nao e multipla das folhas da divisao
+      return new StrategyEvaluator(pool, 5_003, 42).rank(new Civilization("Teste", 500), candidates);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  void rankingDoesNotDependOnParallelism(){
+    List<AttackStrategy> candidates = List.of(new AggressiveStrategy(), new BalancedStrategy(), new DefensiveStrategy());
+    List<StrategyScore> single = rank(1, candidates);
+    List<StrategyScore> parallel = rank(4, candidates);
+
+    assertEquals(candidates.size(), single.size());
+    for(int i = 0; i < single.size(); i++){
+      StrategyScore expected = single.get(i);
+      StrategyScore actual = parallel.get(i);
+      assertSame(expected.getStrategy(), actual.getStrategy());
+      assertEquals(expected.getWins(), actual.getWins());
+      assertEquals(expected.getDraws(), actual.getDraws());
+      assertEquals(expected.getLosses(), actual.getLosses());
+      assertEquals(5_003, actual.getRollouts());
+    }
+  }
+}
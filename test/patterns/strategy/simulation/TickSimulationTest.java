@@ -0,0 +1,89 @@
+package patterns.strategy.simulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import patterns.events.EventSink;
+import patterns.events.Events;
+import patterns.events.NoOpEventSink;
+import patterns.strategy.AttackStrategy;
+import patterns.strategy.Civilization;
+import patterns.strategy.strategies.AggressiveStrategy;
+import patterns.strategy.strategies.BalancedStrategy;
+import patterns.strategy.strategies.DefensiveStrategy;
+
+class TickSimulationTest {
+  //Estrategia com defeito: falha no primeiro ataque
+  private static final class BrokenStrategy implements AttackStrategy {
+    @Override
+    public int attackPower(int basePower){
+      throw new ArithmeticException("estratégia com defeito");
+    }
+
+    @Override
+    public double getAttackModifier(){
+      return 1;
+    }
+
+    @Override
+    public double getDefenseModifier(){
+      return 1;
+    }
+
+    @Override
+    public String getName(){
+      return "Quebrada";
+    }
+  }
+
+  private EventSink previous;
+
+  @BeforeEach
+  void silenceEvents(){
+    previous = Events.install(NoOpEventSink.INSTANCE);
+  }
+
+  @AfterEach
+  void restoreEvents(){
+    Events.install(previous);
+  }
+
+  static List<Civilization> civilizations(int count){
+    AttackStrategy[] strategies = {new AggressiveStrategy(), new BalancedStrategy(), new DefensiveStrategy()};
+    List<Civilization> civilizations = new ArrayList<>(count);
+    for(int i = 0; i < count; i++){
+      civilizations.add(new Civilization("Civ" + i, 1_000 + i, strategies[i % strategies.length]));
+    }
+    return civilizations;
+  }
+
+  @Test
+  void stateDoesNotDependOnThreadCount(){
+    TickSimulation single = new TickSimulation(civilizations(1_000), 1, 42);
+    TickSimulation sharded = new TickSimulation(civilizations(1_000), 4, 42);
+    single.run(50);
+    sharded.run(50);
+    assertEquals(single.stateHash(), sharded.stateHash());
+  }
+
+  @Test
+  void failingShardRethrowsOriginalCauseWithoutHanging(){
+    List<Civilization> civilizations = civilizations(400);
+    //fica no terceiro de quatro shards; os outros chegam a barreira antes ou depois da falha
+    civilizations.set(250, new Civilization("Quebrada", 1_000, new BrokenStrategy()));
+    TickSimulation simulation = new TickSimulation(civilizations, 4, 7);
+    assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+      ArithmeticException e = assertThrows(ArithmeticException.class, () -> simulation.run(100));
+      assertEquals("estratégia com defeito", e.getMessage());
+    });
+  }
+}